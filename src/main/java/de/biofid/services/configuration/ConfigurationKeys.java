@@ -11,11 +11,40 @@ public class ConfigurationKeys {
     public static final String CLASS_NAME = "class";
     public static final String CRAWL_ALL_ITEMS = "crawl-all-items";
     public static final String API_KEY = "api-key";
+    public static final String BURST = "burst";
+    public static final String BULK_DATA = "bulk-data";
+    public static final String COLLECTIONS = "collections";
+    public static final String CONNECT_TIMEOUT = "connect-timeout";
+    public static final String DOWNLOAD_SEGMENTS = "download-segments";
+    public static final String DOWNLOAD_WORKERS = "download-workers";
+    public static final String EXTERNAL_RESOURCE_WORKERS = "external-resource-workers";
+    public static final String FILTER_WORKERS = "filter-workers";
+    public static final String HARVESTER_PIPELINE_THREADS = "harvester-pipeline-threads";
+    public static final String ID = "id";
     public static final String ITEMS = "items";
+    public static final String LANGUAGE = "language";
     public static final String LOGGER_LEVEL = "logging-level";
+    public static final String MAXIMUM_CONNECTIONS_PER_HOST = "max-connections-per-host";
+    public static final String MAXIMUM_RETRIES = "max-retries";
+    public static final String METADATA_BATCH_SIZE = "metadata-batch-size";
     public static final String METADATA_ONLY = "metadata-only";
+    public static final String METADATA_PROJECTION = "metadata-projection";
+    public static final String METADATA_WORKERS = "metadata-workers";
     public static final String OUTPUT_PATH = "output-path";
     public static final String OVERWRITE_FILES = "overwrite";
+    public static final String PARALLEL_COLLECTION_PAGES = "parallel-collection-pages";
+    public static final String PARALLEL_CRAWL_PAGES = "parallel-crawl-pages";
+    public static final String PARALLEL_FILE_DOWNLOADS = "parallel-file-downloads";
+    public static final String PARALLEL_HARVESTERS = "parallel-harvesters";
+    public static final String PIPELINE_QUEUE_SIZE = "pipeline-queue-size";
+    public static final String PIPELINE_THREAD_BUDGET = "pipeline-thread-budget";
+    public static final String PREFETCHED_TITLES = "prefetched-titles";
+    public static final String RATE_LIMITS = "rate-limits";
+    public static final String READ_TIMEOUT = "read-timeout";
     public static final String REQUEST_DELAY = "request-delay";
+    public static final String REQUESTS_PER_SECOND = "requests-per-second";
+    public static final String RESPONSE_CACHE_SIZE = "response-cache-size";
+    public static final String RESPONSE_CACHE_TTL = "response-cache-ttl";
+    public static final String SEGMENTED_DOWNLOAD_THRESHOLD = "segmented-download-threshold";
     public static final String TITLES = "titles";
 }
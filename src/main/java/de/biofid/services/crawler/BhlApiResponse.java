@@ -0,0 +1,114 @@
+package de.biofid.services.crawler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import de.biofid.services.crawler.http.JsonResponseReader;
+import de.biofid.services.crawler.http.JsonStreamReader;
+import org.json.JSONObject;
+
+import java.io.IOException;
+
+/***
+ * A response of the BHL API with its status and its result.
+ *
+ * The response is read while it is streamed: the status and the error message are taken from the envelope and only
+ * the result is handed to a dedicated reader, which builds a compact record of the parts that are needed.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class BhlApiResponse<T> {
+
+	public static final String ERROR_MESSAGE = "ErrorMessage";
+	public static final String RESULT = "Result";
+	public static final String STATUS = "Status";
+	public static final String STATUS_OK = "ok";
+	public static final String STATUS_UNAUTHORIZED = "Unauthorized";
+
+	private final String status;
+	private final String errorMessage;
+	private final T result;
+
+	public BhlApiResponse(String status, String errorMessage, T result) {
+		this.status = status;
+		this.errorMessage = errorMessage;
+		this.result = result;
+	}
+
+	/***
+	 * Creates a reader for a whole API response.
+	 * @param resultReader Reads the value of the "Result" field.
+	 */
+	public static <T> JsonResponseReader<BhlApiResponse<T>> reader(JsonResponseReader<T> resultReader) {
+		return parser -> {
+			JsonStreamReader.expect(parser, JsonToken.START_OBJECT);
+
+			String status = "";
+			String errorMessage = "";
+			T result = null;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken valueToken = parser.nextToken();
+
+				if (STATUS.equals(field)) {
+					status = getText(parser, valueToken);
+				} else if (ERROR_MESSAGE.equals(field)) {
+					errorMessage = getText(parser, valueToken);
+				} else if (RESULT.equals(field) && valueToken != JsonToken.VALUE_NULL) {
+					result = resultReader.read(parser);
+				} else {
+					parser.skipChildren();
+				}
+			}
+
+			return new BhlApiResponse<>(status, errorMessage, result);
+		};
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	/***
+	 * @return The result or null, if the response had none.
+	 */
+	public T getResult() {
+		return result;
+	}
+
+	public boolean isOk() {
+		return STATUS_OK.equalsIgnoreCase(status);
+	}
+
+	public boolean isUnauthorized() {
+		return STATUS_UNAUTHORIZED.equals(status);
+	}
+
+	/***
+	 * Creates the JSON of a response with the same status and the given result.
+	 * @param jsonResult The result in its JSON form.
+	 */
+	public String toJson(Object jsonResult) {
+		JSONObject json = new JSONObject();
+		json.put(STATUS, status);
+		json.put(ERROR_MESSAGE, errorMessage);
+		json.put(RESULT, jsonResult);
+		return json.toString();
+	}
+
+	private static String getText(JsonParser parser, JsonToken valueToken) throws IOException {
+		if (valueToken == JsonToken.VALUE_NULL) {
+			return "";
+		}
+		if (valueToken.isStructStart()) {
+			parser.skipChildren();
+			return "";
+		}
+		return parser.getText();
+	}
+}
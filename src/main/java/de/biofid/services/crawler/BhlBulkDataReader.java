@@ -0,0 +1,284 @@
+package de.biofid.services.crawler;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/***
+ * Reads the item metadata from a BHL bulk data export instead of the BHL API.
+ *
+ * BHL publishes its whole catalogue as tab-delimited export files (https://www.biodiversitylibrary.org/data/).
+ * This reader streams the item file line by line and creates the metadata of every item in the form the API
+ * returns it, including the download URLs. The title file is optional; if it is given, the metadata of the
+ * title of an item is added to the item. The columns are found by the header line, so their order does not matter.
+ *
+ * The items can be restricted to a set of item IDs and title IDs. Otherwise, all items of the export are read.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+class BhlBulkDataReader implements Iterator<Object>, Closeable {
+
+	public static final String ITEM_FILE_NAME = "item.txt";
+	public static final String TITLE_FILE_NAME = "title.txt";
+
+	private static final String BHL_BASE_URL = "https://www.biodiversitylibrary.org/";
+	private static final String BYTE_ORDER_MARK = "\uFEFF";
+	private static final String COLUMN_SEPARATOR = "\t";
+	private static final String INTERNET_ARCHIVE = "Internet Archive";
+
+	// Metadata fields as named by the BHL API
+	private static final String ITEM_ID = "ItemID";
+	private static final String ITEM_PDF_URL = "ItemPDFUrl";
+	private static final String ITEM_TXT_URL = "ItemTextUrl";
+	private static final String ITEM_URL = "ItemUrl";
+	private static final String SOURCE = "Source";
+	private static final String SOURCE_IDENTIFIER = "SourceIdentifier";
+	private static final String TITLE_ID = "TitleID";
+
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	// The export columns and the metadata fields they are stored in
+	private static final Map<String, String> ITEM_COLUMNS = new LinkedHashMap<>();
+	private static final Map<String, String> TITLE_COLUMNS = new LinkedHashMap<>();
+	static {
+		ITEM_COLUMNS.put("ItemID", ITEM_ID);
+		ITEM_COLUMNS.put("TitleID", "PrimaryTitleID");
+		ITEM_COLUMNS.put("BarCode", SOURCE_IDENTIFIER);
+		ITEM_COLUMNS.put("VolumeInfo", "Volume");
+		ITEM_COLUMNS.put("Year", "Year");
+		ITEM_COLUMNS.put("ItemURL", ITEM_URL);
+		ITEM_COLUMNS.put("CallNumber", "CallNumber");
+		ITEM_COLUMNS.put("InstitutionName", "HoldingInstitution");
+		ITEM_COLUMNS.put("CopyrightStatus", "CopyrightStatus");
+		ITEM_COLUMNS.put("LicenseUrl", "LicenseUrl");
+		ITEM_COLUMNS.put("Rights", "Rights");
+		ITEM_COLUMNS.put("Source", SOURCE);
+		ITEM_COLUMNS.put("ExternalUrl", "ExternalUrl");
+		ITEM_COLUMNS.put("CreationDate", "CreationDate");
+
+		TITLE_COLUMNS.put("FullTitle", "Title");
+		TITLE_COLUMNS.put("ShortTitle", "ShortTitle");
+		TITLE_COLUMNS.put("PublicationDetails", "PublicationDetails");
+		TITLE_COLUMNS.put("StartYear", "StartYear");
+		TITLE_COLUMNS.put("EndYear", "EndYear");
+		TITLE_COLUMNS.put("LanguageCode", "Language");
+		TITLE_COLUMNS.put("TL2Author", "Author");
+	}
+
+	private final Set<Long> itemIds;
+	private final Set<Long> titleIds;
+	private final Map<Long, JSONObject> titleMetadata = new HashMap<>();
+	private final BufferedReader itemReader;
+	private final Map<String, Integer> itemColumnIndices;
+	private JSONObject nextItemMetadata = null;
+	private boolean isExhausted = false;
+
+	/***
+	 * @param exportDirectory The directory with the (unpacked) export files.
+	 * @param itemIds The items to read. If both the item IDs and the title IDs are empty, all items are read.
+	 * @param titleIds The titles, whose items are read.
+	 * @throws IOException If the item file could not be opened.
+	 */
+	BhlBulkDataReader(Path exportDirectory, Collection<Long> itemIds, Collection<Long> titleIds) throws IOException {
+		this.itemIds = new HashSet<>(itemIds);
+		this.titleIds = new HashSet<>(titleIds);
+
+		Path titleFile = exportDirectory.resolve(TITLE_FILE_NAME);
+		if (Files.exists(titleFile)) {
+			readTitles(titleFile);
+		}
+
+		this.itemReader = Files.newBufferedReader(exportDirectory.resolve(ITEM_FILE_NAME), StandardCharsets.UTF_8);
+		this.itemColumnIndices = readHeader(itemReader);
+		if (!itemColumnIndices.containsKey(ITEM_ID)) {
+			itemReader.close();
+			throw new IOException("The item file in " + exportDirectory + " has no column " + ITEM_ID + "!");
+		}
+
+		logger.info("Reading the BHL bulk data export in {} with {} titles.", exportDirectory, titleMetadata.size());
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (nextItemMetadata == null && !isExhausted) {
+			try {
+				nextItemMetadata = readNextItem();
+			} catch (IOException ex) {
+				logger.error("Could not read the BHL item export! The remaining items are skipped. Reason: {}",
+						ex.getMessage());
+				closeQuietly();
+			}
+		}
+		return nextItemMetadata != null;
+	}
+
+	/***
+	 * @return The metadata of the next item as a JSONObject.
+	 */
+	@Override
+	public Object next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		JSONObject itemMetadata = nextItemMetadata;
+		nextItemMetadata = null;
+		return itemMetadata;
+	}
+
+	@Override
+	public void close() throws IOException {
+		isExhausted = true;
+		itemReader.close();
+	}
+
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException ignored) {
+			// Nothing left to do
+		}
+	}
+
+	private JSONObject readNextItem() throws IOException {
+		String line;
+		while ((line = itemReader.readLine()) != null) {
+			if (line.isBlank()) {
+				continue;
+			}
+
+			String[] columns = line.split(COLUMN_SEPARATOR, -1);
+			JSONObject itemMetadata = new JSONObject();
+			try {
+				copyColumns(columns, itemColumnIndices, ITEM_COLUMNS, itemMetadata);
+			} catch (NumberFormatException ex) {
+				logger.warn("Skipping a broken line in the BHL item export: {}", line);
+				continue;
+			}
+
+			if (isItemRequested(itemMetadata)) {
+				completeItemMetadata(itemMetadata);
+				return itemMetadata;
+			}
+		}
+
+		close();
+		return null;
+	}
+
+	private boolean isItemRequested(JSONObject itemMetadata) {
+		if (itemIds.isEmpty() && titleIds.isEmpty()) {
+			return true;
+		}
+		return itemIds.contains(itemMetadata.getLong(ITEM_ID)) ||
+				titleIds.contains(itemMetadata.optLong(ITEM_COLUMNS.get(TITLE_ID), -1));
+	}
+
+	/***
+	 * Adds the title metadata and the download URLs, which are not part of the export.
+	 */
+	private void completeItemMetadata(JSONObject itemMetadata) {
+		long itemId = itemMetadata.getLong(ITEM_ID);
+
+		JSONObject title = titleMetadata.get(itemMetadata.optLong(ITEM_COLUMNS.get(TITLE_ID), -1));
+		if (title != null) {
+			for (String field : title.keySet()) {
+				if (!itemMetadata.has(field)) {
+					itemMetadata.put(field, title.get(field));
+				}
+			}
+		}
+
+		if (!itemMetadata.has(ITEM_URL)) {
+			itemMetadata.put(ITEM_URL, BHL_BASE_URL + "item/" + itemId);
+		}
+		itemMetadata.put(ITEM_PDF_URL, BHL_BASE_URL + "itempdf/" + itemId);
+		itemMetadata.put(ITEM_TXT_URL, BHL_BASE_URL + "itemtext/" + itemId);
+		if (!itemMetadata.has(SOURCE)) {
+			itemMetadata.put(SOURCE, itemMetadata.has(SOURCE_IDENTIFIER) ? INTERNET_ARCHIVE : "");
+		}
+	}
+
+	/***
+	 * Reads the metadata of all titles. Only the few columns that are added to the items are kept.
+	 */
+	private void readTitles(Path titleFile) throws IOException {
+		try (BufferedReader titleReader = Files.newBufferedReader(titleFile, StandardCharsets.UTF_8)) {
+			Map<String, Integer> titleColumnIndices = readHeader(titleReader);
+			Integer titleIdIndex = titleColumnIndices.get(TITLE_ID);
+			if (titleIdIndex == null) {
+				logger.warn("The title file {} has no column {}! It is ignored.", titleFile, TITLE_ID);
+				return;
+			}
+
+			String line;
+			while ((line = titleReader.readLine()) != null) {
+				String[] columns = line.split(COLUMN_SEPARATOR, -1);
+				if (columns.length <= titleIdIndex) {
+					continue;
+				}
+
+				try {
+					long titleId = Long.parseLong(columns[titleIdIndex].trim());
+					JSONObject title = new JSONObject();
+					copyColumns(columns, titleColumnIndices, TITLE_COLUMNS, title);
+					titleMetadata.put(titleId, title);
+				} catch (NumberFormatException ex) {
+					logger.warn("Skipping a broken line in the BHL title export: {}", line);
+				}
+			}
+		}
+	}
+
+	private static Map<String, Integer> readHeader(BufferedReader reader) throws IOException {
+		String header = reader.readLine();
+		Map<String, Integer> columnIndices = new HashMap<>();
+		if (header == null) {
+			return columnIndices;
+		}
+
+		String[] columnNames = header.replace(BYTE_ORDER_MARK, "").split(COLUMN_SEPARATOR, -1);
+		for (int i = 0; i < columnNames.length; ++i) {
+			columnIndices.put(columnNames[i].trim(), i);
+		}
+		return columnIndices;
+	}
+
+	/***
+	 * Copies all non-empty columns of a line into the given metadata. ID columns are stored as numbers.
+	 * @throws NumberFormatException If an ID column is not a number.
+	 */
+	private static void copyColumns(String[] columns, Map<String, Integer> columnIndices,
+									Map<String, String> columnFields, JSONObject metadata) {
+		for (Map.Entry<String, String> columnField : columnFields.entrySet()) {
+			Integer index = columnIndices.get(columnField.getKey());
+			if (index == null || index >= columns.length || columns[index].trim().isEmpty()) {
+				continue;
+			}
+
+			String value = columns[index].trim();
+			if (columnField.getKey().endsWith("ID")) {
+				metadata.put(columnField.getValue(), Long.parseLong(value));
+			} else {
+				metadata.put(columnField.getValue(), value);
+			}
+		}
+	}
+}
@@ -1,19 +1,31 @@
 package de.biofid.services.crawler;
 
-import com.goebl.david.WebbException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import de.biofid.services.configuration.ConfigurationKeys;
+import de.biofid.services.crawler.http.ApiResponseCache;
+import de.biofid.services.crawler.http.ExpectedFile;
+import de.biofid.services.crawler.http.HttpFetcher;
+import de.biofid.services.crawler.http.HttpStatusException;
+import de.biofid.services.crawler.http.JsonResponseReader;
+import de.biofid.services.crawler.http.JsonStreamReader;
 import org.apache.http.auth.AuthenticationException;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.texttechnologylab.utilities.helper.RESTUtils;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
-
-import static org.texttechnologylab.utilities.helper.RESTUtils.METHODS.GET;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /***
  * A Harvester to crawl the biodiversity heritage library (BHL).
@@ -26,6 +38,10 @@ import static org.texttechnologylab.utilities.helper.RESTUtils.METHODS.GET;
 public class BhlHarvester extends Harvester {
 	
 	public static final String BHL_STRING = "BHL";
+	public static final int METADATA_BATCH_SIZE_DEFAULT = 20;
+	public static final int RESPONSE_CACHE_SIZE_IN_MEGABYTES_DEFAULT = 500;
+	public static final int RESPONSE_CACHE_TIME_TO_LIVE_IN_DAYS_DEFAULT = 7;
+	public static final String RESPONSE_CACHE_DIRECTORY = "api-cache";
 
     private static final String API_KEY = "apikey";
     private static final String ABBYY_OCR_FILE_NAME_SUFFIX = "_abbyy.gz";
@@ -49,6 +65,8 @@ public class BhlHarvester extends Harvester {
     private static final String GET_TITLE_METADATA = "GetTitleMetadata";
     private static final String ID = "id";
     private static final String ITEM_COMPLETE_METADATA = "Item";
+    private static final String ITEM_ID_SEPARATOR = "|";
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
     private static final String ITEM_ID = "ItemID";
     private static final String ITEM_PDF_URL = "ItemPDFUrl";
     private static final String ITEM_TXT_URL = "ItemTextUrl";
@@ -60,19 +78,30 @@ public class BhlHarvester extends Harvester {
     private static final String OPERATION = "op";
     private static final String PAGE = "page";
     private static final String PAGES = "pages";
+    private static final String PUBLICATION_SEARCH_ADVANCED = "PublicationSearchAdvanced";
     private static final String PARTS = "parts";
+    private static final String PROJECTION = "projection";
     private static final String SOURCE = "Source";
     private static final String SOURCE_IDENTIFIER = "SourceIdentifier";
-    
-    // API Result Tags
-    private static final String REQUEST_OK = "ok";
-    private static final String REQUEST_RESULT = "Result";
-    private static final String REQUEST_STATUS = "Status";
-    private static final String REQUEST_UNAUTHORIZED = "Unauthorized";
+    private static final String TITLE = "Title";
     
     private String apiKey;
     private List<Object> listOfItemsToDownload = new ArrayList<>();
+    private List<Object> listOfTitlesToDownload = new ArrayList<>();
+    private List<CollectionSource> listOfCollectionsToDownload = new ArrayList<>();
+    private int parallelCollectionPages = ParallelPageReader.PARALLEL_PAGES_DEFAULT;
+    private int prefetchedTitles = TitleItemIterator.PREFETCHED_TITLES_DEFAULT;
     private Iterator<Object> itemListIterator = null;
+    private int itemListPosition = -1;
+    private int nextItemListPosition = 0;
+    private int metadataBatchSize = METADATA_BATCH_SIZE_DEFAULT;
+    private final Deque<BatchedItem> metadataBatch = new ArrayDeque<>();
+    private ApiResponseCache responseCache = null;
+    private MetadataProjection metadataProjection = MetadataProjection.fromConfiguration(null, Collections.emptyList());
+    private Path bulkDataDirectory = null;
+    private int externalResourceWorkers = ExternalResourceRegistry.WORKERS_DEFAULT;
+    private ExternalResourceRegistry externalResources = null;
+    private InternetArchiveClient internetArchive = null;
     
 	public BhlHarvester(Configuration configuration)
     		throws UnsetHarvesterBaseDirectoryException {
@@ -85,6 +114,14 @@ public class BhlHarvester extends Harvester {
     	apiKey = configuration.getHarvesterApiKey();
     	logger.info("Got API key: {}", apiKey);
     	
+    	setMetadataBatchSize(jsonConfiguration.optInt(ConfigurationKeys.METADATA_BATCH_SIZE, METADATA_BATCH_SIZE_DEFAULT));
+    	responseCache = createResponseCache(jsonConfiguration);
+    	internetArchive = new InternetArchiveClient(responseCache);
+    	// The fields needed to create an item are always kept
+    	metadataProjection = MetadataProjection.fromConfiguration(
+    			jsonConfiguration.optJSONObject(ConfigurationKeys.METADATA_PROJECTION),
+    			Arrays.asList(EXTERNAL_URL, ITEM_ID, ITEM_PDF_URL, ITEM_TXT_URL, ITEM_URL, SOURCE, SOURCE_IDENTIFIER));
+    	
     	if (jsonConfiguration.has(ConfigurationKeys.ITEMS)) {
     		logger.info("Loading items...");
     		
@@ -94,19 +131,29 @@ public class BhlHarvester extends Harvester {
     	if (jsonConfiguration.has(ConfigurationKeys.TITLES)) {
     		logger.info("Loading titles...");
     		
-    		List<Object> titles = getListFromJsonKey(ConfigurationKeys.TITLES, jsonConfiguration);
-    		List<Object> itemsExtractedFromTitle = new ArrayList<>();
-    		for (Object titleObj : titles) {
-    			long titleID = Long.parseLong(titleObj.toString());
-    			try {
-					itemsExtractedFromTitle.addAll(getItemsFromTitle(titleID));
-				} catch (ItemDoesNotExistException ex) {
-					logger.error("The given Title ID {} could not be found!", titleID);
-				} catch (AuthenticationException ex) {
-					logger.fatal(ex.getLocalizedMessage());
-				}
-    		}
-    		listOfItemsToDownload.addAll(itemsExtractedFromTitle);
+    		// The titles are resolved to their items not before the harvesting starts
+    		listOfTitlesToDownload = getListFromJsonKey(ConfigurationKeys.TITLES, jsonConfiguration);
+    	}
+    	
+    	if (jsonConfiguration.has(ConfigurationKeys.COLLECTIONS)) {
+    		logger.info("Loading collections...");
+    		
+    		// The collections are resolved to their items not before the harvesting starts, too
+    		listOfCollectionsToDownload = getCollectionsFromConfiguration(
+    				jsonConfiguration.getJSONArray(ConfigurationKeys.COLLECTIONS));
+    	}
+    	
+    	prefetchedTitles = jsonConfiguration.optInt(ConfigurationKeys.PREFETCHED_TITLES,
+    			TitleItemIterator.PREFETCHED_TITLES_DEFAULT);
+    	parallelCollectionPages = jsonConfiguration.optInt(ConfigurationKeys.PARALLEL_COLLECTION_PAGES,
+    			ParallelPageReader.PARALLEL_PAGES_DEFAULT);
+    	externalResourceWorkers = jsonConfiguration.optInt(ConfigurationKeys.EXTERNAL_RESOURCE_WORKERS,
+    			ExternalResourceRegistry.WORKERS_DEFAULT);
+    	
+    	if (jsonConfiguration.has(ConfigurationKeys.BULK_DATA)) {
+    		// The item metadata is read from a local export instead of the API
+    		bulkDataDirectory = Paths.get(jsonConfiguration.getString(ConfigurationKeys.BULK_DATA));
+    		logger.info("Reading the items from the BHL bulk data in {}", bulkDataDirectory);
     	}
     }
 
@@ -125,10 +172,18 @@ public class BhlHarvester extends Harvester {
         params.put(FORMAT, JSON_FORMAT);
         params.put(OPERATION, GET_COLLECTIONS);
 
-        JSONObject rObject = getFromBhlApi(params);
+        BhlApiResponse<JSONArray> apiResponse;
+        try {
+        	apiResponse = getFromBhlApiCached(params, parser -> JsonStreamReader.readArray(parser,
+        			JsonStreamReader.only(Arrays.asList(COLLECTION_ID, COLLECTION_NAME, COLLECTION_DESCRIPTION))),
+        			collections -> collections);
+        } catch (IOException ex) {
+        	logger.error("Could not retrieve the BHL collections! Reason: {}", ex.getMessage());
+        	return collectionMap;
+        }
 
-        if(rObject.has(REQUEST_STATUS) && rObject.getString(REQUEST_STATUS).equalsIgnoreCase(REQUEST_OK)) {
-            JSONArray collectionsJSON = rObject.getJSONArray(REQUEST_RESULT);
+        if (apiResponse.isOk() && apiResponse.getResult() != null) {
+            JSONArray collectionsJSON = apiResponse.getResult();
             for (int i = 0; i < collectionsJSON.length(); i++) {
                 JSONObject jsonCollection = collectionsJSON.getJSONObject(i);
                 collectionMap.put(jsonCollection.getLong(COLLECTION_ID),
@@ -143,19 +198,21 @@ public class BhlHarvester extends Harvester {
 
     /***
      * Retrieve the metadata of a single item.
-     * The result will contain the page and parts metadata, but no OCR.
+     * The result will contain the page, parts and OCR metadata and the fields as given by the metadata projection.
      * @param itemID The item id as given by BHL (https://www.biodiversitylibrary.org/item/<itemID>).
      * @return A JSONObject with the received data.
      * @throws AuthenticationException
      * @throws ItemDoesNotExistException
+     * @throws IOException If the request failed.
      */
     public JSONObject getItemMetadata(long itemID) 
-    		throws AuthenticationException, ItemDoesNotExistException {
-    	return getItemMetadata(itemID, true, false, true);
+    		throws AuthenticationException, IOException {
+    	return getItemMetadata(itemID, metadataProjection.wantsPages(), metadataProjection.wantsOcr(),
+    			metadataProjection.wantsParts());
     }
     
     /***
-     * Retrieve the metadata of a single item.
+     * Retrieve the metadata of a single item. Only the fields of the metadata projection are kept.
      * @param itemID The item id as given by BHL (https://www.biodiversitylibrary.org/item/<itemID>).
      * @param wantsPages If the page metadata shall be returned.
      * @param wantsOcr If the OCR should be returned.
@@ -163,83 +220,142 @@ public class BhlHarvester extends Harvester {
      * @return A JSONObject with the received data.
      * @throws AuthenticationException
      * @throws ItemDoesNotExistException
+     * @throws IOException If the request failed.
      */
     public JSONObject getItemMetadata(long itemID, boolean wantsPages, boolean wantsOcr, boolean wantsParts) 
-    		throws AuthenticationException, ItemDoesNotExistException {
+    		throws AuthenticationException, IOException {
     	logger.debug("Calling for metadata for Item ID {}", itemID);
     	
-    	Map<String, Object> params = new HashMap<>();
-    	params.put(API_KEY, apiKey);
-    	params.put(FORMAT, JSON_FORMAT);
-    	params.put(OPERATION, GET_ITEM_METADATA);
-    	params.put(PAGES, wantsPages);
-    	params.put(OCR, wantsOcr);
-    	params.put(PARTS, wantsParts);
-    	params.put(ID, itemID);
+    	Map<String, Object> params = createItemMetadataParameters(itemID, wantsPages, wantsOcr, wantsParts);
     	
-    	JSONObject itemJson;
+    	List<JSONObject> items;
     	try {
-    		JSONObject apiResponse = getFromBhlApi(params);
-    		itemJson = getApiResultObject(apiResponse);	
-    	} catch (ItemDoesNotExistException ex) {
-    		throw new ItemDoesNotExistException("The item with the ID " + itemID + "could not be found!");
-    	} catch (WebbException ex) {
-    		handleWebbException(ex);
+    		BhlApiResponse<List<JSONObject>> apiResponse = getFromBhlApiCached(params, this::readItems, JSONArray::new);
+    		checkAuthorization(apiResponse);
+    		items = apiResponse.getResult();
+    	} catch (HttpStatusException ex) {
+    		handleHttpStatusException(ex);
     		return null;
     	}
     	
-    	return itemJson;
+    	if (items == null || items.isEmpty()) {
+    		throw new ItemDoesNotExistException("The item with the ID " + itemID + " could not be found!");
+    	}
+    	return items.get(0);
     }
     
     /***
+     * Retrieve the metadata of several items with a single request.
+     * The result will contain the page, parts and OCR metadata and the fields as given by the metadata projection.
+     * @param itemIDs The item IDs as given by BHL.
+     * @return The received metadata by item ID. Items that do not exist are missing.
+     * @throws AuthenticationException
+     * @throws IOException If the request failed.
+     */
+    public Map<Long, JSONObject> getItemMetadata(List<Long> itemIDs)
+    		throws AuthenticationException, IOException {
+    	return getItemMetadata(itemIDs, metadataProjection.wantsPages(), metadataProjection.wantsOcr(),
+    			metadataProjection.wantsParts());
+    }
+    
+    /***
+     * Retrieve the metadata of several items with a single request. Items, whose metadata is in the response cache,
+     * are not requested. Only the fields of the metadata projection are kept.
+     * This is a call to https://www.biodiversitylibrary.org/api3?op=GetItemMetadata&id=<ID1>|<ID2>|...&apikey=<KEY>
+     * @param itemIDs The item IDs as given by BHL.
+     * @param wantsPages If the page metadata shall be returned.
+     * @param wantsOcr If the OCR should be returned.
+     * @param wantsParts If the document parts (if available) should be returned.
+     * @return The received metadata by item ID. Items that do not exist are missing.
+     * @throws AuthenticationException
+     * @throws IOException If the request failed.
+     */
+    public Map<Long, JSONObject> getItemMetadata(List<Long> itemIDs, boolean wantsPages, boolean wantsOcr,
+    		boolean wantsParts) throws AuthenticationException, IOException {
+    	Map<Long, JSONObject> itemMetadataMap = new HashMap<>();
+    	StringJoiner uncachedItemIdList = new StringJoiner(ITEM_ID_SEPARATOR);
+    	for (long itemID : itemIDs) {
+    		Optional<JSONObject> cachedItemJson = getCachedResponse(
+    				createItemMetadataParameters(itemID, wantsPages, wantsOcr, wantsParts), this::readItems)
+    				.map(BhlApiResponse::getResult)
+    				.filter(items -> !items.isEmpty())
+    				.map(items -> items.get(0));
+    		if (cachedItemJson.isPresent()) {
+    			itemMetadataMap.put(itemID, cachedItemJson.get());
+    		} else {
+    			uncachedItemIdList.add(Long.toString(itemID));
+    		}
+    	}
+    	
+    	if (uncachedItemIdList.length() == 0) {
+    		return itemMetadataMap;
+    	}
+    	
+    	logger.debug("Calling for metadata for Item IDs {}", uncachedItemIdList);
+    	Map<String, Object> params = createItemMetadataParameters(uncachedItemIdList.toString(),
+    			wantsPages, wantsOcr, wantsParts);
+    	
+    	try {
+    		BhlApiResponse<List<JSONObject>> apiResponse = getFromBhlApi(params, this::readItems);
+    		checkAuthorization(apiResponse);
+    		
+    		List<JSONObject> items = apiResponse.getResult() == null ? Collections.emptyList() : apiResponse.getResult();
+    		for (JSONObject itemJson : items) {
+    			long itemID = itemJson.getLong(ITEM_ID);
+    			itemMetadataMap.put(itemID, itemJson);
+    			
+    			// Every item is cached on its own, so it is found again in any other batch
+    			BhlApiResponse<List<JSONObject>> singleItemResponse = new BhlApiResponse<>(apiResponse.getStatus(),
+    					apiResponse.getErrorMessage(), Collections.singletonList(itemJson));
+    			cacheResponse(createItemMetadataParameters(itemID, wantsPages, wantsOcr, wantsParts),
+    					singleItemResponse, JSONArray::new);
+    		}
+    	} catch (HttpStatusException ex) {
+    		handleHttpStatusException(ex);
+    	}
+    	
+    	return itemMetadataMap;
+    }
+    
+    /***
+     * Retrieve all items of a collection. The result pages are requested in parallel.
+     * 
      * This is a call to https://www.biodiversitylibrary.org/api3?op=PublicationSearchAdvanced&language=GERMAN&collection=97&apikey=<KEY>&format=json
-     * @param lCollectionID
-     * @param sLanguage
-     * @return
+     * @param lCollectionID The collection ID as given by BHL (https://www.biodiversitylibrary.org/collection/<ID>).
+     * @param sLanguage The language of the items or null for items of all languages.
+     * @return The titles of all items by item ID, in the order given by BHL.
      * @throws AuthenticationException
+     * @throws IOException If a page could not be retrieved, even after retrying it.
      */
     public Map<Long, String> getItemsForCollection(long lCollectionID, String sLanguage) 
-    		throws AuthenticationException {
+    		throws AuthenticationException, IOException {
 
-        Map<Long, String> rMap = new HashMap<>(0);
+        Map<Long, String> rMap = new LinkedHashMap<>();
         Map<String, Object> params = new HashMap<>(0);
 
         params.put(API_KEY, apiKey);
         params.put(FORMAT, JSON_FORMAT);
-        params.put(OPERATION, "PublicationSearchAdvanced");
-        params.put(LANGUAGE, sLanguage);
+        params.put(OPERATION, PUBLICATION_SEARCH_ADVANCED);
         params.put(COLLECTION, lCollectionID);
+        if (sLanguage != null && !sLanguage.isEmpty()) {
+        	params.put(LANGUAGE, sLanguage);
+        }
 
-        boolean run = true;
-        int currentPage = 1;
-
-        while(run) {
-            params.put(PAGE, currentPage);
-
-            try {
-                JSONObject rObject = getFromBhlApi(params);
-
-                if (rObject.has(REQUEST_STATUS) && 
-                		rObject.getString(REQUEST_STATUS).equalsIgnoreCase(REQUEST_OK)) {
- 
-                    JSONArray rArray = rObject.getJSONArray(REQUEST_RESULT);
-
-                    run = rArray.length() > 0;
-
-                    for (int i = 0; i < rArray.length(); i++) {
-                        JSONObject tObject = rArray.getJSONObject(i);
-                        rMap.put(tObject.getLong(ITEM_ID), tObject.getString("Title"));
-                    }
-                }
-                ++currentPage;
-            }
-            catch (WebbException ex) {
-        		handleWebbException(ex);
+        ParallelPageReader<JSONObject> pageReader = new ParallelPageReader<>(
+        		page -> readPublicationSearchPage(params, page), parallelCollectionPages,
+        		ParallelPageReader.MAXIMUM_PAGE_RETRIES_DEFAULT);
+        try {
+        	for (JSONObject publication : pageReader.readAll()) {
+        		// Parts and titles are listed, too, but only items can be harvested
+        		if (publication.has(ITEM_ID)) {
+        			rMap.put(publication.getLong(ITEM_ID), publication.optString(TITLE));
+        		}
         	}
+        } catch (HttpStatusException ex) {
+        	handleHttpStatusException(ex);
         }
 
         return rMap;
-
     }
     
     /***
@@ -250,9 +366,10 @@ public class BhlHarvester extends Harvester {
      * @return A list of items included in the given title. The list is empty is none were found.
      * @throws AuthenticationException
      * @throws ItemDoesNotExistException
+     * @throws IOException If the request failed.
      */
     public List<Long> getItemsFromTitle(long titleID) 
-    		throws AuthenticationException, ItemDoesNotExistException {
+    		throws AuthenticationException, IOException {
     	Map<String, Object> params = new HashMap<>(0);
     	
     	logger.info("Resolving items of title ID {}", titleID);
@@ -266,22 +383,19 @@ public class BhlHarvester extends Harvester {
         List<Long> itemsOfTitleList = new ArrayList<>();
         
         try {
-            JSONObject apiResponse = getFromBhlApi(params);
+            BhlApiResponse<List<Long>> apiResponse = getFromBhlApiCached(params, BhlHarvester::readItemIdsOfTitles,
+            		BhlHarvester::toTitleResultJson);
+            checkAuthorization(apiResponse);
 
-            if (apiResponse.has(REQUEST_STATUS) && 
-            		apiResponse.getString(REQUEST_STATUS).equalsIgnoreCase(REQUEST_OK)) {
-            	
-            	JSONObject titleJson = getApiResultObject(apiResponse);
-            	JSONArray items = titleJson.getJSONArray(ITEMS);
-            	for (Object item : items.toList()) {
-            		@SuppressWarnings("unchecked")
-					HashMap<String, Integer> itemMap = (HashMap<String, Integer>) item;
-            		itemsOfTitleList.add(itemMap.get(ITEM_ID).longValue());
+            if (apiResponse.isOk()) {
+            	if (apiResponse.getResult() == null) {
+            		throw new ItemDoesNotExistException("The title with the ID " + titleID + " could not be found!");
             	}
+            	itemsOfTitleList.addAll(apiResponse.getResult());
             }
         }
-        catch (WebbException ex) {
-    		handleWebbException(ex);
+        catch (HttpStatusException ex) {
+    		handleHttpStatusException(ex);
     	}
         
         logger.info("Found {} items for this title!", itemsOfTitleList.size());
@@ -290,13 +404,21 @@ public class BhlHarvester extends Harvester {
 
     }
     
-    @SuppressWarnings({ "unchecked", "rawtypes" })
+    /***
+     * Returns all items to harvest, including the items of all titles. Hence, all titles are resolved.
+     * Items from the bulk data are given by their ID.
+     */
 	public List<Object> getListOfItems() {
-    	return new ArrayList(listOfItemsToDownload);
+		List<Object> listOfItems = new ArrayList<>();
+		createItemIterator().forEachRemaining(itemObj -> listOfItems.add(itemObj instanceof JSONObject ?
+				((JSONObject) itemObj).getLong(ITEM_ID) : itemObj));
+    	return listOfItems;
     }
 
 	public void clearListOfItems() {
 		listOfItemsToDownload.clear();
+		listOfTitlesToDownload.clear();
+		listOfCollectionsToDownload.clear();
 	}
 
 	public void addItemId(String itemId) {
@@ -307,59 +429,276 @@ public class BhlHarvester extends Harvester {
     	this.apiKey = apiKey;
     }
     
+    /***
+     * Sets how many items are requested from the BHL API at once. The value is at least 1.
+     */
+    public void setMetadataBatchSize(int metadataBatchSize) {
+    	this.metadataBatchSize = Math.max(1, metadataBatchSize);
+    }
+    
     @Override
     protected String getFolderName() {
     	return BHL_STRING;
     }
     
+    @Override
+    protected int getDiscoveryPosition() {
+    	return itemListPosition;
+    }
+    
     @Override
     protected boolean nextItem(Item item) {
     	if (itemListIterator == null) {
     		logger.info("Starting BHL download...");
-    		itemListIterator = listOfItemsToDownload.iterator();
+    		externalResources = createExternalResourceRegistry();
+    		itemListIterator = createItemIterator();
+    		skipToResumePosition();
     	}
     	
-    	while (itemListIterator.hasNext()) {
-    		Object itemObj = itemListIterator.next();
-    		long itemId = Long.parseLong(itemObj.toString());
+    	while (!metadataBatch.isEmpty() || itemListIterator.hasNext()) {
+    		if (metadataBatch.isEmpty()) {
+    			try {
+    				requestNextMetadataBatch();
+    			} catch (AuthenticationException ex) {
+    				logger.fatal("The given API key is invalid!");
+    				return false;
+    			}
+    			continue;
+    		}
     		
+    		BatchedItem batchedItem = metadataBatch.poll();
+    		itemListPosition = batchedItem.position;
+    		if (batchedItem.metadata == null) {
+    			continue;
+    		}
+    		
+    		long itemId = batchedItem.itemId;
+    		JSONObject itemMetadata = batchedItem.metadata;
     		logger.info("Processing item ID {}", itemId);
+    		logger.debug("Metadata Set: {}", itemMetadata.toString(2));
     		
-    		try {
-				JSONObject itemMetadata = getItemMetadata(itemId);
-				logger.debug("Received metadata!");
-				logger.debug("Metadata Set: {}", itemMetadata.toString(2));
-				
-				if (isReferencingExternalResource(itemMetadata)) {
-					String externalResourceNameString = getExternalResourceNameString(itemMetadata);
-					logger.info("Is external resource from {} .", externalResourceNameString);
-					
-					item.digestItemData(processExternalResource(itemMetadata, externalResourceNameString));
-					
-					// Item ID has to be the BHL ID, not an external!
-					item.setItemId(itemId);
-				} else {
-					addMetadataToItem(item, itemMetadata);
-				}
-				
-				return true;
-				
-			} catch (ItemDoesNotExistException ex) {
-				logger.error("The requested item (ID {}) does not exist!", itemId);
-			} catch (AuthenticationException ex) {
-				logger.fatal("The given API key is invalid!");
-				return false;
-			}
+    		if (batchedItem.externalItem != null) {
+    			Item externalItem = awaitExternalItem(batchedItem);
+    			if (externalItem == null) {
+    				recordFailedItem(itemId, batchedItem.position);
+    				continue;
+    			}
+    			
+    			item.digestItemData(externalItem);
+    			// Item ID has to be the BHL ID, not an external!
+    			item.setItemId(itemId);
+    		} else {
+    			addMetadataToItem(item, itemMetadata);
+    		}
+    		
+    		return true;
     	}
     	
     	logger.info("Processing items complete!");
 		return false;
     }
 
-    public JSONObject getFromBhlApi(Map<String, Object> apiParameters) {
-    	return RESTUtils.getObjectFromRest(BHL_API_URL, GET, apiParameters);
+    @Override
+    protected void releaseResources() {
+    	if (externalResources != null) {
+    		externalResources.close();
+    		externalResources = null;
+    	}
+    }
+
+    /***
+     * Sends a request to the BHL API. If BHL is overloaded, the request is retried after BHL recovered.
+     * The response is read while it is received, so only the compact result is held in memory.
+     * @param apiParameters The parameters of the request.
+     * @param resultReader Reads the result of the response.
+     * @return The API response.
+     * @throws IOException If the request failed.
+     */
+    public <T> BhlApiResponse<T> getFromBhlApi(Map<String, Object> apiParameters, JsonResponseReader<T> resultReader)
+    		throws IOException {
+    	return HttpFetcher.getShared().getJson(BHL_API_URL, apiParameters, BhlApiResponse.reader(resultReader));
 	}
     
+    /***
+     * Sends a request to the BHL API, unless its response is in the response cache. Successful responses are
+     * cached, if their operation is cached.
+     * @param apiParameters The parameters of the request.
+     * @param resultReader Reads the result of the response.
+     * @param resultToJson Converts the result to the JSON that is cached. It has to be readable by the result reader.
+     * @return The API response.
+     * @throws IOException If the request failed.
+     */
+    private <T> BhlApiResponse<T> getFromBhlApiCached(Map<String, Object> apiParameters,
+    		JsonResponseReader<T> resultReader, Function<T, Object> resultToJson) throws IOException {
+    	Optional<BhlApiResponse<T>> cachedResponse = getCachedResponse(apiParameters, resultReader);
+    	if (cachedResponse.isPresent()) {
+    		return cachedResponse.get();
+    	}
+    	
+    	BhlApiResponse<T> apiResponse = getFromBhlApi(apiParameters, resultReader);
+    	cacheResponse(apiParameters, apiResponse, resultToJson);
+    	return apiResponse;
+    }
+    
+    private <T> Optional<BhlApiResponse<T>> getCachedResponse(Map<String, Object> apiParameters,
+    		JsonResponseReader<T> resultReader) {
+    	if (responseCache == null) {
+    		return Optional.empty();
+    	}
+    	
+    	Optional<String> cachedResponse = responseCache.get(apiParameters.get(OPERATION).toString(),
+    			getCacheKeyParameters(apiParameters));
+    	if (!cachedResponse.isPresent()) {
+    		return Optional.empty();
+    	}
+    	
+    	try (JsonParser parser = JsonStreamReader.createParser(cachedResponse.get())) {
+    		return Optional.of(BhlApiResponse.reader(resultReader).read(parser));
+    	} catch (IOException ex) {
+    		logger.warn("Could not read a cached BHL response! Reason: {}", ex.getMessage());
+    		return Optional.empty();
+    	}
+    }
+    
+    private <T> void cacheResponse(Map<String, Object> apiParameters, BhlApiResponse<T> apiResponse,
+    		Function<T, Object> resultToJson) {
+    	String operation = apiParameters.get(OPERATION).toString();
+    	if (responseCache != null && responseCache.isCached(operation) && apiResponse.isOk() &&
+    			apiResponse.getResult() != null) {
+    		responseCache.put(operation, getCacheKeyParameters(apiParameters),
+    				apiResponse.toJson(resultToJson.apply(apiResponse.getResult())));
+    	}
+    }
+    
+    /***
+     * Item metadata is cached as it was projected. Hence, the projection is part of the cache key.
+     */
+    private Map<String, Object> getCacheKeyParameters(Map<String, Object> apiParameters) {
+    	if (!GET_ITEM_METADATA.equals(apiParameters.get(OPERATION))) {
+    		return apiParameters;
+    	}
+    	
+    	Map<String, Object> cacheKeyParameters = new HashMap<>(apiParameters);
+    	cacheKeyParameters.put(PROJECTION, metadataProjection.getKeptFieldsDescription());
+    	return cacheKeyParameters;
+    }
+    
+    /***
+     * Reads the items of a GetItemMetadata result. Only the fields of the metadata projection are read.
+     */
+    private List<JSONObject> readItems(JsonParser parser) throws IOException {
+    	JsonStreamReader.expect(parser, JsonToken.START_ARRAY);
+    	
+    	List<JSONObject> items = new ArrayList<>();
+    	while (parser.nextToken() == JsonToken.START_OBJECT) {
+    		items.add(metadataProjection.read(parser));
+    	}
+    	return items;
+    }
+    
+    /***
+     * Reads the IDs of all items of a GetTitleMetadata result without building the title metadata.
+     * @return The item IDs or null, if the result does not contain any title.
+     */
+    private static List<Long> readItemIdsOfTitles(JsonParser parser) throws IOException {
+    	JsonStreamReader.expect(parser, JsonToken.START_ARRAY);
+    	
+    	List<Long> itemIds = null;
+    	while (parser.nextToken() == JsonToken.START_OBJECT) {
+    		if (itemIds == null) {
+    			itemIds = new ArrayList<>();
+    		}
+    		
+    		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+    			String field = parser.getCurrentName();
+    			parser.nextToken();
+    			if (ITEMS.equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+    				readItemIds(parser, itemIds);
+    			} else {
+    				parser.skipChildren();
+    			}
+    		}
+    	}
+    	return itemIds;
+    }
+    
+    private static void readItemIds(JsonParser parser, List<Long> itemIds) throws IOException {
+    	while (parser.nextToken() == JsonToken.START_OBJECT) {
+    		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+    			String field = parser.getCurrentName();
+    			parser.nextToken();
+    			if (ITEM_ID.equals(field)) {
+    				itemIds.add(parser.getValueAsLong());
+    			} else {
+    				parser.skipChildren();
+    			}
+    		}
+    	}
+    }
+    
+    /***
+     * Converts item IDs to a GetTitleMetadata result, which can be read by {@link #readItemIdsOfTitles(JsonParser)}.
+     */
+    private static Object toTitleResultJson(List<Long> itemIds) {
+    	JSONArray items = new JSONArray();
+    	itemIds.forEach(itemId -> items.put(new JSONObject().put(ITEM_ID, itemId)));
+    	return new JSONArray().put(new JSONObject().put(ITEMS, items));
+    }
+    
+    private void checkAuthorization(BhlApiResponse<?> apiResponse) throws AuthenticationException {
+    	if (apiResponse.isUnauthorized()) {
+    		throw new AuthenticationException("The given API key is not valid! Key: " + apiKey);
+    	}
+    }
+    
+    /***
+     * Creates the response cache from the configuration. The item and title metadata and the file listings of the
+     * Internet Archive are cached by default.
+     * @return The response cache or null, if it is disabled.
+     */
+    private ApiResponseCache createResponseCache(JSONObject jsonConfiguration) {
+    	long cacheSizeInMegabytes = jsonConfiguration.optLong(ConfigurationKeys.RESPONSE_CACHE_SIZE,
+    			RESPONSE_CACHE_SIZE_IN_MEGABYTES_DEFAULT);
+    	if (cacheSizeInMegabytes <= 0) {
+    		logger.info("The BHL response cache is disabled.");
+    		return null;
+    	}
+    	
+    	Map<String, Duration> timeToLivePerOperation = new HashMap<>();
+    	timeToLivePerOperation.put(GET_ITEM_METADATA, Duration.ofDays(RESPONSE_CACHE_TIME_TO_LIVE_IN_DAYS_DEFAULT));
+    	timeToLivePerOperation.put(GET_TITLE_METADATA, Duration.ofDays(RESPONSE_CACHE_TIME_TO_LIVE_IN_DAYS_DEFAULT));
+    	timeToLivePerOperation.put(InternetArchiveClient.CACHE_OPERATION,
+    			Duration.ofDays(RESPONSE_CACHE_TIME_TO_LIVE_IN_DAYS_DEFAULT));
+    	
+    	JSONObject timeToLiveConfiguration = jsonConfiguration.optJSONObject(ConfigurationKeys.RESPONSE_CACHE_TTL);
+    	if (timeToLiveConfiguration != null) {
+    		for (String operation : timeToLiveConfiguration.keySet()) {
+    			long timeToLiveInDays = timeToLiveConfiguration.optLong(operation, 0);
+    			if (timeToLiveInDays > 0) {
+    				timeToLivePerOperation.put(operation, Duration.ofDays(timeToLiveInDays));
+    			} else {
+    				timeToLivePerOperation.remove(operation);
+    			}
+    		}
+    	}
+    	
+    	return new ApiResponseCache(getWorkingDirectory().resolve(RESPONSE_CACHE_DIRECTORY),
+    			cacheSizeInMegabytes * BYTES_PER_MEGABYTE, timeToLivePerOperation, Collections.singleton(API_KEY));
+    }
+    
+    private Map<String, Object> createItemMetadataParameters(Object itemID, boolean wantsPages, boolean wantsOcr,
+    		boolean wantsParts) {
+    	Map<String, Object> params = new HashMap<>();
+    	params.put(API_KEY, apiKey);
+    	params.put(FORMAT, JSON_FORMAT);
+    	params.put(OPERATION, GET_ITEM_METADATA);
+    	params.put(PAGES, wantsPages);
+    	params.put(OCR, wantsOcr);
+    	params.put(PARTS, wantsParts);
+    	params.put(ID, itemID);
+    	return params;
+    }
+    
     private void addMetadataToItem(Item item, JSONObject itemMetadata) {
     	long itemID = itemMetadata.getLong(ITEM_ID);
     	logger.debug("Processing Item ID {}", itemID);
@@ -369,52 +708,340 @@ public class BhlHarvester extends Harvester {
 		item.addTextFileUrl(itemMetadata.getString(ITEM_PDF_URL), Item.FileType.PDF);
 		item.addTextFileUrl(itemMetadata.getString(ITEM_TXT_URL), Item.FileType.TXT);
 
-		String internetArchiveId = itemMetadata.getString(SOURCE_IDENTIFIER);
-		item.addTextFileUrl(getAbbyySourceUrl(internetArchiveId), Item.FileType.ABBYY);
-		item.addTextFileUrl(getHocrSourceUrl(internetArchiveId), Item.FileType.CHOCR);
+		// Items from the bulk data may not be scanned by the Internet Archive
+		String internetArchiveId = itemMetadata.optString(SOURCE_IDENTIFIER);
+		if (!internetArchiveId.isEmpty()) {
+			addInternetArchiveFiles(item, internetArchiveId);
+		}
 
 		item.setDocumentMetadata(itemMetadata);
     }
     
-    private JSONArray getApiResultArray(JSONObject apiResponse) 
-    		throws AuthenticationException, ItemDoesNotExistException {
-    	JSONArray jsonApiResultArray = apiResponse.getJSONArray(REQUEST_RESULT);
+    /***
+     * Adds the OCR files of the given Internet Archive item. Only the files in the file listing of the item are added,
+     * together with their size, checksum and the storage nodes they are on. If the listing is not available, all
+     * files are added unchecked.
+     */
+    private void addInternetArchiveFiles(Item item, String internetArchiveId) {
+    	Optional<InternetArchiveFileListing> fileListing = configuration.isOnlyMetadata() ? Optional.empty() :
+    			internetArchive.getFileListing(internetArchiveId);
+    	// The listing may be cached and outdated. It is requested again, if a download does not match it.
+    	Supplier<Optional<InternetArchiveFileListing>> currentFileListing =
+    			internetArchive.createCurrentFileListingSupplier(internetArchiveId);
+    	addInternetArchiveFile(item, fileListing, currentFileListing, internetArchiveId,
+    			internetArchiveId + ABBYY_OCR_FILE_NAME_SUFFIX, Item.FileType.ABBYY);
+    	addInternetArchiveFile(item, fileListing, currentFileListing, internetArchiveId,
+    			internetArchiveId + HOCR_OCR_FILE_NAME_SUFFIX, Item.FileType.CHOCR);
+    }
+    
+    private void addInternetArchiveFile(Item item, Optional<InternetArchiveFileListing> fileListing,
+    		Supplier<Optional<InternetArchiveFileListing>> currentFileListing, String internetArchiveId,
+    		String fileName, Item.FileType fileType) {
+    	String fileUrl = getInternetArchiveBaseUrl(internetArchiveId) + "/" + fileName;
+    	if (fileListing.isEmpty()) {
+    		item.addTextFileUrl(fileUrl, fileType);
+    		return;
+    	}
     	
-    	if (apiResponse.getString(REQUEST_STATUS).equals(REQUEST_UNAUTHORIZED)) {
-    		throw new AuthenticationException("The given API key is not valid! Key: " + apiKey);
+    	Optional<ExpectedFile> listedFile = fileListing.get().getFile(fileName);
+    	if (listedFile.isPresent()) {
+    		ExpectedFile expectedFile = new ExpectedFile(listedFile.get().getSize(), listedFile.get().getMd5Checksum(),
+    				() -> currentFileListing.get().flatMap(listing -> listing.getFile(fileName)));
+    		// The file is downloaded directly from the storage nodes of the item, without a redirect
+    		item.addTextFileUrl(fileUrl, fileType, expectedFile, fileListing.get().getFileUrls(fileName));
+    	} else {
+    		logger.debug("The Internet Archive does not have the file {}. Skipping it.", fileName);
+    	}
+    }
+    
+    /***
+     * Creates an iterator over all single items followed by the items of all titles, which are resolved while
+     * iterating. If bulk data is given, it iterates over the metadata of the items in the bulk data instead.
+     */
+    private Iterator<Object> createItemIterator() {
+    	if (bulkDataDirectory != null) {
+    		return createBulkDataIterator();
     	}
     	
-    	if (jsonApiResultArray.length() == 0) {
-    		throw new ItemDoesNotExistException("The item could not be found!");
+    	List<Supplier<List<Long>>> itemGroups = new ArrayList<>();
+    	for (Object titleId : listOfTitlesToDownload) {
+    		itemGroups.add(() -> resolveTitle(Long.parseLong(titleId.toString())));
+    	}
+    	for (CollectionSource collection : listOfCollectionsToDownload) {
+    		itemGroups.add(() -> resolveCollection(collection));
     	}
     	
-    	return jsonApiResultArray;
+    	return new TitleItemIterator<>(listOfItemsToDownload, itemGroups, Supplier::get, prefetchedTitles);
     }
     
-    private JSONObject getApiResultObject(JSONObject apiResponse) 
-    		throws AuthenticationException, ItemDoesNotExistException {
-    	JSONArray resultArray = getApiResultArray(apiResponse);
-    	return (JSONObject) resultArray.get(0);
+    /***
+     * Creates an iterator over the metadata of the configured items and the items of the configured titles in the
+     * bulk data. If neither items nor titles are configured, all items of the bulk data are iterated.
+     */
+    private Iterator<Object> createBulkDataIterator() {
+    	if (!listOfCollectionsToDownload.isEmpty()) {
+    		logger.warn("The BHL bulk data does not list collections! The configured collections are ignored.");
+    	}
+    	
+    	List<Long> itemIds = new ArrayList<>();
+    	List<Long> titleIds = new ArrayList<>();
+    	try {
+    		listOfItemsToDownload.forEach(itemId -> itemIds.add(Long.parseLong(itemId.toString())));
+    		listOfTitlesToDownload.forEach(titleId -> titleIds.add(Long.parseLong(titleId.toString())));
+    		return new BhlBulkDataReader(bulkDataDirectory, itemIds, titleIds);
+    	} catch (NumberFormatException ex) {
+    		logger.error("Invalid item or title ID in the configuration! Reason: {}", ex.getMessage());
+    	} catch (IOException ex) {
+    		logger.error("Could not read the BHL bulk data in {}! Reason: {}", bulkDataDirectory, ex.getMessage());
+    	}
+    	
+    	return Collections.emptyIterator();
     }
     
-    private Configuration getDefaultHarvesterConfiguration() {
-    	return new Configuration("", "", new JSONObject());
+    /***
+     * Skips all items that were processed before the run, which is resumed now, was interrupted.
+     * The titles on the way have to be resolved nevertheless, but none of their items is requested.
+     */
+    private void skipToResumePosition() {
+    	int resumePosition = getResumePosition();
+    	while (nextItemListPosition < resumePosition && itemListIterator.hasNext()) {
+    		itemListIterator.next();
+    		++nextItemListPosition;
+    	}
+    	
+    	if (nextItemListPosition > 0) {
+    		logger.info("Resuming BHL download at item {}...", nextItemListPosition);
+    	}
+    }
+    
+    private List<Long> resolveCollection(CollectionSource collection) {
+    	logger.info("Resolving items of collection ID {}", collection.collectionId);
+    	try {
+    		List<Long> itemsOfCollection = new ArrayList<>(
+    				getItemsForCollection(collection.collectionId, collection.language).keySet());
+    		logger.info("Found {} items for collection ID {}!", itemsOfCollection.size(), collection.collectionId);
+    		return itemsOfCollection;
+    	} catch (AuthenticationException ex) {
+    		logger.fatal(ex.getLocalizedMessage());
+    	} catch (IOException ex) {
+    		logger.error("Could not resolve the items of collection ID {}! Reason: {}", collection.collectionId,
+    				ex.getMessage());
+    	}
+    	
+    	return Collections.emptyList();
     }
     
-    private String getExternalResourceNameString(JSONObject itemMetadata) {
-    	return itemMetadata.getString(SOURCE);
+    /***
+     * Reads a single result page of a publication search. Only the item ID and the title of every entry are kept.
+     */
+    private List<JSONObject> readPublicationSearchPage(Map<String, Object> searchParameters, int page)
+    		throws IOException {
+    	Map<String, Object> params = new HashMap<>(searchParameters);
+    	params.put(PAGE, page);
+    	
+    	BhlApiResponse<JSONArray> apiResponse = getFromBhlApi(params, parser -> JsonStreamReader.readArray(
+    			parser, JsonStreamReader.only(Arrays.asList(ITEM_ID, TITLE))));
+    	if (apiResponse.isUnauthorized()) {
+    		throw new HttpStatusException(HttpStatusException.UNAUTHORIZED, URI.create(BHL_API_URL));
+    	} else if (!apiResponse.isOk()) {
+    		throw new IOException("BHL answered page " + page + " with the status " + apiResponse.getStatus() +
+    				"! " + apiResponse.getErrorMessage());
+    	}
+    	
+    	List<JSONObject> publications = new ArrayList<>();
+    	JSONArray result = apiResponse.getResult();
+    	for (int i = 0; result != null && i < result.length(); ++i) {
+    		publications.add(result.getJSONObject(i));
+    	}
+    	return publications;
     }
     
-    private String getAbbyySourceUrl(String internetArchiveId) {
-    	return  getInternetArchiveBaseUrl(internetArchiveId) + "/" +
-    			internetArchiveId + ABBYY_OCR_FILE_NAME_SUFFIX;
+    /***
+     * Reads the configured collections. A collection is given by its ID or by an object with its ID and an
+     * optional language.
+     */
+    private List<CollectionSource> getCollectionsFromConfiguration(JSONArray collectionsConfiguration) {
+    	List<CollectionSource> collections = new ArrayList<>();
+    	for (int i = 0; i < collectionsConfiguration.length(); ++i) {
+    		JSONObject collectionConfiguration = collectionsConfiguration.optJSONObject(i);
+    		try {
+    			if (collectionConfiguration == null) {
+    				collections.add(new CollectionSource(
+    						Long.parseLong(collectionsConfiguration.get(i).toString()), null));
+    			} else {
+    				collections.add(new CollectionSource(collectionConfiguration.getLong(ConfigurationKeys.ID),
+    						collectionConfiguration.optString(ConfigurationKeys.LANGUAGE, null)));
+    			}
+    		} catch (NumberFormatException | JSONException ex) {
+    			logger.error("Invalid collection configuration {}! Skipping it.", collectionsConfiguration.get(i));
+    		}
+    	}
+    	return collections;
     }
-
-	private String getHocrSourceUrl(String internetArchiveId) {
-		return getInternetArchiveBaseUrl(internetArchiveId) + "/" +
-				internetArchiveId + HOCR_OCR_FILE_NAME_SUFFIX;
-	}
-
+    
+    private List<Long> resolveTitle(long titleID) {
+    	try {
+    		return getItemsFromTitle(titleID);
+    	} catch (ItemDoesNotExistException ex) {
+    		logger.error("The given Title ID {} could not be found!", titleID);
+    	} catch (AuthenticationException ex) {
+    		logger.fatal(ex.getLocalizedMessage());
+    	} catch (IOException ex) {
+    		logger.error("Could not resolve the items of title ID {}! Reason: {}", titleID, ex.getMessage());
+    	}
+    	
+    	return Collections.emptyList();
+    }
+    
+    /***
+     * Takes the next items from the item list and requests their metadata with a single API call.
+     * Items that were harvested before are skipped. Items without metadata are queued nevertheless, so the
+     * position in the item list stays consistent. Items from the bulk data come with their metadata and are not
+     * requested.
+     */
+    private void requestNextMetadataBatch() throws AuthenticationException {
+    	List<BatchedItem> batch = new ArrayList<>();
+    	List<Long> itemIds = new ArrayList<>();
+    	while (itemListIterator.hasNext() && batch.size() < metadataBatchSize) {
+    		Object itemObj = itemListIterator.next();
+    		int position = nextItemListPosition++;
+    		JSONObject bulkItemMetadata = itemObj instanceof JSONObject ? (JSONObject) itemObj : null;
+    		long itemId = bulkItemMetadata != null ? bulkItemMetadata.getLong(ITEM_ID) : Long.parseLong(itemObj.toString());
+    		
+    		if (isItemAlreadyHarvested(itemId)) {
+    			logger.info("Item ID {} was harvested completely before. Skipping it.", itemId);
+    			recordSkippedItem(itemId, position);
+    			continue;
+    		}
+    		
+    		BatchedItem batchedItem = new BatchedItem(itemId, position);
+    		batch.add(batchedItem);
+    		if (bulkItemMetadata != null) {
+    			batchedItem.metadata = bulkItemMetadata;
+    		} else {
+    			itemIds.add(itemId);
+    		}
+    	}
+    	
+    	if (itemIds.isEmpty()) {
+    		batch.forEach(this::queueBatchedItem);
+    		return;
+    	}
+    	
+    	logger.info("Requesting the metadata of {} items", itemIds.size());
+    	Map<Long, JSONObject> itemMetadataMap;
+    	Set<Long> failedItemIds = new HashSet<>();
+    	try {
+    		itemMetadataMap = getItemMetadata(itemIds);
+    		logger.debug("Received metadata!");
+    	} catch (IOException ex) {
+    		logger.warn("Could not retrieve the metadata of item IDs {}! Requesting them one by one. Reason: {}",
+    				itemIds, ex.getMessage());
+    		itemMetadataMap = requestItemMetadataOneByOne(itemIds, failedItemIds);
+    	}
+    	
+    	for (BatchedItem batchedItem : batch) {
+    		if (batchedItem.metadata == null) {
+    			batchedItem.metadata = itemMetadataMap.get(batchedItem.itemId);
+    		}
+    		if (batchedItem.metadata == null) {
+    			if (failedItemIds.contains(batchedItem.itemId)) {
+    				recordFailedItem(batchedItem.itemId, batchedItem.position);
+    			} else {
+    				logger.error("The requested item (ID {}) does not exist!", batchedItem.itemId);
+    				recordSkippedItem(batchedItem.itemId, batchedItem.position);
+    			}
+    		}
+    		queueBatchedItem(batchedItem);
+    	}
+    }
+    
+    /***
+     * Requests the metadata of every given item on its own, so a single failing item does not fail all others.
+     * @param failedItemIds Receives the IDs of all items, whose request failed.
+     * @return The received metadata by item ID. Items that do not exist or failed are missing.
+     */
+    private Map<Long, JSONObject> requestItemMetadataOneByOne(List<Long> itemIds, Set<Long> failedItemIds)
+    		throws AuthenticationException {
+    	Map<Long, JSONObject> itemMetadataMap = new HashMap<>();
+    	for (long itemId : itemIds) {
+    		try {
+    			itemMetadataMap.putAll(getItemMetadata(List.of(itemId)));
+    		} catch (IOException ex) {
+    			logger.error("Could not retrieve the metadata of item ID {}! Reason: {}", itemId, ex.getMessage());
+    			failedItemIds.add(itemId);
+    		}
+    	}
+    	return itemMetadataMap;
+    }
+    
+    /***
+     * Queues the given item for processing. If it references an external resource, the resource is resolved in the
+     * background while the items before it are processed. Likewise, the file listing of its Internet Archive item
+     * is retrieved in the background.
+     */
+    private void queueBatchedItem(BatchedItem batchedItem) {
+    	JSONObject itemMetadata = batchedItem.metadata;
+    	Optional<ExternalResourceResolver> resolver = itemMetadata == null ? Optional.empty() :
+    			externalResources.findResolver(itemMetadata.optString(SOURCE));
+    	if (resolver.isPresent()) {
+    		logger.info("Item ID {} is an external resource from {}.", batchedItem.itemId, itemMetadata.optString(SOURCE));
+    		try {
+    			URL externalUrl = new URL(itemMetadata.getString(EXTERNAL_URL));
+    			batchedItem.externalItem = externalResources.resolve(resolver.get(), externalUrl);
+    		} catch (MalformedURLException | JSONException ex) {
+    			logger.warn("Could not create URL for the external resource of item ID {}! Skipping it.",
+    					batchedItem.itemId);
+    			batchedItem.metadata = null;
+    			recordFailedItem(batchedItem.itemId, batchedItem.position);
+    		}
+    	} else if (itemMetadata != null && !itemMetadata.optString(SOURCE_IDENTIFIER).isEmpty() &&
+    			!configuration.isOnlyMetadata()) {
+    		// The file listing is ready, when the item is processed
+    		internetArchive.prefetchFileListing(itemMetadata.getString(SOURCE_IDENTIFIER));
+    	}
+    	
+    	metadataBatch.add(batchedItem);
+    }
+    
+    private Item awaitExternalItem(BatchedItem batchedItem) {
+    	try {
+    		Item externalItem = batchedItem.externalItem.get();
+    		if (externalItem == null) {
+    			logger.warn("Could not create a valid item from the external resource of item ID {}!",
+    					batchedItem.itemId);
+    		}
+    		return externalItem;
+    	} catch (ExecutionException ex) {
+    		logger.warn("Could not resolve the external resource of item ID {}! Reason: {}", batchedItem.itemId,
+    				ex.getCause().getMessage());
+    	} catch (InterruptedException ex) {
+    		logger.error("Interrupted while resolving the external resource of item ID {}!", batchedItem.itemId);
+    		Thread.currentThread().interrupt();
+    	}
+    	
+    	return null;
+    }
+    
+    /***
+     * Creates the registry of all resolvers of external resources, which are referenced by BHL items.
+     * The resolvers are used for all items of the run.
+     */
+    private ExternalResourceRegistry createExternalResourceRegistry() {
+    	ExternalResourceRegistry registry = new ExternalResourceRegistry(externalResourceWorkers);
+    	try {
+    		registry.register(new BibDigitalHarvester(getDefaultHarvesterConfiguration()));
+    		// register further resolvers here
+    	} catch (UnsetHarvesterBaseDirectoryException ex) {
+    		// does not happen, because this harvester was created
+    	}
+    	return registry;
+    }
+    
+    private Configuration getDefaultHarvesterConfiguration() {
+    	return new Configuration("", "", new JSONObject());
+    }
+    
 	private String getInternetArchiveBaseUrl(String internetArchiveId) {
 		return INTERNET_ARCHIVE_DOWNLOAD_BASE_URL_STRING + internetArchiveId;
 	}
@@ -447,53 +1074,42 @@ public class BhlHarvester extends Harvester {
     	return (List) FileHandler.readListFromFile(filePath);
     }
     
-    private void handleWebbException(WebbException ex) throws AuthenticationException {
-    	if (ex.getMessage().contains("401 Unauthorized")) {
+    private void handleHttpStatusException(HttpStatusException ex) throws AuthenticationException, IOException {
+    	if (ex.getStatusCode() == HttpStatusException.UNAUTHORIZED) {
 			throw new AuthenticationException("The given API key is not valid! Key: " + apiKey);
 		} else {
 			throw ex;
 		}
     }
     
-    private boolean isReferencingExternalResource(JSONObject itemMetadata) {
-    	String itemSource = getExternalResourceNameString(itemMetadata);
-    	if (itemSource.contains(BibDigitalHarvester.BIBDIGITAL_BOTANICAL_GARDEN_MADRID_STRING)) {
-    		return true;
-    	}
-    	// add further harvesters here with else if
+    /***
+     * A collection to harvest with an optional language of its items.
+     */
+    private static class CollectionSource {
+    	private final long collectionId;
+    	private final String language;
     	
-    	return false;
+    	CollectionSource(long collectionId, String language) {
+    		this.collectionId = collectionId;
+    		this.language = language;
+    	}
     }
     
-    private Item processExternalResource(JSONObject itemMetadata, String externalResourceName) {  
-    	Configuration configuration = getDefaultHarvesterConfiguration();
-    	try {
-	    	if (externalResourceName.contains(BibDigitalHarvester.BIBDIGITAL_BOTANICAL_GARDEN_MADRID_STRING)) {
-    			logger.debug("Creating harvester for BibDigital Madrid...");
-				BibDigitalHarvester harvester = new BibDigitalHarvester(configuration);
-				URL itemUrl = new URL(itemMetadata.getString(EXTERNAL_URL));
-				
-				logger.debug("Adding URL {} to harvest...", itemUrl);
-				harvester.addItemToCollect(itemUrl);
-				
-				Item externalItem = new Item();
-				if (harvester.nextItem(externalItem)) {
-					logger.debug("Created valid item!");
-					return externalItem;
-				} else {
-					logger.debug("Could not create valid item!");
-					return null;
-				}
-	    	}
-    	} catch (UnsetHarvesterBaseDirectoryException ex) {
-			// does not happen
-		} catch (MalformedURLException|JSONException ex) {
-			logger.warn("Could not create URL for external resource!");
-		}	
+    /***
+     * An item of the item list together with its position in the list and its metadata, if any was received.
+     */
+    private static class BatchedItem {
+    	private final long itemId;
+    	private final int position;
+    	private JSONObject metadata = null;
+    	private Future<Item> externalItem = null;
     	
-    	return null;
+    	BatchedItem(long itemId, int position) {
+    		this.itemId = itemId;
+    		this.position = position;
+    	}
     }
- 
+    
     class ItemDoesNotExistException extends IOException {
     	
 		private static final long serialVersionUID = 5468828339593866141L;
@@ -8,7 +8,7 @@ import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import org.jsoup.Jsoup;
+import de.biofid.services.crawler.http.HttpFetcher;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -25,7 +25,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
  * Its Metadata objects have a slightly different JSON serialization behaviour, because they
  * skip some properties that would otherwise be serialized to JSON.
  */
-public class BibDigitalHarvester extends Harvester {
+public class BibDigitalHarvester extends Harvester implements ExternalResourceResolver {
 	public static final String BIB_DIGITAL_HARVESTER = "bib-digital-madrid";
 	public static final String BIBDIGITAL_BOTANICAL_GARDEN_MADRID_STRING = "Bibdigital Real Jardin Botanico";
 	
@@ -62,13 +62,34 @@ public class BibDigitalHarvester extends Harvester {
 	}
 	
 	public void addItemToCollect(URL itemUrl) {
-		String urlString = itemUrl.toString();
-		int slashIndex = urlString.lastIndexOf("/") + 1;
-		listOfItemsToDownload.add(urlString.substring(slashIndex));
+		listOfItemsToDownload.add(getItemIdString(itemUrl));
 	}
 	
 	public Document getDocumentFromUrl(String url) throws IOException {
-		return Jsoup.connect(url).get();
+		return HttpFetcher.getShared().getDocument(url);
+	}
+
+	@Override
+	public boolean isResolving(String sourceName) {
+		return sourceName.contains(BIBDIGITAL_BOTANICAL_GARDEN_MADRID_STRING);
+	}
+
+	/***
+	 * Creates the item referenced by the given URL without adding it to the items to collect.
+	 * This is thread-safe.
+	 */
+	@Override
+	public Item resolve(URL itemUrl) throws IOException {
+		long itemId;
+		try {
+			itemId = Long.parseLong(getItemIdString(itemUrl));
+		} catch (NumberFormatException ex) {
+			throw new IOException("The URL " + itemUrl + " does not reference a BibDigital item!");
+		}
+
+		Item item = new Item();
+		addMetadataToItem(item, getItemMetadata(itemId));
+		return item;
 	}
 
 	@Override
@@ -125,6 +146,12 @@ public class BibDigitalHarvester extends Harvester {
 		}
     }
 	
+	private String getItemIdString(URL itemUrl) {
+		String urlString = itemUrl.toString();
+		int slashIndex = urlString.lastIndexOf("/") + 1;
+		return urlString.substring(slashIndex);
+	}
+	
 	private String constructItemUrlString(long itemId) {
 		return ITEM_URL_TEMPLATE + itemId + ITEM_URL_SUFFIX_STRING;
 	}
@@ -14,9 +14,14 @@ import java.util.List;
  */
 public class Configuration {
 
+	// The discovery thread and a single worker per pipeline stage
+	public static final int MINIMUM_PIPELINE_THREADS = 4;
+
 	private static final boolean OVERWRITE_FILES_DEFAULT = true;
 	private static final boolean ONLY_METADATA_DEFAULT = false;
 	private static final int REQUEST_DELAY_DEFAULT = 0;
+	private static final int WORKERS_DEFAULT = HarvestingPipeline.WORKERS_DEFAULT;
+	private static final int PIPELINE_QUEUE_SIZE_DEFAULT = HarvestingPipeline.QUEUE_CAPACITY_DEFAULT;
 
 	private String apiKey = null;
 	private long delayBetweenRequestsInMilliseconds = 0;
@@ -24,6 +29,10 @@ public class Configuration {
 	private String harvesterName;
 	private boolean isOverwrittingEnabled = OVERWRITE_FILES_DEFAULT;
 	private boolean onlyMetadata = ONLY_METADATA_DEFAULT;
+	private int filterWorkers = WORKERS_DEFAULT;
+	private int downloadWorkers = WORKERS_DEFAULT;
+	private int metadataWorkers = WORKERS_DEFAULT;
+	private int pipelineQueueSize = PIPELINE_QUEUE_SIZE_DEFAULT;
 	private List<FilterConfiguration> filterConfigurations;
 	private JSONObject jsonConfiguration;
 	
@@ -35,6 +44,10 @@ public class Configuration {
 		this.isOverwrittingEnabled = conf.isOverwrittingEnabled();
 		this.delayBetweenRequestsInMilliseconds = conf.getRequestDelay();
 		this.onlyMetadata = conf.onlyMetadata;
+		this.filterWorkers = conf.filterWorkers;
+		this.downloadWorkers = conf.downloadWorkers;
+		this.metadataWorkers = conf.metadataWorkers;
+		this.pipelineQueueSize = conf.pipelineQueueSize;
 		this.filterConfigurations = conf.filterConfigurations;
 	}
 	
@@ -74,6 +87,22 @@ public class Configuration {
 		return onlyMetadata;
 	}
 
+	public int getFilterWorkers() {
+		return filterWorkers;
+	}
+
+	public int getDownloadWorkers() {
+		return downloadWorkers;
+	}
+
+	public int getMetadataWorkers() {
+		return metadataWorkers;
+	}
+
+	public int getPipelineQueueSize() {
+		return pipelineQueueSize;
+	}
+
 	public List<FilterConfiguration> getFilterConfiguration() {
 		return filterConfigurations;
 	}
@@ -94,6 +123,45 @@ public class Configuration {
 		this.onlyMetadata = onlyMetadata;
 	}
 
+	public void setFilterWorkers(int filterWorkers) {
+		this.filterWorkers = filterWorkers;
+	}
+
+	public void setDownloadWorkers(int downloadWorkers) {
+		this.downloadWorkers = downloadWorkers;
+	}
+
+	public void setMetadataWorkers(int metadataWorkers) {
+		this.metadataWorkers = metadataWorkers;
+	}
+
+	public void setPipelineQueueSize(int pipelineQueueSize) {
+		this.pipelineQueueSize = pipelineQueueSize;
+	}
+
+	/***
+	 * Reduces the number of pipeline workers, so the pipeline of the harvester does not use more than the given
+	 * number of threads. The discovery of the harvester needs a thread of its own. The download workers are reduced
+	 * first, since there are usually the most of them. Every pipeline stage keeps at least a single worker, so
+	 * a limit below {@link #MINIMUM_PIPELINE_THREADS} is raised to it.
+	 * @param threadLimit The maximum number of threads the pipeline of the harvester may use.
+	 */
+	public void limitPipelineThreads(int threadLimit) {
+		int availableWorkers = Math.max(MINIMUM_PIPELINE_THREADS, threadLimit) - 1;
+
+		while (filterWorkers + downloadWorkers + metadataWorkers > availableWorkers) {
+			if (downloadWorkers > 1) {
+				--downloadWorkers;
+			} else if (filterWorkers > 1) {
+				--filterWorkers;
+			} else if (metadataWorkers > 1) {
+				--metadataWorkers;
+			} else {
+				break;
+			}
+		}
+	}
+
 	public void setFilterConfigurations(List<FilterConfiguration> filterConfigurations) {
 		this.filterConfigurations = filterConfigurations;
 	}
@@ -103,6 +171,10 @@ public class Configuration {
 		setOnlyMetadata(jsonConfiguration.optBoolean(ConfigurationKeys.METADATA_ONLY, ONLY_METADATA_DEFAULT));
 		setOverwritting(jsonConfiguration.optBoolean(ConfigurationKeys.OVERWRITE_FILES, OVERWRITE_FILES_DEFAULT));
 		setRequestDelay(jsonConfiguration.optInt(ConfigurationKeys.REQUEST_DELAY, REQUEST_DELAY_DEFAULT));
+		setFilterWorkers(jsonConfiguration.optInt(ConfigurationKeys.FILTER_WORKERS, WORKERS_DEFAULT));
+		setDownloadWorkers(jsonConfiguration.optInt(ConfigurationKeys.DOWNLOAD_WORKERS, WORKERS_DEFAULT));
+		setMetadataWorkers(jsonConfiguration.optInt(ConfigurationKeys.METADATA_WORKERS, WORKERS_DEFAULT));
+		setPipelineQueueSize(jsonConfiguration.optInt(ConfigurationKeys.PIPELINE_QUEUE_SIZE, PIPELINE_QUEUE_SIZE_DEFAULT));
 	}
 
 	@Override
@@ -114,6 +186,10 @@ public class Configuration {
 				", harvesterName='" + harvesterName + '\'' +
 				", isOverwrittingEnabled=" + isOverwrittingEnabled +
 				", onlyMetadata=" + onlyMetadata +
+				", filterWorkers=" + filterWorkers +
+				", downloadWorkers=" + downloadWorkers +
+				", metadataWorkers=" + metadataWorkers +
+				", pipelineQueueSize=" + pipelineQueueSize +
 				", jsonConfiguration=" + jsonConfiguration +
 				", filters=" + filterConfigurations +
 				'}';
@@ -0,0 +1,45 @@
+package de.biofid.services.crawler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Creates the thread pools for the background work of the harvesters (e.g. prefetching or parallel downloads).
+ *
+ * The threads are daemons, so a pool that is not shut down never keeps the application alive. Idle threads stop
+ * after a while, so an unused pool does not hold any threads. The threads are named after the pool and numbered
+ * across all pools with the same name.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class DaemonThreadPool {
+
+	public static final long IDLE_THREAD_TIMEOUT_IN_SECONDS = 30;
+
+	private static final Map<String, AtomicInteger> threadCounters = new ConcurrentHashMap<>();
+
+	private DaemonThreadPool() {}
+
+	/***
+	 * Creates a pool with a fixed number of threads. Tasks that are submitted while all threads are busy are queued.
+	 * @param name The name of the threads, which is followed by their number.
+	 * @param numberOfThreads The maximum number of threads that run at the same time.
+	 */
+	public static ThreadPoolExecutor create(String name, int numberOfThreads) {
+		AtomicInteger threadCounter = threadCounters.computeIfAbsent(name, n -> new AtomicInteger(1));
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads,
+				IDLE_THREAD_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+}
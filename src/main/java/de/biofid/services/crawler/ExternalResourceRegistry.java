@@ -0,0 +1,73 @@
+package de.biofid.services.crawler;
+
+import java.io.Closeable;
+import java.net.URL;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/***
+ * All resolvers of external resources of a harvester.
+ *
+ * The resolvers live as long as the registry, so their state (e.g. connections and caches) is reused for all
+ * external items. The external items are resolved in the background by a few worker threads, so the referencing
+ * harvester can continue with its own items in the meantime.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class ExternalResourceRegistry implements Closeable {
+
+	public static final int WORKERS_DEFAULT = 2;
+
+
+	private final List<ExternalResourceResolver> resolvers = new CopyOnWriteArrayList<>();
+	private final ThreadPoolExecutor executor;
+
+	/***
+	 * @param workers The maximum number of external items that are resolved at the same time.
+	 */
+	public ExternalResourceRegistry(int workers) {
+		int numberOfWorkers = Math.max(1, workers);
+		this.executor = DaemonThreadPool.create("external-resource-resolver", numberOfWorkers);
+	}
+
+	/***
+	 * Adds a resolver. If several resolvers resolve the same source, the first one registered is used.
+	 */
+	public void register(ExternalResourceResolver resolver) {
+		resolvers.add(resolver);
+	}
+
+	/***
+	 * Returns the resolver of the given source, if there is any.
+	 */
+	public Optional<ExternalResourceResolver> findResolver(String sourceName) {
+		if (sourceName == null || sourceName.isEmpty()) {
+			return Optional.empty();
+		}
+
+		return resolvers.stream()
+				.filter(resolver -> resolver.isResolving(sourceName))
+				.findFirst();
+	}
+
+	/***
+	 * Starts resolving the given external item in the background.
+	 * @return The item, when it is resolved. The future fails, if the item could not be retrieved.
+	 */
+	public Future<Item> resolve(ExternalResourceResolver resolver, URL externalUrl) {
+		return executor.submit(() -> resolver.resolve(externalUrl));
+	}
+
+	/***
+	 * Stops all resolutions that are still running.
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
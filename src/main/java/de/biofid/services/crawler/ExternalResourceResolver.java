@@ -0,0 +1,32 @@
+package de.biofid.services.crawler;
+
+import java.io.IOException;
+import java.net.URL;
+
+/***
+ * Resolves an item that a source only references, but that is hosted by another source (e.g. a BHL item that links
+ * to the Botanical Garden of Madrid).
+ *
+ * A resolver is created once and used for all referenced items of its source, possibly by several threads at the
+ * same time. Hence, it has to be thread-safe. All requests should be sent with the shared
+ * {@link de.biofid.services.crawler.http.HttpFetcher}, so they obey the same rate limits and reuse the same
+ * connections as the referencing harvester.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public interface ExternalResourceResolver {
+
+	/***
+	 * Checks if the given source, as named by the referencing source, is resolved by this resolver.
+	 */
+	boolean isResolving(String sourceName);
+
+	/***
+	 * Creates the item from the given external URL.
+	 * @return The item or null, if the URL does not reference a valid item.
+	 * @throws IOException If the item could not be retrieved.
+	 */
+	Item resolve(URL externalUrl) throws IOException;
+}
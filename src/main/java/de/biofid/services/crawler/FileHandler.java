@@ -2,6 +2,10 @@ package de.biofid.services.crawler;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -85,4 +89,22 @@ public class FileHandler {
 		String fileContent = getFileContent(filePath);
 		return new ArrayList<>(Arrays.asList(fileContent.split("\\s*" + separator + "\\s*"))); 
 	}
+
+	/***
+	 * Checks if the given file is empty or ends with a line break.
+	 * An append-only file that does not, was cut off while a line was written.
+	 * @param file The file to check. It has to exist.
+	 * @return True, if a new line can be appended to the file directly.
+	 */
+	public static boolean endsWithLineBreak(Path file) throws IOException {
+		try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+			if (channel.size() == 0) {
+				return true;
+			}
+
+			ByteBuffer lastByte = ByteBuffer.allocate(1);
+			channel.position(channel.size() - 1).read(lastByte);
+			return lastByte.get(0) == '\n';
+		}
+	}
 }
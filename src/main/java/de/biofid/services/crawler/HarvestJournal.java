@@ -0,0 +1,362 @@
+package de.biofid.services.crawler;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * A write-ahead journal of the progress of a single harvester run.
+ *
+ * Before an item enters the next stage of the {@link HarvestingPipeline}, this is written to the journal. Hence,
+ * if the run is interrupted (e.g. by a crash or a restart of the container), a subsequent run in resume mode
+ * continues where the interrupted run stopped: the iteration continues at the first item that was not finished and
+ * all items that were finished are skipped. Additionally, a harvester can journal all pages it crawled completely
+ * together with the metadata it found on them, so a crawl does not have to start from scratch either. Only the
+ * URLs of these pages are kept in memory. Their metadata are read from the journal file when they are needed.
+ *
+ * The journal is an append-only file with one JSON record per line in the working directory of the harvester.
+ * It is deleted when a run finishes regularly.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class HarvestJournal implements Closeable {
+
+	public static final String JOURNAL_FILE_NAME = "harvest-journal.jsonl";
+
+	public enum Stage {
+		DISCOVERED, DOWNLOADED, COMPLETE, SKIPPED;
+
+		public boolean isFinished() {
+			return this == COMPLETE || this == SKIPPED;
+		}
+	}
+
+	private static final String TYPE = "type";
+	private static final String TYPE_ITEM = "item";
+	private static final String TYPE_PAGE = "page";
+	private static final String ITEM_ID = "itemId";
+	private static final String POSITION = "position";
+	private static final String STAGE = "stage";
+	private static final String URL = "url";
+	private static final String NUMBER_OF_ITEMS = "numberOfItems";
+	private static final String METADATA = "metadata";
+
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	private final Path journalFile;
+	private final Map<Long, Stage> itemStages = new ConcurrentHashMap<>();
+	private final Map<Long, Integer> itemPositions = new ConcurrentHashMap<>();
+	private final Map<String, Integer> crawledPages = new LinkedHashMap<>();
+	// The number of lines that were written by the interrupted run
+	private long numberOfLoadedLines = 0;
+	private BufferedWriter writer;
+	private BufferedReader metadataReader;
+
+	private HarvestJournal(Path baseDirectory) {
+		this.journalFile = baseDirectory.resolve(JOURNAL_FILE_NAME);
+	}
+
+	/***
+	 * Opens the journal in the given directory.
+	 * @param baseDirectory The working directory of the harvester.
+	 * @param resume If true, the progress of an interrupted run is read from an existing journal. Otherwise, an
+	 *               existing journal is discarded.
+	 */
+	public static HarvestJournal open(Path baseDirectory, boolean resume) throws IOException {
+		HarvestJournal journal = new HarvestJournal(baseDirectory);
+
+		if (resume) {
+			journal.load();
+			logger.info("Resuming from the journal {} with {} items and {} crawled pages.",
+					journal.journalFile, journal.itemStages.size(), journal.crawledPages.size());
+		} else if (Files.deleteIfExists(journal.journalFile)) {
+			logger.info("Discarded the journal of a previous run, because resuming is disabled.");
+		}
+
+		journal.writer = Files.newBufferedWriter(journal.journalFile, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		if (resume && !FileHandler.endsWithLineBreak(journal.journalFile)) {
+			// A record that was cut off must not swallow the next one
+			journal.writer.newLine();
+		}
+		return journal;
+	}
+
+	/***
+	 * Returns the position in the item iteration of the harvester, where a resumed run has to continue.
+	 * This is the position of the first item that was discovered, but not finished. Items the discovery passed
+	 * without handing them out are journaled, too: skipped ones as finished and failed ones as unfinished. If all
+	 * discovered items were finished, it is the position after the last discovered item.
+	 */
+	public int getResumePosition() {
+		int firstUnfinishedPosition = Integer.MAX_VALUE;
+		int lastPosition = -1;
+		for (Map.Entry<Long, Integer> itemPosition : itemPositions.entrySet()) {
+			int position = itemPosition.getValue();
+			lastPosition = Math.max(lastPosition, position);
+			if (!isItemFinished(itemPosition.getKey())) {
+				firstUnfinishedPosition = Math.min(firstUnfinishedPosition, position);
+			}
+		}
+
+		if (firstUnfinishedPosition == Integer.MAX_VALUE) {
+			return lastPosition + 1;
+		}
+		return firstUnfinishedPosition;
+	}
+
+	/***
+	 * Checks if the given item passed all stages (or was skipped) before the run was interrupted.
+	 */
+	public boolean isItemFinished(long itemId) {
+		Stage stage = itemStages.get(itemId);
+		return stage != null && stage.isFinished();
+	}
+
+	/***
+	 * Checks if the given item reached the given stage before the run was interrupted.
+	 */
+	public boolean hasItemReachedStage(long itemId, Stage stage) {
+		Stage reachedStage = itemStages.get(itemId);
+		return reachedStage != null && reachedStage.compareTo(stage) >= 0;
+	}
+
+	/***
+	 * Hands over all pages that were crawled completely by the interrupted run, with the number of items that were
+	 * referenced on them. The journal does not keep them afterwards.
+	 */
+	public synchronized Map<String, Integer> takeCrawledPages() {
+		Map<String, Integer> pages = new LinkedHashMap<>(crawledPages);
+		crawledPages.clear();
+		return pages;
+	}
+
+	/***
+	 * Reads the metadata of all pages crawled by the interrupted run from the journal file in the order they were
+	 * found. The metadata are read one page at a time, while the returned iterator is advanced. Records written by
+	 * the current run are not part of it.
+	 */
+	public synchronized Iterator<JSONObject> readCrawledMetadata() throws IOException {
+		closeMetadataReader();
+		if (numberOfLoadedLines == 0 || !Files.exists(journalFile)) {
+			return Collections.emptyIterator();
+		}
+
+		metadataReader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8);
+		return new CrawledMetadataIterator(metadataReader, numberOfLoadedLines);
+	}
+
+	/***
+	 * Records that the item with the given ID was discovered at the given position of the item iteration.
+	 * An item that reached a later stage before the run was interrupted keeps this stage.
+	 * @param position The position of the item or a negative value, if the harvester does not track positions.
+	 */
+	public synchronized void recordDiscovered(long itemId, int position) {
+		Stage stage = itemStages.getOrDefault(itemId, Stage.DISCOVERED);
+		JSONObject record = createItemRecord(itemId, stage);
+		if (position >= 0) {
+			record.put(POSITION, position);
+			itemPositions.put(itemId, position);
+		}
+		itemStages.put(itemId, stage);
+		write(record);
+	}
+
+	/***
+	 * Records that the item with the given ID completed the given stage.
+	 */
+	public synchronized void recordStage(long itemId, Stage stage) {
+		itemStages.put(itemId, stage);
+		write(createItemRecord(itemId, stage));
+	}
+
+	/***
+	 * Records that the page with the given URL and all pages referenced from it were crawled completely.
+	 * The page is only written to the journal file, since it matters only for a resumed run. So, the memory does not
+	 * grow with the number of crawled pages.
+	 * @param url The URL of the page.
+	 * @param numberOfItems The number of items referenced on the page.
+	 * @param metadata The metadata that was found on this page and was not recorded before.
+	 */
+	public synchronized void recordCrawledPage(String url, int numberOfItems, JSONArray metadata) {
+		JSONObject record = new JSONObject();
+		record.put(TYPE, TYPE_PAGE);
+		record.put(URL, url);
+		record.put(NUMBER_OF_ITEMS, numberOfItems);
+		record.put(METADATA, metadata);
+
+		write(record);
+	}
+
+	/***
+	 * Closes and deletes the journal, because the run finished and there is nothing to resume.
+	 */
+	public synchronized void finish() throws IOException {
+		close();
+		Files.deleteIfExists(journalFile);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		closeMetadataReader();
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+	private void closeMetadataReader() throws IOException {
+		if (metadataReader != null) {
+			metadataReader.close();
+			metadataReader = null;
+		}
+	}
+
+	private JSONObject createItemRecord(long itemId, Stage stage) {
+		JSONObject record = new JSONObject();
+		record.put(TYPE, TYPE_ITEM);
+		record.put(ITEM_ID, itemId);
+		record.put(STAGE, stage.name());
+		return record;
+	}
+
+	/***
+	 * Reads all records of the journal file. A broken line (e.g. from a crash while writing) is skipped.
+	 */
+	private void load() throws IOException {
+		if (!Files.exists(journalFile)) {
+			return;
+		}
+
+		try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				++numberOfLoadedLines;
+				if (line.isBlank()) {
+					continue;
+				}
+
+				try {
+					readRecord(new JSONObject(line));
+				} catch (JSONException | IllegalArgumentException ex) {
+					logger.warn("Skipping a broken record in the journal {}!", journalFile);
+				}
+			}
+		}
+	}
+
+	private void readRecord(JSONObject record) {
+		if (TYPE_PAGE.equals(record.getString(TYPE))) {
+			crawledPages.put(record.getString(URL), record.getInt(NUMBER_OF_ITEMS));
+			return;
+		}
+
+		long itemId = record.getLong(ITEM_ID);
+		itemStages.put(itemId, Stage.valueOf(record.getString(STAGE)));
+		if (record.has(POSITION)) {
+			itemPositions.put(itemId, record.getInt(POSITION));
+		}
+	}
+
+	private void write(JSONObject record) {
+		if (writer == null) {
+			return;
+		}
+
+		try {
+			writer.write(record.toString());
+			writer.newLine();
+			writer.flush();
+		} catch (IOException ex) {
+			logger.error("Could not write to the journal {}! Reason: {}", journalFile, ex.getMessage());
+		}
+	}
+
+	/***
+	 * Iterates the metadata of the page records within the given number of lines of the journal file.
+	 * The reader is closed, when the last line was read.
+	 */
+	private class CrawledMetadataIterator implements Iterator<JSONObject> {
+
+		private final BufferedReader reader;
+		private long remainingLines;
+		private JSONArray pageMetadata = new JSONArray();
+		private int nextIndex = 0;
+
+		private CrawledMetadataIterator(BufferedReader reader, long numberOfLines) {
+			this.reader = reader;
+			this.remainingLines = numberOfLines;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (nextIndex >= pageMetadata.length()) {
+				if (!readNextPage()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public JSONObject next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return pageMetadata.getJSONObject(nextIndex++);
+		}
+
+		private boolean readNextPage() {
+			try {
+				String line;
+				while (remainingLines > 0 && (line = reader.readLine()) != null) {
+					--remainingLines;
+					try {
+						JSONObject record = line.isBlank() ? null : new JSONObject(line);
+						if (record != null && TYPE_PAGE.equals(record.getString(TYPE)) && record.has(METADATA)) {
+							pageMetadata = record.getJSONArray(METADATA);
+							nextIndex = 0;
+							return true;
+						}
+					} catch (JSONException ex) {
+						// The broken record was reported, when the journal was loaded
+					}
+				}
+			} catch (IOException ex) {
+				logger.error("Could not read the crawled metadata from the journal {}! Reason: {}", journalFile,
+						ex.getMessage());
+			}
+
+			remainingLines = 0;
+			synchronized (HarvestJournal.this) {
+				if (metadataReader == reader) {
+					try {
+						closeMetadataReader();
+					} catch (IOException ex) {
+						logger.warn("Could not close the journal {}! Reason: {}", journalFile, ex.getMessage());
+					}
+				}
+			}
+			return false;
+		}
+	}
+}
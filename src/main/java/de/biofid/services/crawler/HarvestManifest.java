@@ -0,0 +1,340 @@
+package de.biofid.services.crawler;
+
+import de.biofid.services.crawler.http.Checksums;
+import de.biofid.services.crawler.http.DownloadResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * A persistent record of all harvested items of a harvester.
+ *
+ * The manifest lives in the working directory of the harvester. It records for every item (keyed by source and
+ * item ID) its metadata file and metadata hash, all text files with their sizes and checksums and whether the
+ * harvesting was complete. With it, a harvester can skip items that were completely harvested by a previous run
+ * before sending any request for them.
+ *
+ * The manifest is an append-only file with one JSON record per line, so a crash can at most lose the last record.
+ * The latest record of an item wins. When the manifest is opened, outdated records are compacted away. Only a compact
+ * index of the latest records is kept in memory, which holds the status and the text files of every item.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class HarvestManifest implements Closeable {
+
+	public static final String MANIFEST_FILE_NAME = "harvest-manifest.jsonl";
+
+	public enum Status {
+		COMPLETE, INCOMPLETE, FAILED
+	}
+
+	private static final String SOURCE = "source";
+	private static final String ITEM_ID = "itemId";
+	private static final String STATUS = "status";
+	private static final String METADATA_FILE = "metadataFile";
+	private static final String METADATA_HASH = "metadataMd5";
+	private static final String FILES = "files";
+	private static final String PATH = "path";
+	private static final String SIZE = "size";
+	private static final String MD5 = "md5";
+	private static final String HARVESTED_AT = "harvestedAt";
+
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	private final Path baseDirectory;
+	private final Path manifestFile;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private BufferedWriter writer;
+	private int numberOfRecords = 0;
+
+	/***
+	 * The latest record of an item as far as it is needed to check if the item was harvested completely.
+	 */
+	public static class Entry {
+		private final Status status;
+		private final String metadataFile;
+		private final String[] filePaths;
+		private final long[] fileSizes;
+		private final byte[][] fileMd5Checksums;
+		// The position of the record in the manifest file, which tells if a record is outdated when compacting
+		private final int recordNumber;
+
+		private Entry(JSONObject record, int recordNumber) {
+			this.status = Status.valueOf(record.getString(STATUS));
+			this.metadataFile = record.optString(METADATA_FILE, null);
+			this.recordNumber = recordNumber;
+
+			JSONArray files = record.optJSONArray(FILES);
+			int numberOfFiles = files == null ? 0 : files.length();
+			this.filePaths = new String[numberOfFiles];
+			this.fileSizes = new long[numberOfFiles];
+			this.fileMd5Checksums = new byte[numberOfFiles][];
+			for (int i = 0; i < numberOfFiles; ++i) {
+				JSONObject file = files.getJSONObject(i);
+				filePaths[i] = file.getString(PATH);
+				fileSizes[i] = file.getLong(SIZE);
+				fileMd5Checksums[i] = file.has(MD5) ? Checksums.fromHexString(file.getString(MD5)) : null;
+			}
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		public int getNumberOfFiles() {
+			return filePaths.length;
+		}
+
+		/***
+		 * @return The path of the text file relative to the working directory of the harvester.
+		 */
+		public String getFilePath(int index) {
+			return filePaths[index];
+		}
+
+		public long getFileSize(int index) {
+			return fileSizes[index];
+		}
+
+		/***
+		 * @return The MD5 checksum of the text file as hex string or null, if it is unknown.
+		 */
+		public String getFileMd5Checksum(int index) {
+			return fileMd5Checksums[index] == null ? null : Checksums.toHexString(fileMd5Checksums[index]);
+		}
+	}
+
+	private HarvestManifest(Path baseDirectory) {
+		this.baseDirectory = baseDirectory;
+		this.manifestFile = baseDirectory.resolve(MANIFEST_FILE_NAME);
+	}
+
+	/***
+	 * Opens the manifest in the given directory. It is created, if it does not exist.
+	 * @param baseDirectory The working directory of the harvester. All paths in the manifest are relative to it.
+	 */
+	public static HarvestManifest open(Path baseDirectory) throws IOException {
+		HarvestManifest manifest = new HarvestManifest(baseDirectory);
+		manifest.load();
+		if (manifest.numberOfRecords > manifest.entries.size()) {
+			manifest.compact();
+		}
+		manifest.writer = Files.newBufferedWriter(manifest.manifestFile, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		if (!FileHandler.endsWithLineBreak(manifest.manifestFile)) {
+			// A record that was cut off must not swallow the next one
+			manifest.writer.newLine();
+		}
+
+		logger.info("Opened the harvest manifest {} with {} items.", manifest.manifestFile, manifest.entries.size());
+		return manifest;
+	}
+
+	/***
+	 * Checks if the given item was harvested completely and all of its files still exist with the recorded size.
+	 * This does not need any network access.
+	 */
+	public boolean isComplete(String source, long itemId) {
+		Entry entry = entries.get(createKey(source, itemId));
+		if (entry == null || entry.status != Status.COMPLETE) {
+			return false;
+		}
+
+		if (entry.metadataFile != null && !Files.exists(baseDirectory.resolve(entry.metadataFile))) {
+			return false;
+		}
+
+		for (int i = 0; i < entry.filePaths.length; ++i) {
+			Path filePath = baseDirectory.resolve(entry.filePaths[i]);
+			try {
+				if (!Files.exists(filePath) || Files.size(filePath) != entry.fileSizes[i]) {
+					return false;
+				}
+			} catch (IOException ex) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/***
+	 * Returns the latest record of the given item.
+	 */
+	public Optional<Entry> getEntry(String source, long itemId) {
+		return Optional.ofNullable(entries.get(createKey(source, itemId)));
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/***
+	 * Records the harvesting result of an item.
+	 * @param source The name of the source (e.g. the harvester name).
+	 * @param itemId The ID of the item.
+	 * @param metadataFile The written metadata file. May be null.
+	 * @param textFiles All text files of the item.
+	 * @param status If the item was harvested completely.
+	 */
+	public synchronized void record(String source, long itemId, Path metadataFile, List<DownloadResult> textFiles,
+									Status status) {
+		JSONObject entry = new JSONObject();
+		entry.put(SOURCE, source);
+		entry.put(ITEM_ID, itemId);
+		entry.put(STATUS, status.name());
+		entry.put(HARVESTED_AT, Instant.now().toString());
+
+		if (metadataFile != null) {
+			entry.put(METADATA_FILE, toRelativePath(metadataFile));
+			computeMd5(metadataFile).ifPresent(metadataHash -> entry.put(METADATA_HASH, metadataHash));
+		}
+
+		JSONArray files = new JSONArray();
+		for (DownloadResult textFile : textFiles) {
+			JSONObject file = new JSONObject();
+			file.put(PATH, toRelativePath(textFile.getFile()));
+			file.put(SIZE, textFile.getSize());
+			if (textFile.getMd5Checksum() != null) {
+				file.put(MD5, textFile.getMd5Checksum());
+			}
+			files.put(file);
+		}
+		entry.put(FILES, files);
+
+		entries.put(createKey(source, itemId), new Entry(entry, numberOfRecords++));
+		try {
+			writer.write(entry.toString());
+			writer.newLine();
+			writer.flush();
+		} catch (IOException ex) {
+			logger.error("Could not write item ID {} to the harvest manifest! Reason: {}", itemId, ex.getMessage());
+		}
+	}
+
+	/***
+	 * Records that the given item could not be harvested at all, e.g. because its metadata could not be retrieved.
+	 * An item that was harvested completely before keeps its record.
+	 */
+	public synchronized void recordFailed(String source, long itemId) {
+		Entry entry = entries.get(createKey(source, itemId));
+		if (entry != null && entry.status == Status.COMPLETE) {
+			return;
+		}
+		record(source, itemId, null, Collections.emptyList(), Status.FAILED);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+	/***
+	 * Reads all records of the manifest file into the index. A broken line (e.g. from a crash while writing) is
+	 * skipped.
+	 */
+	private void load() throws IOException {
+		if (!Files.exists(manifestFile)) {
+			return;
+		}
+
+		readRecords((record, entry) -> entries.put(createKey(record.getString(SOURCE), record.getLong(ITEM_ID)),
+				entry));
+	}
+
+	/***
+	 * Rewrites the manifest with only the latest record of every item.
+	 */
+	private void compact() throws IOException {
+		Path compactedFile = manifestFile.resolveSibling(MANIFEST_FILE_NAME + ".tmp");
+		try (BufferedWriter compactedWriter = Files.newBufferedWriter(compactedFile, StandardCharsets.UTF_8)) {
+			readRecords((record, entry) -> {
+				Entry latestEntry = entries.get(createKey(record.getString(SOURCE), record.getLong(ITEM_ID)));
+				if (latestEntry.recordNumber == entry.recordNumber) {
+					compactedWriter.write(record.toString());
+					compactedWriter.newLine();
+				}
+			});
+		}
+		Files.move(compactedFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		// The remaining records are numbered anew
+		entries.clear();
+		load();
+	}
+
+	/***
+	 * Passes every valid record of the manifest file together with its index entry in the order they were written.
+	 */
+	private void readRecords(RecordConsumer recordConsumer) throws IOException {
+		numberOfRecords = 0;
+		try (BufferedReader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank()) {
+					continue;
+				}
+
+				JSONObject record;
+				Entry entry;
+				try {
+					record = new JSONObject(line);
+					entry = new Entry(record, numberOfRecords);
+				} catch (JSONException | IllegalArgumentException ex) {
+					logger.warn("Skipping a broken record in the harvest manifest {}!", manifestFile);
+					continue;
+				}
+				recordConsumer.accept(record, entry);
+				++numberOfRecords;
+			}
+		}
+	}
+
+	private interface RecordConsumer {
+		void accept(JSONObject record, Entry entry) throws IOException;
+	}
+
+	private String createKey(String source, long itemId) {
+		return source + "/" + itemId;
+	}
+
+	private String toRelativePath(Path path) {
+		Path absolutePath = path.toAbsolutePath();
+		Path absoluteBaseDirectory = baseDirectory.toAbsolutePath();
+		if (absolutePath.startsWith(absoluteBaseDirectory)) {
+			return absoluteBaseDirectory.relativize(absolutePath).toString();
+		}
+		return absolutePath.toString();
+	}
+
+	private Optional<String> computeMd5(Path file) {
+		try {
+			return Optional.of(Checksums.computeMd5(file));
+		} catch (IOException ex) {
+			return Optional.empty();
+		}
+	}
+}
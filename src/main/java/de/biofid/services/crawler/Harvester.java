@@ -30,12 +30,15 @@ public abstract class Harvester {
 	protected static final String ITEM_COMPLETE_METADATA = "Item";
 	
 	private static String baseOutputDirectory = null;
+	private static boolean isResumeEnabled = false;
 	
 	protected Configuration configuration;
-	protected long millisecondsDelayBetweenRequests = 0;
 
 	protected List<Filter> filters = new ArrayList<>();
 
+	private HarvestManifest manifest = null;
+	private HarvestJournal journal = null;
+
 	// Logging for all sub-classes
 	protected Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
 		
@@ -62,6 +65,14 @@ public abstract class Harvester {
 		Harvester.baseOutputDirectory = outputDirectory;
 	}
 
+	/***
+	 * If enabled, every harvester continues where its last run was interrupted, according to its
+	 * {@link HarvestJournal}.
+	 */
+	public static void setResumeEnabled(boolean isResumeEnabled) {
+		Harvester.isResumeEnabled = isResumeEnabled;
+	}
+
 	public void setFilters(List<Filter> filters) {
 		this.filters = filters;
 	}
@@ -72,6 +83,9 @@ public abstract class Harvester {
 
 	/***
 	 * This function can be called to start the harvesting of a specific internet source.
+	 *
+	 * The items are passed through a {@link HarvestingPipeline}, so the discovery of the next item overlaps with
+	 * the download of the current one. The number of workers per stage is given in the {@link Configuration}.
 	 */
 	public final void run() {
 		try {
@@ -81,26 +95,90 @@ public abstract class Harvester {
 			logger.fatal("Could not create working directories for '{}'!", this.getClass().getName());
 			return;
 		}
-		
-		while (true) {
-			Item item = createNewEmptyItem();
-			item.setSaveMetadataOnly(this.configuration.isOnlyMetadata());
-			
-			pause();
-			boolean next = nextItem(item);
-			if (next) {
-				if (!isFilteredOut(item) || hasItemOpenLicense(item)) {
-					processItem(item);
-				} else {
-					logger.info("Item ID {} did not comply with the given filters and is not provided under " +
-									"an open license and hence is not further processed.",
-							item.getItemId());
-				}
-			} else {
-				logger.info("All items of Harvester {} processed!", this.getClass().getName());
-				break;
-			}
+
+		try {
+			manifest = HarvestManifest.open(getWorkingDirectory());
+		} catch (IOException ex) {
+			logger.error("Could not open the harvest manifest! All items will be harvested. Reason: {}",
+					ex.getMessage());
 		}
+
+		try {
+			journal = HarvestJournal.open(getWorkingDirectory(), isResumeEnabled);
+		} catch (IOException ex) {
+			logger.error("Could not open the journal! The progress of this run can not be resumed. Reason: {}",
+					ex.getMessage());
+		}
+
+		boolean isRunComplete = false;
+		try {
+			HarvestingPipeline pipeline = new HarvestingPipeline(
+					getFolderName(),
+					configuration.getPipelineQueueSize(),
+					configuration.getFilterWorkers(),
+					configuration.getDownloadWorkers(),
+					configuration.getMetadataWorkers());
+			isRunComplete = pipeline.run(this::discoverNextItem, this::isItemToBeProcessed, this::downloadTextFiles,
+					this::writeMetadataFile);
+		} finally {
+			releaseResources();
+			closeManifest();
+			closeJournal(isRunComplete);
+		}
+
+		logger.info("All items of Harvester {} processed!", this.getClass().getName());
+	}
+
+	/***
+	 * Checks if the item with the given ID was processed by an interrupted run, which is resumed now, or if it was
+	 * harvested completely by a previous run, according to the {@link HarvestManifest}. In the latter case,
+	 * if overwriting is enabled, no item counts as harvested.
+	 *
+	 * Subclasses should call this before requesting any data of an item, so completely harvested items cost no
+	 * network access.
+	 */
+	protected boolean isItemAlreadyHarvested(long itemId) {
+		if (journal != null && journal.isItemFinished(itemId)) {
+			return true;
+		}
+
+		return manifest != null && !configuration.isOverwrittingEnabled() &&
+				manifest.isComplete(getFolderName(), itemId);
+	}
+
+	/***
+	 * Returns the position in the item iteration, where this run has to start. This is 0, unless an interrupted run
+	 * is resumed.
+	 */
+	protected int getResumePosition() {
+		if (journal == null) {
+			return 0;
+		}
+		return journal.getResumePosition();
+	}
+
+	/***
+	 * Returns the position of the item that was returned by the last call of {@link #nextItem(Item)} within the
+	 * item iteration of this harvester. The positions are needed to resume an interrupted run; harvesters that do
+	 * not iterate over a stable list of items return a negative value.
+	 */
+	protected int getDiscoveryPosition() {
+		return -1;
+	}
+
+	/***
+	 * Returns the journal of the current run. This is null, if the harvester does not run or if the journal could
+	 * not be opened.
+	 */
+	protected HarvestJournal getJournal() {
+		return journal;
+	}
+
+	/***
+	 * Releases the resources the harvester acquired for the run (e.g. thread pools). This is called when the run
+	 * ends, whether it finished, failed or was interrupted.
+	 */
+	protected void releaseResources() {
 	}
 
 	/**
@@ -127,10 +205,6 @@ public abstract class Harvester {
 		return new Item();
 	}
 	
-	public void setRequestDelayInMilliseconds(long millisecondsDelay) {
-		millisecondsDelayBetweenRequests = millisecondsDelay;
-	}
-	
 	/***
 	 * A function that simply returns the name of the folder where the Items should be stored.
 	 * @return A folder name
@@ -157,14 +231,6 @@ public abstract class Harvester {
 	 */
 	protected abstract boolean nextItem(Item item);
 	
-	protected void pause() {
-		try {
-			Thread.sleep(millisecondsDelayBetweenRequests);
-		} catch (InterruptedException ex) {
-			logger.error(ex.getMessage());
-		}
-	}
-	
 	protected JSONObject toJsonObject(Object obj) throws JsonProcessingException {
 		ObjectMapper mapper = new ObjectMapper();
 		String metdataJSONString = mapper.writeValueAsString(obj);
@@ -202,23 +268,142 @@ public abstract class Harvester {
 		return true;
 	}
 	
-	private boolean processItem(Item item) {
-		Path outputPath = getWorkingDirectory();
+	/***
+	 * Requests the next item from the subclass.
+	 * @return The next filled item or null, if there are no more items.
+	 */
+	private Item discoverNextItem() {
+		Item item = createNewEmptyItem();
+		item.setSaveMetadataOnly(this.configuration.isOnlyMetadata());
+
+		if (nextItem(item)) {
+			if (journal != null) {
+				journal.recordDiscovered(item.getItemId(), getDiscoveryPosition());
+			}
+			return item;
+		}
+
+		return null;
+	}
+
+	private boolean isItemToBeProcessed(Item item) {
+		if (isItemAlreadyHarvested(item.getItemId())) {
+			logger.info("Item ID {} was harvested completely before. Skipping it.", item.getItemId());
+			recordStage(item, HarvestJournal.Stage.SKIPPED);
+			return false;
+		}
+
+		if (!isFilteredOut(item) || hasItemOpenLicense(item)) {
+			return true;
+		}
+
+		logger.info("Item ID {} did not comply with the given filters and is not provided under " +
+						"an open license and hence is not further processed.",
+				item.getItemId());
+		recordStage(item, HarvestJournal.Stage.SKIPPED);
+		return false;
+	}
+
+	private void downloadTextFiles(Item item) {
 		boolean overwriteExistingFiles = configuration.isOverwrittingEnabled();
-		
-		String outputPathString = outputPath.toString();
+		if (journal != null && journal.hasItemReachedStage(item.getItemId(), HarvestJournal.Stage.DOWNLOADED)) {
+			// The files were downloaded completely before the last run was interrupted
+			overwriteExistingFiles = false;
+		}
 
-		item.writeTextFiles(outputPathString, overwriteExistingFiles);
+		item.writeTextFiles(getWorkingDirectory().toString(), overwriteExistingFiles);
+		recordStage(item, HarvestJournal.Stage.DOWNLOADED);
+	}
 
+	private void writeMetadataFile(Item item) {
+		Path metadataFile = null;
 		try {
-			item.writeMetadataFile(outputPathString, Item.FileType.XML);
+			metadataFile = item.writeMetadataFile(getWorkingDirectory().toString(), Item.FileType.XML);
 		} catch (UnsupportedOutputFormatException ex) {
 			logger.error("Writing of the metadata of item ID {} failed!", item.getItemId());
 			logger.error(Arrays.toString(ex.getStackTrace()));
-			return false;
 		}
-		
-		return true;
+
+		if (manifest != null) {
+			boolean isComplete = metadataFile != null && item.getFailedFileDownloadCount() == 0;
+			manifest.record(getFolderName(), item.getItemId(), metadataFile, item.getTextFileResults(),
+					isComplete ? HarvestManifest.Status.COMPLETE : HarvestManifest.Status.INCOMPLETE);
+		}
+
+		recordStage(item, HarvestJournal.Stage.COMPLETE);
+	}
+
+	/***
+	 * Records that the item with the given ID could not be handed out, because it failed before it entered the
+	 * pipeline (e.g. because its metadata could not be retrieved). The item stays visible as failed in the
+	 * {@link HarvestManifest}, so a later run harvests it again. Its position is journaled as unfinished, so a
+	 * resumed run continues at this item at the latest.
+	 * @param position The position of the item in the item iteration or a negative value, if the harvester does
+	 *                 not track positions.
+	 */
+	protected void recordFailedItem(long itemId, int position) {
+		logger.error("Item ID {} failed and is not harvested!", itemId);
+		if (manifest != null) {
+			manifest.recordFailed(getFolderName(), itemId);
+		}
+		if (journal != null) {
+			journal.recordDiscovered(itemId, position);
+		}
+	}
+
+	/***
+	 * Records that the discovery passed the item with the given ID without handing it out, because it needs no
+	 * processing (e.g. because it was harvested before). Its position is journaled as finished, so a resumed run
+	 * does not continue before it.
+	 * @param position The position of the item in the item iteration or a negative value, if the harvester does
+	 *                 not track positions.
+	 */
+	protected void recordSkippedItem(long itemId, int position) {
+		if (journal != null) {
+			journal.recordDiscovered(itemId, position);
+			journal.recordStage(itemId, HarvestJournal.Stage.SKIPPED);
+		}
+	}
+
+	private void recordStage(Item item, HarvestJournal.Stage stage) {
+		if (journal != null) {
+			journal.recordStage(item.getItemId(), stage);
+		}
+	}
+
+	private void closeManifest() {
+		if (manifest == null) {
+			return;
+		}
+
+		try {
+			manifest.close();
+		} catch (IOException ex) {
+			logger.warn("Could not close the harvest manifest! Reason: {}", ex.getMessage());
+		}
+		manifest = null;
+	}
+
+	/***
+	 * Closes the journal. If the run is complete, the journal is deleted, because there is nothing to resume.
+	 */
+	private void closeJournal(boolean isRunComplete) {
+		if (journal == null) {
+			return;
+		}
+
+		try {
+			if (isRunComplete) {
+				journal.finish();
+			} else {
+				journal.close();
+				logger.warn("The run of {} was not completed. It can be resumed with '{}'.",
+						getFolderName(), LiteratureHarvester.RESUME_ARGUMENT);
+			}
+		} catch (IOException ex) {
+			logger.warn("Could not close the journal! Reason: {}", ex.getMessage());
+		}
+		journal = null;
 	}
 	
 	class CouldNotCreateDirectoryException extends IOException {
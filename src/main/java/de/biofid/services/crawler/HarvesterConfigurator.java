@@ -6,6 +6,10 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import de.biofid.services.configuration.ConfigurationKeys;
 import de.biofid.services.crawler.configuration.FilterConfiguration;
 import de.biofid.services.crawler.configuration.FilterConfigurationFactory;
+import de.biofid.services.crawler.http.FileDownloader;
+import de.biofid.services.crawler.http.HttpFetcher;
+import de.biofid.services.crawler.http.RateLimit;
+import de.biofid.services.crawler.http.RateLimiter;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -35,6 +39,17 @@ public class HarvesterConfigurator {
 	private static final boolean OVERWRITE_DEFAULT = true;
 	private static final long REQUEST_DELAY_DEFAULT = 0;
 	private static final String LOGGER_LEVEL_DEFAULT = "INFO";
+	private static final boolean PARALLEL_HARVESTERS_DEFAULT = false;
+	private static final boolean PARALLEL_FILE_DOWNLOADS_DEFAULT = false;
+	private static final int SEGMENTED_DOWNLOAD_THRESHOLD_DEFAULT = 100;
+	private static final int DOWNLOAD_SEGMENTS_DEFAULT = FileDownloader.DOWNLOAD_SEGMENTS_DEFAULT;
+	private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+	private static final int PIPELINE_THREAD_BUDGET_DEFAULT = Runtime.getRuntime().availableProcessors() * 2;
+	private static final int BURST_DEFAULT = 1;
+	private static final int MAXIMUM_RETRIES_DEFAULT = RateLimiter.MAXIMUM_RETRIES_DEFAULT;
+	private static final int CONNECT_TIMEOUT_DEFAULT = HttpFetcher.CONNECT_TIMEOUT_SECONDS_DEFAULT;
+	private static final int READ_TIMEOUT_DEFAULT = HttpFetcher.READ_TIMEOUT_SECONDS_DEFAULT;
+	private static final int MAXIMUM_CONNECTIONS_PER_HOST_DEFAULT = HttpFetcher.MAXIMUM_CONNECTIONS_PER_HOST_DEFAULT;
 	
 	protected Map<String, String> apiKeysForHarvesters = new HashMap<>();
 	protected String baseOutputPathString = null;
@@ -42,6 +57,17 @@ public class HarvesterConfigurator {
 	protected long delayBetweenRequestsInMilliseconds = REQUEST_DELAY_DEFAULT;
 	protected boolean isOverwrittingEnabled = OVERWRITE_DEFAULT;
 	protected String loggerLevel = LOGGER_LEVEL_DEFAULT;
+	protected boolean isParallelHarvestingEnabled = PARALLEL_HARVESTERS_DEFAULT;
+	protected int pipelineThreadBudget = PIPELINE_THREAD_BUDGET_DEFAULT;
+	protected Map<String, Integer> harvesterPipelineThreadLimits = new HashMap<>();
+	protected Map<String, RateLimit> hostRateLimits = new HashMap<>();
+	protected int maximumRetries = MAXIMUM_RETRIES_DEFAULT;
+	protected int connectTimeoutInSeconds = CONNECT_TIMEOUT_DEFAULT;
+	protected int readTimeoutInSeconds = READ_TIMEOUT_DEFAULT;
+	protected int maximumConnectionsPerHost = MAXIMUM_CONNECTIONS_PER_HOST_DEFAULT;
+	protected boolean isParallelFileDownloadEnabled = PARALLEL_FILE_DOWNLOADS_DEFAULT;
+	protected int segmentedDownloadThresholdInMegabytes = SEGMENTED_DOWNLOAD_THRESHOLD_DEFAULT;
+	protected int downloadSegments = DOWNLOAD_SEGMENTS_DEFAULT;
 
 	private static final String loggerName = "Configurator";
 	private static final Logger logger = LogManager.getLogger(loggerName);
@@ -80,9 +106,88 @@ public class HarvesterConfigurator {
 		return newList;
 	}
 	
+	/***
+	 * Returns the rate limit for all hosts that are not configured explicitly.
+	 * It is derived from the general request delay.
+	 */
+	public RateLimit getDefaultRateLimit() {
+		return RateLimit.fromDelay(delayBetweenRequestsInMilliseconds);
+	}
+
+	/***
+	 * Returns the rate limits for single hosts as given in the general settings.
+	 * @return A map with the host names as keys and their rate limits as values.
+	 */
+	public Map<String, RateLimit> getHostRateLimits() {
+		return new HashMap<>(hostRateLimits);
+	}
+
+	/***
+	 * Returns how often a request is retried, if its host is overloaded.
+	 */
+	public int getMaximumRetries() {
+		return maximumRetries;
+	}
+
+	public int getConnectTimeoutInSeconds() {
+		return connectTimeoutInSeconds;
+	}
+
+	public int getReadTimeoutInSeconds() {
+		return readTimeoutInSeconds;
+	}
+
+	/***
+	 * Returns the maximum number of concurrent connections to a single host.
+	 */
+	public int getMaximumConnectionsPerHost() {
+		return maximumConnectionsPerHost;
+	}
+
+	/***
+	 * Returns if the text files of a single item are downloaded at the same time.
+	 */
+	public boolean isParallelFileDownloadEnabled() {
+		return isParallelFileDownloadEnabled;
+	}
+
+	/***
+	 * Returns the minimum file size in bytes for downloading a file in segments. 0 means disabled.
+	 */
+	public long getSegmentedDownloadThreshold() {
+		return Math.max(0, segmentedDownloadThresholdInMegabytes) * BYTES_PER_MEGABYTE;
+	}
+
+	/***
+	 * Returns the maximum number of segments a single file is downloaded in.
+	 */
+	public int getDownloadSegments() {
+		return downloadSegments;
+	}
+
 	public String getLoggerLevel() {
 		return loggerLevel;
 	}
+
+	public boolean isParallelHarvestingEnabled() {
+		return isParallelHarvestingEnabled;
+	}
+
+	/***
+	 * Returns the number of threads the pipelines of all harvesters may use together, if they run in parallel.
+	 * Other threads, e.g. for prefetching or parallel file downloads, are bounded by their own settings.
+	 */
+	public int getPipelineThreadBudget() {
+		return pipelineThreadBudget;
+	}
+
+	/***
+	 * Returns the pipeline thread limits of the single harvesters as given in the general settings.
+	 * @return A map with the harvester names as keys and the maximum number of pipeline threads as values.
+	 */
+	public Map<String, Integer> getHarvesterPipelineThreadLimits() {
+		return new HashMap<>(harvesterPipelineThreadLimits);
+	}
 	
 	/***
 	 * Reads a YAML file to configure the Harvesters.
@@ -110,6 +215,10 @@ public class HarvesterConfigurator {
 		if (generalSettingsTree.has(ConfigurationKeys.OVERWRITE_FILES)) {
 			isOverwrittingEnabled = generalSettingsTree.get(ConfigurationKeys.OVERWRITE_FILES).asBoolean();
 		}
+
+		readParallelHarvestingSettings(generalSettingsTree);
+		readRateLimits(generalSettingsTree);
+		readHttpSettings(generalSettingsTree);
 		
 		JsonNode harvesterConfigurationTree = configurationJson.get(HARVESTER_CONFIGURATIONS_PARENT);
 		
@@ -136,6 +245,85 @@ public class HarvesterConfigurator {
 		}
 	}
 
+	private void readParallelHarvestingSettings(JsonNode generalSettingsTree) {
+		if (generalSettingsTree.has(ConfigurationKeys.PARALLEL_HARVESTERS)) {
+			isParallelHarvestingEnabled = generalSettingsTree.get(ConfigurationKeys.PARALLEL_HARVESTERS).asBoolean();
+		}
+
+		if (generalSettingsTree.has(ConfigurationKeys.PIPELINE_THREAD_BUDGET)) {
+			pipelineThreadBudget = generalSettingsTree.get(ConfigurationKeys.PIPELINE_THREAD_BUDGET).asInt(PIPELINE_THREAD_BUDGET_DEFAULT);
+		}
+
+		if (generalSettingsTree.has(ConfigurationKeys.HARVESTER_PIPELINE_THREADS)) {
+			JsonNode harvesterThreadsTree = generalSettingsTree.get(ConfigurationKeys.HARVESTER_PIPELINE_THREADS);
+			Iterator<Map.Entry<String, JsonNode>> harvesterThreads = harvesterThreadsTree.fields();
+			while (harvesterThreads.hasNext()) {
+				Map.Entry<String, JsonNode> harvesterThreadLimit = harvesterThreads.next();
+				harvesterPipelineThreadLimits.put(harvesterThreadLimit.getKey(), harvesterThreadLimit.getValue().asInt());
+			}
+		}
+	}
+
+	private void readRateLimits(JsonNode generalSettingsTree) throws InvalidConfigurationException {
+		if (generalSettingsTree.has(ConfigurationKeys.MAXIMUM_RETRIES)) {
+			maximumRetries = generalSettingsTree.get(ConfigurationKeys.MAXIMUM_RETRIES).asInt(MAXIMUM_RETRIES_DEFAULT);
+		}
+
+		if (!generalSettingsTree.has(ConfigurationKeys.RATE_LIMITS)) {
+			return;
+		}
+
+		Iterator<Map.Entry<String, JsonNode>> hostSettings = generalSettingsTree.get(ConfigurationKeys.RATE_LIMITS).fields();
+		while (hostSettings.hasNext()) {
+			Map.Entry<String, JsonNode> hostSetting = hostSettings.next();
+			JsonNode rateLimitTree = hostSetting.getValue();
+
+			if (!rateLimitTree.has(ConfigurationKeys.REQUESTS_PER_SECOND)) {
+				logger.warn("The rate limit for host '{}' does not give '{}'! Ignoring it.",
+						hostSetting.getKey(), ConfigurationKeys.REQUESTS_PER_SECOND);
+				continue;
+			}
+
+			double requestsPerSecond = rateLimitTree.get(ConfigurationKeys.REQUESTS_PER_SECOND).asDouble();
+			int burst = rateLimitTree.has(ConfigurationKeys.BURST) ?
+					rateLimitTree.get(ConfigurationKeys.BURST).asInt(BURST_DEFAULT) : BURST_DEFAULT;
+			try {
+				hostRateLimits.put(hostSetting.getKey(), new RateLimit(requestsPerSecond, burst));
+			} catch (IllegalArgumentException ex) {
+				throw new InvalidConfigurationException("Invalid rate limit for host '" + hostSetting.getKey() +
+						"'! " + ex.getMessage());
+			}
+		}
+	}
+
+	private void readHttpSettings(JsonNode generalSettingsTree) {
+		if (generalSettingsTree.has(ConfigurationKeys.CONNECT_TIMEOUT)) {
+			connectTimeoutInSeconds = generalSettingsTree.get(ConfigurationKeys.CONNECT_TIMEOUT).asInt(CONNECT_TIMEOUT_DEFAULT);
+		}
+
+		if (generalSettingsTree.has(ConfigurationKeys.READ_TIMEOUT)) {
+			readTimeoutInSeconds = generalSettingsTree.get(ConfigurationKeys.READ_TIMEOUT).asInt(READ_TIMEOUT_DEFAULT);
+		}
+
+		if (generalSettingsTree.has(ConfigurationKeys.MAXIMUM_CONNECTIONS_PER_HOST)) {
+			maximumConnectionsPerHost = generalSettingsTree.get(ConfigurationKeys.MAXIMUM_CONNECTIONS_PER_HOST)
+					.asInt(MAXIMUM_CONNECTIONS_PER_HOST_DEFAULT);
+		}
+
+		if (generalSettingsTree.has(ConfigurationKeys.PARALLEL_FILE_DOWNLOADS)) {
+			isParallelFileDownloadEnabled = generalSettingsTree.get(ConfigurationKeys.PARALLEL_FILE_DOWNLOADS).asBoolean();
+		}
+
+		if (generalSettingsTree.has(ConfigurationKeys.SEGMENTED_DOWNLOAD_THRESHOLD)) {
+			segmentedDownloadThresholdInMegabytes = generalSettingsTree.get(ConfigurationKeys.SEGMENTED_DOWNLOAD_THRESHOLD)
+					.asInt(SEGMENTED_DOWNLOAD_THRESHOLD_DEFAULT);
+		}
+
+		if (generalSettingsTree.has(ConfigurationKeys.DOWNLOAD_SEGMENTS)) {
+			downloadSegments = generalSettingsTree.get(ConfigurationKeys.DOWNLOAD_SEGMENTS).asInt(DOWNLOAD_SEGMENTS_DEFAULT);
+		}
+	}
+
 	private Configuration createHarvesterConfigurations(String harvesterName, JSONObject harvesterConfiguration,
 											   String configurationFileDirectoryPathString) throws IOException {
 		String harvesterClassName = harvesterConfiguration.getString(ConfigurationKeys.CLASS_NAME);
@@ -239,4 +427,12 @@ public class HarvesterConfigurator {
 			configuration.put(key, defaultValue);
 		}
 	}
+
+	class InvalidConfigurationException extends IOException {
+		private static final long serialVersionUID = 4719836652108347521L;
+
+		InvalidConfigurationException(String s) {
+			super(s);
+		}
+	}
 }
@@ -0,0 +1,236 @@
+package de.biofid.services.crawler;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/***
+ * A staged pipeline that moves {@link Item}s from discovery over filtering and downloading to the metadata writing.
+ *
+ * The discovery runs on the calling thread, because the {@link Harvester#nextItem(Item)} implementations are
+ * stateful iterators. All subsequent stages run on their own worker threads and are connected by bounded queues.
+ * Hence, the metadata lookup for the next item overlaps with the file downloads of the current one, while the queue
+ * capacity limits how far the discovery can run ahead of the downloads.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class HarvestingPipeline {
+
+	public static final int QUEUE_CAPACITY_DEFAULT = 16;
+	public static final int WORKERS_DEFAULT = 1;
+
+	// Marks the end of the item stream. It is passed through all stages.
+	private static final Item END_OF_STREAM = new Item();
+
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	private final String pipelineName;
+	private final int queueCapacity;
+	private final int filterWorkers;
+	private final int downloadWorkers;
+	private final int metadataWorkers;
+
+	public HarvestingPipeline(String pipelineName, int queueCapacity,
+							  int filterWorkers, int downloadWorkers, int metadataWorkers) {
+		this.pipelineName = pipelineName;
+		this.queueCapacity = Math.max(1, queueCapacity);
+		this.filterWorkers = Math.max(1, filterWorkers);
+		this.downloadWorkers = Math.max(1, downloadWorkers);
+		this.metadataWorkers = Math.max(1, metadataWorkers);
+	}
+
+	/***
+	 * Runs the pipeline until the discovery is exhausted and all discovered items passed all stages.
+	 * This method blocks until all stages are done.
+	 *
+	 * @param discovery Returns the next item or null, if there are no more items.
+	 * @param filter Returns true, if the item shall be processed further.
+	 * @param download Downloads the text files of an item.
+	 * @param metadataWriter Writes the metadata of an item.
+	 * @return True, if all items were discovered and processed. False, if the discovery failed, a worker died or the
+	 * pipeline was interrupted.
+	 */
+	public boolean run(Supplier<Item> discovery, Predicate<Item> filter,
+					Consumer<Item> download, Consumer<Item> metadataWriter) {
+		BlockingQueue<Item> discoveredItems = new ArrayBlockingQueue<>(queueCapacity);
+		BlockingQueue<Item> acceptedItems = new ArrayBlockingQueue<>(queueCapacity);
+		BlockingQueue<Item> downloadedItems = new ArrayBlockingQueue<>(queueCapacity);
+
+		ExecutorService executor = Executors.newFixedThreadPool(
+				filterWorkers + downloadWorkers + metadataWorkers, new StageThreadFactory(pipelineName));
+		List<Future<?>> workers = new ArrayList<>();
+
+		workers.addAll(startStage(executor, "filter", filterWorkers, discoveredItems, acceptedItems,
+				item -> filter.test(item)));
+		workers.addAll(startStage(executor, "download", downloadWorkers, acceptedItems, downloadedItems,
+				item -> {
+					download.accept(item);
+					return true;
+				}));
+		workers.addAll(startStage(executor, "metadata", metadataWorkers, downloadedItems, null,
+				item -> {
+					metadataWriter.accept(item);
+					return true;
+				}));
+
+		try {
+			boolean isDiscoveryComplete = discover(discovery, discoveredItems);
+			boolean areWorkersComplete = awaitWorkers(workers);
+			return isDiscoveryComplete && areWorkersComplete;
+		} catch (InterruptedException ex) {
+			logger.error("The pipeline {} was interrupted!", pipelineName);
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/***
+	 * Feeds the discovered items into the pipeline.
+	 * @return False, if the discovery stopped with an error.
+	 */
+	private boolean discover(Supplier<Item> discovery, BlockingQueue<Item> discoveredItems)
+			throws InterruptedException {
+		try {
+			while (true) {
+				Item item = discovery.get();
+				if (item == null) {
+					return true;
+				}
+				discoveredItems.put(item);
+			}
+		} catch (RuntimeException ex) {
+			logger.error("The item discovery of {} failed! Processing the items discovered so far. Error: {}",
+					pipelineName, ex.getMessage());
+			return false;
+		} finally {
+			discoveredItems.put(END_OF_STREAM);
+		}
+	}
+
+	/***
+	 * Waits until all workers finished.
+	 * @return False, if a worker died.
+	 */
+	private boolean awaitWorkers(List<Future<?>> workers) throws InterruptedException {
+		boolean areWorkersComplete = true;
+		for (Future<?> worker : workers) {
+			try {
+				worker.get();
+			} catch (ExecutionException ex) {
+				logger.error("A worker of the pipeline {} failed: {}", pipelineName, ex.getCause().toString());
+				areWorkersComplete = false;
+			}
+		}
+		return areWorkersComplete;
+	}
+
+	private List<Future<?>> startStage(ExecutorService executor, String stageName, int numberOfWorkers,
+									   BlockingQueue<Item> input, BlockingQueue<Item> output, Stage stage) {
+		AtomicInteger runningWorkers = new AtomicInteger(numberOfWorkers);
+		List<Future<?>> workers = new ArrayList<>();
+
+		for (int i = 0; i < numberOfWorkers; ++i) {
+			workers.add(executor.submit(() -> {
+				boolean isInputComplete = false;
+				try {
+					work(stageName, input, output, stage);
+					isInputComplete = true;
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				} finally {
+					// The last worker of a stage closes the next stage, even if it dies (e.g. by an Error)
+					if (runningWorkers.decrementAndGet() == 0) {
+						closeStage(stageName, input, output, isInputComplete);
+					}
+				}
+			}));
+		}
+
+		return workers;
+	}
+
+	private void work(String stageName, BlockingQueue<Item> input, BlockingQueue<Item> output, Stage stage)
+			throws InterruptedException {
+		while (true) {
+			Item item = input.take();
+			if (item == END_OF_STREAM) {
+				// Hand the marker back, so the sibling workers of this stage also stop
+				input.put(END_OF_STREAM);
+				return;
+			}
+
+			boolean passItemOn;
+			try {
+				passItemOn = stage.process(item);
+			} catch (RuntimeException ex) {
+				logger.error("Stage '{}' failed for item ID {}! Error: {}", stageName, item.getItemId(), ex.getMessage());
+				passItemOn = false;
+			}
+
+			if (passItemOn && output != null) {
+				output.put(item);
+			}
+		}
+	}
+
+	/***
+	 * Passes the end of the stream on to the next stage. If the workers of the stage died before the end of their
+	 * input, the remaining input is discarded first, so the previous stage is not blocked by a full queue.
+	 */
+	private void closeStage(String stageName, BlockingQueue<Item> input, BlockingQueue<Item> output,
+							boolean isInputComplete) {
+		try {
+			if (!isInputComplete && !Thread.currentThread().isInterrupted()) {
+				logger.error("All workers of stage '{}' died! The remaining items are not processed.", stageName);
+				while (input.take() != END_OF_STREAM) {
+					// Discard the item
+				}
+			}
+
+			if (output != null) {
+				output.put(END_OF_STREAM);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@FunctionalInterface
+	private interface Stage {
+		boolean process(Item item);
+	}
+
+	private static class StageThreadFactory implements ThreadFactory {
+		private final String namePrefix;
+		private final AtomicInteger threadCounter = new AtomicInteger(1);
+
+		StageThreadFactory(String namePrefix) {
+			this.namePrefix = namePrefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, namePrefix + "-worker-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package de.biofid.services.crawler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import de.biofid.services.crawler.http.ApiResponseCache;
+import de.biofid.services.crawler.http.HttpFetcher;
+import de.biofid.services.crawler.http.JsonStreamReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
+
+/***
+ * Retrieves the file listings of Internet Archive items.
+ *
+ * A listing can be prefetched, so it is requested in the background while other items are processed. Listings are
+ * stored in the given response cache, including the empty listings of identifiers that do not exist. So, every
+ * identifier is requested only once as long as its listing is cached. If a downloaded file does not match its cached
+ * listing, the listing is requested again, because the file may have changed on the Internet Archive since.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+class InternetArchiveClient {
+
+	public static final String CACHE_OPERATION = "InternetArchiveFiles";
+	public static final String METADATA_API_URL = "https://archive.org/metadata/";
+	public static final int PREFETCH_WORKERS_DEFAULT = 4;
+
+	private static final String IDENTIFIER = "identifier";
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	private final String metadataApiUrl;
+	private final ApiResponseCache responseCache;
+	private final Map<String, Future<Optional<InternetArchiveFileListing>>> prefetchedListings =
+			new ConcurrentHashMap<>();
+	private final ThreadPoolExecutor executor;
+
+	/***
+	 * @param responseCache The cache for the listings or null, if they are not cached.
+	 */
+	InternetArchiveClient(ApiResponseCache responseCache) {
+		this(METADATA_API_URL, responseCache);
+	}
+
+	/***
+	 * @param metadataApiUrl The URL of the metadata API, which the identifier is appended to.
+	 * @param responseCache The cache for the listings or null, if they are not cached.
+	 */
+	InternetArchiveClient(String metadataApiUrl, ApiResponseCache responseCache) {
+		this.metadataApiUrl = metadataApiUrl;
+		this.responseCache = responseCache;
+		this.executor = DaemonThreadPool.create("internet-archive-listing", PREFETCH_WORKERS_DEFAULT);
+	}
+
+	/***
+	 * Starts retrieving the listing of the given identifier in the background.
+	 */
+	void prefetchFileListing(String identifier) {
+		prefetchedListings.computeIfAbsent(identifier, id -> executor.submit(() -> retrieveFileListing(id)));
+	}
+
+	/***
+	 * Returns the listing of the given identifier. A prefetched listing is awaited.
+	 * @return The listing or nothing, if it could not be retrieved.
+	 */
+	Optional<InternetArchiveFileListing> getFileListing(String identifier) {
+		Future<Optional<InternetArchiveFileListing>> prefetchedListing = prefetchedListings.remove(identifier);
+		if (prefetchedListing == null) {
+			return retrieveFileListing(identifier);
+		}
+
+		try {
+			return prefetchedListing.get();
+		} catch (ExecutionException ex) {
+			logger.warn("Could not retrieve the file listing of {}! Reason: {}", identifier,
+					ex.getCause().getMessage());
+		} catch (InterruptedException ex) {
+			prefetchedListing.cancel(true);
+			Thread.currentThread().interrupt();
+		}
+		return Optional.empty();
+	}
+
+	/***
+	 * Creates a supplier that requests the listing of the given identifier again, replacing the cached one. The
+	 * listing is requested only on the first call, all files of the identifier share the result.
+	 */
+	Supplier<Optional<InternetArchiveFileListing>> createCurrentFileListingSupplier(String identifier) {
+		return new Supplier<>() {
+			private Optional<InternetArchiveFileListing> currentListing = null;
+
+			@Override
+			public synchronized Optional<InternetArchiveFileListing> get() {
+				if (currentListing == null) {
+					currentListing = refreshFileListing(identifier);
+				}
+				return currentListing;
+			}
+		};
+	}
+
+	/***
+	 * Requests the listing of the given identifier again, bypassing the cached one.
+	 * @return The current listing or nothing, if it could not be retrieved.
+	 */
+	Optional<InternetArchiveFileListing> refreshFileListing(String identifier) {
+		logger.info("Requesting the file listing of {} again, because it may be outdated.", identifier);
+		if (responseCache != null) {
+			responseCache.remove(CACHE_OPERATION, createCacheKey(identifier));
+		}
+		return requestAndCacheFileListing(identifier);
+	}
+
+	private Optional<InternetArchiveFileListing> retrieveFileListing(String identifier) {
+		if (responseCache != null) {
+			Optional<String> cachedListing = responseCache.get(CACHE_OPERATION, createCacheKey(identifier));
+			if (cachedListing.isPresent()) {
+				try (JsonParser parser = JsonStreamReader.createParser(cachedListing.get())) {
+					return Optional.of(InternetArchiveFileListing.read(identifier, parser));
+				} catch (IOException ex) {
+					logger.warn("Could not read the cached file listing of {}! Reason: {}", identifier,
+							ex.getMessage());
+				}
+			}
+		}
+
+		return requestAndCacheFileListing(identifier);
+	}
+
+	private Optional<InternetArchiveFileListing> requestAndCacheFileListing(String identifier) {
+		InternetArchiveFileListing fileListing;
+		try {
+			fileListing = requestFileListing(identifier);
+		} catch (IOException ex) {
+			logger.warn("Could not retrieve the file listing of {}! Reason: {}", identifier, ex.getMessage());
+			return Optional.empty();
+		}
+
+		if (!fileListing.exists()) {
+			logger.info("The Internet Archive does not list any files for {}.", identifier);
+		}
+		if (responseCache != null) {
+			responseCache.put(CACHE_OPERATION, createCacheKey(identifier), fileListing.toJson().toString());
+		}
+		return Optional.of(fileListing);
+	}
+
+	private static Map<String, Object> createCacheKey(String identifier) {
+		return Collections.singletonMap(IDENTIFIER, identifier);
+	}
+
+	private InternetArchiveFileListing requestFileListing(String identifier) throws IOException {
+		String url = metadataApiUrl + URLEncoder.encode(identifier, StandardCharsets.UTF_8);
+		return HttpFetcher.getShared().getJson(url, Collections.emptyMap(),
+				parser -> InternetArchiveFileListing.read(identifier, parser));
+	}
+}
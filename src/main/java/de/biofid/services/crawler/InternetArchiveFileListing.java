@@ -0,0 +1,173 @@
+package de.biofid.services.crawler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import de.biofid.services.crawler.http.ExpectedFile;
+import de.biofid.services.crawler.http.JsonStreamReader;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/***
+ * All files of an Internet Archive item with their sizes and checksums, as listed by the metadata API
+ * (https://archive.org/metadata/<identifier>).
+ *
+ * The listing also tells the storage nodes, which hold the files of the item. Requesting a file from a node directly
+ * saves the redirect of https://archive.org/download/<identifier>/<file>. An identifier that does not exist has an
+ * empty listing.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+class InternetArchiveFileListing {
+
+	private static final String DIRECTORY = "dir";
+	private static final String FILES = "files";
+	private static final String PRIMARY_SERVER = "d1";
+	private static final String SECONDARY_SERVER = "d2";
+	private static final String WORKABLE_SERVERS = "workable_servers";
+	private static final List<String> NODE_FIELDS = Arrays.asList(DIRECTORY, PRIMARY_SERVER, SECONDARY_SERVER,
+			WORKABLE_SERVERS);
+	private static final String MD5 = "md5";
+	private static final String NAME = "name";
+	private static final String SIZE = "size";
+	private static final String HTTPS = "https://";
+	private static final List<String> FILE_FIELDS = Arrays.asList(NAME, SIZE, MD5);
+
+	private final String identifier;
+	private final Map<String, ExpectedFile> files;
+	private final List<String> servers;
+	private final String directory;
+
+	/***
+	 * @param identifier The identifier of the item.
+	 * @param files The files by name.
+	 * @param servers The storage nodes of the item, the primary one first.
+	 * @param directory The directory of the item on the storage nodes or null, if it is unknown.
+	 */
+	InternetArchiveFileListing(String identifier, Map<String, ExpectedFile> files, List<String> servers,
+							   String directory) {
+		this.identifier = identifier;
+		this.files = Collections.unmodifiableMap(new HashMap<>(files));
+		this.servers = Collections.unmodifiableList(new ArrayList<>(servers));
+		this.directory = directory;
+	}
+
+	/***
+	 * Reads the listing from a response of the metadata API. Only the name, size and checksum of the files and the
+	 * storage nodes are read.
+	 */
+	static InternetArchiveFileListing read(String identifier, JsonParser parser) throws IOException {
+		JsonStreamReader.expect(parser, JsonToken.START_OBJECT);
+		JsonStreamReader.FieldFilter fileFilter = JsonStreamReader.only(FILE_FIELDS);
+		JSONObject response = JsonStreamReader.readObject(parser, field -> {
+			if (FILES.equals(field)) {
+				return fileFilter;
+			}
+			return NODE_FIELDS.contains(field) ? JsonStreamReader.ALL_FIELDS : null;
+		});
+
+		Map<String, ExpectedFile> files = new HashMap<>();
+		JSONArray fileArray = response.optJSONArray(FILES);
+		for (int i = 0; fileArray != null && i < fileArray.length(); ++i) {
+			JSONObject file = fileArray.optJSONObject(i);
+			if (file == null || !file.has(NAME)) {
+				continue;
+			}
+
+			// The metadata API gives the size as string
+			long size;
+			try {
+				size = Long.parseLong(file.optString(SIZE));
+			} catch (NumberFormatException ex) {
+				size = ExpectedFile.UNKNOWN_SIZE;
+			}
+			files.put(file.getString(NAME), new ExpectedFile(size, file.optString(MD5, null)));
+		}
+
+		// The primary and secondary node first, then any other node that can serve the item
+		Set<String> servers = new LinkedHashSet<>();
+		for (String serverField : Arrays.asList(PRIMARY_SERVER, SECONDARY_SERVER)) {
+			if (!response.optString(serverField).isEmpty()) {
+				servers.add(response.getString(serverField));
+			}
+		}
+		JSONArray workableServers = response.optJSONArray(WORKABLE_SERVERS);
+		for (int i = 0; workableServers != null && i < workableServers.length(); ++i) {
+			servers.add(workableServers.getString(i));
+		}
+
+		return new InternetArchiveFileListing(identifier, files, new ArrayList<>(servers),
+				response.optString(DIRECTORY, null));
+	}
+
+	String getIdentifier() {
+		return identifier;
+	}
+
+	/***
+	 * @return False, if the identifier does not exist or has no files.
+	 */
+	boolean exists() {
+		return !files.isEmpty();
+	}
+
+	/***
+	 * Returns the size and checksum of the file with the given name, if the item has such a file.
+	 */
+	Optional<ExpectedFile> getFile(String fileName) {
+		return Optional.ofNullable(files.get(fileName));
+	}
+
+	/***
+	 * Returns the direct URLs of the given file on all storage nodes of the item, the primary node first.
+	 * @return The URLs or an empty list, if the storage nodes are unknown.
+	 */
+	List<String> getFileUrls(String fileName) {
+		if (directory == null || directory.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		String encodedFileName = URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20");
+		List<String> fileUrls = new ArrayList<>();
+		for (String server : servers) {
+			fileUrls.add(HTTPS + server + directory + "/" + encodedFileName);
+		}
+		return fileUrls;
+	}
+
+	/***
+	 * Converts the listing to a JSON in the form of the metadata API, which can be read again.
+	 */
+	JSONObject toJson() {
+		JSONArray fileArray = new JSONArray();
+		files.forEach((name, file) -> {
+			JSONObject fileJson = new JSONObject();
+			fileJson.put(NAME, name);
+			fileJson.put(SIZE, Long.toString(file.getSize()));
+			if (file.getMd5Checksum() != null) {
+				fileJson.put(MD5, file.getMd5Checksum());
+			}
+			fileArray.put(fileJson);
+		});
+		JSONObject listing = new JSONObject().put(FILES, fileArray);
+		if (directory != null) {
+			listing.put(DIRECTORY, directory);
+			listing.put(WORKABLE_SERVERS, new JSONArray(servers));
+		}
+		return listing;
+	}
+}
@@ -1,12 +1,14 @@
 package de.biofid.services.crawler;
 
+import de.biofid.services.crawler.http.DownloadResult;
+import de.biofid.services.crawler.http.ExpectedFile;
+import de.biofid.services.crawler.http.FileDownloader;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.XML;
-import org.texttechnologylab.utilities.helper.FileUtils;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
@@ -15,6 +17,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /***
  * An item holds all metadata of a single book or monography.
@@ -89,6 +94,7 @@ public class Item {
 	public static String METADATA_ITEM_SOURCE_STRING = "Source";
 	
 	public static final int JSON_N_SPACES_FOR_INDENTATION = 2;
+	public static final int PARALLEL_FILE_DOWNLOADS_MAXIMUM = 8;
 	
 	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
 		
@@ -97,10 +103,27 @@ public class Item {
 	private URL itemUrl;
 	private ArrayList<URL> textFileUrls = new ArrayList<>();
 	private ArrayList<FileType> textFileTypes = new ArrayList<>();
+	// By URL string, because URLs resolve their host to compare them
+	private Map<String, ExpectedFile> expectedTextFiles = new HashMap<>();
+	private Map<String, List<URL>> textFileMirrors = new HashMap<>();
 	private JSONObject itemMetadata = new JSONObject();
 	private JSONObject documentMetadata = itemMetadata;
 	private HashSet<String> createdTextFiles = new HashSet<>();
 	private boolean saveMetadataOnly = true;
+	private final List<DownloadResult> textFileResults = Collections.synchronizedList(new ArrayList<>());
+	private int failedFileDownloadCount = 0;
+
+	private static boolean isParallelFileDownloadEnabled = false;
+	private static final ThreadPoolExecutor fileDownloadExecutor = DaemonThreadPool.create("file-download",
+			PARALLEL_FILE_DOWNLOADS_MAXIMUM);
+
+	/***
+	 * If enabled, the text files of an item are downloaded at the same time instead of one after another.
+	 * At most {@link #PARALLEL_FILE_DOWNLOADS_MAXIMUM} files are downloaded at the same time over all items.
+	 */
+	public static void setParallelFileDownloadEnabled(boolean isEnabled) {
+		isParallelFileDownloadEnabled = isEnabled;
+	}
 
 	/***
 	 * Add a new key with an object to the metadata.
@@ -150,6 +173,40 @@ public class Item {
 		this.textFileTypes.add(type);
 	}
 	
+	/***
+	 * Add a file on the list to download, whose size and checksum are published by its host.
+	 * The downloaded file is verified against them.
+	 * @param sUrl The URL where the file can be downloaded.
+	 * @param type The type of the file (e.g. PDF or TXT).
+	 * @param expectedFile The published size and checksum of the file.
+	 */
+	public void addTextFileUrl(String sUrl, FileType type, ExpectedFile expectedFile) {
+		addTextFileUrl(sUrl, type);
+		expectedTextFiles.put(sUrl, expectedFile);
+	}
+	
+	/***
+	 * Add a file on the list to download, which is also offered directly by several mirrors. The file is downloaded
+	 * from the best mirror. If all mirrors fail, it is downloaded from the given URL.
+	 * @param sUrl The URL where the file can be downloaded. This is the URL stored in the metadata.
+	 * @param type The type of the file (e.g. PDF or TXT).
+	 * @param expectedFile The published size and checksum of the file.
+	 * @param mirrorUrls The URLs of the file on the mirrors.
+	 */
+	public void addTextFileUrl(String sUrl, FileType type, ExpectedFile expectedFile, List<String> mirrorUrls) {
+		addTextFileUrl(sUrl, type, expectedFile);
+		
+		List<URL> mirrors = new ArrayList<>();
+		for (String mirrorUrl : mirrorUrls) {
+			try {
+				mirrors.add(new URL(mirrorUrl));
+			} catch (MalformedURLException ex) {
+				logger.warn("Skipping the invalid mirror URL {}", mirrorUrl);
+			}
+		}
+		textFileMirrors.put(sUrl, mirrors);
+	}
+	
 	public long getItemId() {
 		return this.itemID;
 	}
@@ -160,6 +217,8 @@ public class Item {
 		this.dataSource = other.getDataSource();
 		this.textFileTypes = other.getTextFileTypes();
 		this.textFileUrls = other.getTextFileUrls();
+		this.expectedTextFiles = other.getExpectedTextFiles();
+		this.textFileMirrors = other.getTextFileMirrors();
 		this.itemMetadata = other.getItemMetadata();
 		this.documentMetadata = other.getDocumentMetadata();
 	}
@@ -216,6 +275,20 @@ public class Item {
 	public ArrayList<FileType> getTextFileTypes() {
 		return textFileTypes;
 	}
+	
+	/***
+	 * Returns the published size and checksum of the text files, which have any, by their URL.
+	 */
+	public Map<String, ExpectedFile> getExpectedTextFiles() {
+		return expectedTextFiles;
+	}
+	
+	/***
+	 * Returns the mirrors of the text files, which have any, by the URL of the text file.
+	 */
+	public Map<String, List<URL>> getTextFileMirrors() {
+		return textFileMirrors;
+	}
 
 	/**
 	 * Returns any non-normalized item metadata.
@@ -285,6 +358,8 @@ public class Item {
 	}
 	
 	public List<Path> writeTextFiles(String outputDirectory, boolean overwriteExistingFiles) {
+		textFileResults.clear();
+		failedFileDownloadCount = 0;
 
 		if (shallOnlyMetadataBeSaved()) {
 			return Collections.emptyList();
@@ -292,9 +367,9 @@ public class Item {
 
 		Path outputPath = Paths.get(outputDirectory, TEXT_OUTPUT_FOLDER_NAME);
 
-		ArrayList<Path> downloadedFiles = new ArrayList<>();
-		int failedFileDownloadCount = 0;
-
+		// The file paths are determined in order, so the deduplicated file names do not depend on the download order
+		List<URL> urlsToDownload = new ArrayList<>();
+		List<Path> filePathsToDownload = new ArrayList<>();
 		for (int i = 0; i < textFileUrls.toArray().length; ++i) {
 			URL fileUrl = textFileUrls.get(i);
 			FileType fileType = textFileTypes.get(i);
@@ -302,27 +377,48 @@ public class Item {
 			
 			if (textFilePath.toFile().exists() && !overwriteExistingFiles) {
 				logger.info("File {} exists already! Skipping!", textFilePath);
+				textFileResults.add(new DownloadResult(textFilePath, textFilePath.toFile().length(), null, false));
 				continue;
 			}
 			
 			createDirectoryIfNotExisting(textFilePath.getParent());
-			try {
-				if (downloadFile(fileUrl, textFilePath)) {
-					downloadedFiles.add(textFilePath);
-				}
-			} catch (DownloadFailedException ex) {
-				logger.info("Ignoring failed download! Continue processing item downloads!");
-				++failedFileDownloadCount;
-			}
+			urlsToDownload.add(fileUrl);
+			filePathsToDownload.add(textFilePath);
+		}
+
+		List<Path> downloadedFiles;
+		if (isParallelFileDownloadEnabled && urlsToDownload.size() > 1) {
+			downloadedFiles = downloadFilesInParallel(urlsToDownload, filePathsToDownload);
+		} else {
+			downloadedFiles = downloadFilesSequentially(urlsToDownload, filePathsToDownload);
 		}
 
-		if (failedFileDownloadCount == textFileUrls.size()) {
+		failedFileDownloadCount = filePathsToDownload.size() - downloadedFiles.size();
+		if (!urlsToDownload.isEmpty() && failedFileDownloadCount == urlsToDownload.size()) {
 			logger.error("All file downloads of item ID " + itemID + " failed downloading!");
 		}
 		
 		return downloadedFiles;
 	}
 
+	/***
+	 * Returns all text files of this item that exist after the last call of
+	 * {@link #writeTextFiles(String, boolean)}, whether they were downloaded or existed already.
+	 */
+	public List<DownloadResult> getTextFileResults() {
+		synchronized (textFileResults) {
+			return new ArrayList<>(textFileResults);
+		}
+	}
+
+	/***
+	 * Returns the number of text files that could not be downloaded by the last call of
+	 * {@link #writeTextFiles(String, boolean)}.
+	 */
+	public int getFailedFileDownloadCount() {
+		return failedFileDownloadCount;
+	}
+
 	public String getMetadataStringForFileType(FileType outputFormat)
 			throws UnsupportedOutputFormatException {
 		switch (outputFormat) {
@@ -405,11 +501,65 @@ public class Item {
 		return fileName;
 	}
 	
+	private List<Path> downloadFilesSequentially(List<URL> sourceUrls, List<Path> sinkFilePaths) {
+		List<Path> downloadedFiles = new ArrayList<>();
+		for (int i = 0; i < sourceUrls.size(); ++i) {
+			try {
+				if (downloadFile(sourceUrls.get(i), sinkFilePaths.get(i))) {
+					downloadedFiles.add(sinkFilePaths.get(i));
+				}
+			} catch (DownloadFailedException ex) {
+				logger.info("Ignoring failed download! Continue processing item downloads!");
+			}
+		}
+		return downloadedFiles;
+	}
+
+	/***
+	 * Downloads all files at the same time. The number of connections per host is limited by the
+	 * {@link de.biofid.services.crawler.http.HttpFetcher}.
+	 * @return The paths of all successfully downloaded files in the order of the given URLs.
+	 */
+	private List<Path> downloadFilesInParallel(List<URL> sourceUrls, List<Path> sinkFilePaths) {
+		List<Future<Boolean>> downloads = new ArrayList<>();
+		for (int i = 0; i < sourceUrls.size(); ++i) {
+			URL sourceUrl = sourceUrls.get(i);
+			Path sinkFilePath = sinkFilePaths.get(i);
+			downloads.add(fileDownloadExecutor.submit(() -> downloadFile(sourceUrl, sinkFilePath)));
+		}
+
+		List<Path> downloadedFiles = new ArrayList<>();
+		for (int i = 0; i < downloads.size(); ++i) {
+			try {
+				if (downloads.get(i).get()) {
+					downloadedFiles.add(sinkFilePaths.get(i));
+				}
+			} catch (ExecutionException ex) {
+				logger.info("Ignoring failed download! Continue processing item downloads!");
+			} catch (InterruptedException ex) {
+				logger.warn("Interrupted while waiting for the downloads of item ID {}!", itemID);
+				downloads.forEach(download -> download.cancel(true));
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		return downloadedFiles;
+	}
+
 	private boolean downloadFile(URL sourceUrl, Path sinkFilePath) throws DownloadFailedException {
 		try {
 			logger.info("Downloading file '{}' from URL: {}", sinkFilePath, sourceUrl);
-			FileUtils.downloadFile(sinkFilePath.toFile(), sourceUrl.toString());
-			logger.info("Download done!");
+			ExpectedFile expectedFile = expectedTextFiles.get(sourceUrl.toString());
+			List<URL> mirrorUrls = textFileMirrors.getOrDefault(sourceUrl.toString(), Collections.emptyList());
+			DownloadResult result = mirrorUrls.isEmpty() ?
+					FileDownloader.getShared().download(sourceUrl, sinkFilePath, expectedFile) :
+					FileDownloader.getShared().download(mirrorUrls, sourceUrl, sinkFilePath, expectedFile);
+			textFileResults.add(result);
+			if (result.isModified()) {
+				logger.info("Download done! Received {} bytes (MD5 {}).", result.getSize(), result.getMd5Checksum());
+			} else {
+				logger.info("File '{}' is unchanged on the host. Kept the existing file.", sinkFilePath);
+			}
 		} catch (IOException ex) {
 			throw new DownloadFailedException("An error happened while downloading from URL '" + 
 					sourceUrl + "'.\n" + "Error Message: " + ex.getMessage());
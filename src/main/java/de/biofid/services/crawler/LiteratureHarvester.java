@@ -3,11 +3,22 @@ package de.biofid.services.crawler;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import de.biofid.services.crawler.filter.Filter;
 import de.biofid.services.crawler.filter.FilterFactory;
+import de.biofid.services.crawler.http.FileDownloader;
+import de.biofid.services.crawler.http.HttpFetcher;
+import de.biofid.services.crawler.http.RateLimiter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -22,6 +33,7 @@ import org.apache.logging.log4j.Logger;
 public class LiteratureHarvester {
 
 	public static final String LOGGER_NAME = "global";
+	public static final String RESUME_ARGUMENT = "--resume";
 
 	public static String CONFIGURATION_FILE_PATH_STRING = "config/harvesting.yml";
 	
@@ -39,9 +51,31 @@ public class LiteratureHarvester {
 		}
 		
 		Harvester.setOutputDirectory(configurator.getBaseOutputPath());
+		Item.setParallelFileDownloadEnabled(configurator.isParallelFileDownloadEnabled());
+
+		RateLimiter rateLimiter = new RateLimiter();
+		rateLimiter.setDefaultRateLimit(configurator.getDefaultRateLimit());
+		rateLimiter.setRateLimits(configurator.getHostRateLimits());
+		rateLimiter.setMaximumRetries(configurator.getMaximumRetries());
+		RateLimiter.setShared(rateLimiter);
+
+		HttpFetcher httpFetcher = new HttpFetcher(Duration.ofSeconds(configurator.getConnectTimeoutInSeconds()),
+				Duration.ofSeconds(configurator.getReadTimeoutInSeconds()), configurator.getMaximumConnectionsPerHost());
+		HttpFetcher.setShared(httpFetcher);
+		FileDownloader.setShared(new FileDownloader(httpFetcher, configurator.getSegmentedDownloadThreshold(),
+				configurator.getDownloadSegments()));
 	}
 	
+	/***
+	 * Starts all configured harvesters.
+	 * @param args If "--resume" is given, every harvester continues where its last run was interrupted.
+	 */
 	public static void main(String[] args) {
+		if (Arrays.asList(args).contains(RESUME_ARGUMENT)) {
+			logger.info("Resuming interrupted runs.");
+			Harvester.setResumeEnabled(true);
+		}
+
 		LiteratureHarvester harvester = new LiteratureHarvester();
 		harvester.start();
 	}
@@ -83,6 +117,11 @@ public class LiteratureHarvester {
 	}
 	
 	public void start() {
+		if (configurator.isParallelHarvestingEnabled()) {
+			startInParallel();
+			return;
+		}
+
 		for (Configuration harvesterConfiguration : configurator.getConfigurations()) {
 			Harvester harvester = instantiateHarvester(harvesterConfiguration);
 			if (harvester != null) {
@@ -90,6 +129,58 @@ public class LiteratureHarvester {
 			}
 		}
 	}
+
+	/***
+	 * Runs every configured harvester on its own executor, so all sources are harvested at the same time.
+	 * The threads of the pipeline thread budget are distributed over the harvesters by a {@link ThreadBudget}.
+	 * This method returns when all harvesters are done.
+	 */
+	public void startInParallel() {
+		List<Configuration> harvesterConfigurations = configurator.getConfigurations();
+		List<String> harvesterNames = new ArrayList<>();
+		for (Configuration harvesterConfiguration : harvesterConfigurations) {
+			harvesterNames.add(harvesterConfiguration.getHarvesterName());
+		}
+
+		ThreadBudget threadBudget = new ThreadBudget(
+				configurator.getPipelineThreadBudget(), configurator.getHarvesterPipelineThreadLimits());
+		Map<String, Integer> threadsPerHarvester = threadBudget.distribute(harvesterNames);
+
+		List<ExecutorService> executors = new ArrayList<>();
+		Map<String, Future<?>> runningHarvesters = new LinkedHashMap<>();
+		for (Configuration harvesterConfiguration : harvesterConfigurations) {
+			String harvesterName = harvesterConfiguration.getHarvesterName();
+			int threadLimit = threadsPerHarvester.get(harvesterName);
+			harvesterConfiguration.limitPipelineThreads(threadLimit);
+
+			Harvester harvester = instantiateHarvester(harvesterConfiguration);
+			if (harvester == null) {
+				continue;
+			}
+
+			logger.info("Starting Harvester '{}' with up to {} pipeline threads.", harvesterName, threadLimit);
+			ExecutorService executor = Executors.newSingleThreadExecutor(
+					runnable -> new Thread(runnable, harvesterName));
+			executors.add(executor);
+			runningHarvesters.put(harvesterName, executor.submit(harvester::run));
+		}
+
+		for (Map.Entry<String, Future<?>> runningHarvester : runningHarvesters.entrySet()) {
+			try {
+				runningHarvester.getValue().get();
+			} catch (ExecutionException ex) {
+				logger.error("Harvester '{}' stopped with an error: {}",
+						runningHarvester.getKey(), ex.getCause().getLocalizedMessage());
+			} catch (InterruptedException ex) {
+				logger.error("Interrupted while waiting for Harvester '{}'!", runningHarvester.getKey());
+				executors.forEach(ExecutorService::shutdownNow);
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+
+		executors.forEach(ExecutorService::shutdown);
+	}
 	
 	@SuppressWarnings("unchecked")
 	private Constructor<Harvester> getHarvesterConstructorForName(String qualifiedHarvesterClassName) 
@@ -0,0 +1,142 @@
+package de.biofid.services.crawler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import de.biofid.services.crawler.http.JsonStreamReader;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/***
+ * Restricts the item metadata requested from an API to the parts that are actually needed.
+ *
+ * A projection decides which sub-structures of an item (pages, parts and OCR) are requested at all and which
+ * fields of the received metadata are kept. Nested fields are given as dot-separated paths (e.g. "Pages.PageID"
+ * keeps only the ID of every page). If no fields are given, all fields are kept. The fields are dropped while the
+ * metadata is parsed, so fields that are not kept are never held in memory.
+ *
+ * The page metadata is not requested by default. It is by far the largest part of an item (one record per scanned
+ * page) and it is not needed for harvesting, but it is built completely in memory while the item is processed.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class MetadataProjection {
+
+	public static final String FIELDS = "fields";
+	public static final String OCR = "ocr";
+	public static final String PAGES = "pages";
+	public static final String PARTS = "parts";
+	public static final boolean WANTS_PAGES_DEFAULT = false;
+
+	private static final String FIELD_SEPARATOR = "\\.";
+
+	private final boolean wantsPages;
+	private final boolean wantsOcr;
+	private final boolean wantsParts;
+	// Null, if all fields are kept
+	private final FieldSelection keptFields;
+	private final String keptFieldsDescription;
+
+	/***
+	 * @param wantsPages If the page metadata shall be requested.
+	 * @param wantsOcr If the OCR shall be requested.
+	 * @param wantsParts If the document parts shall be requested.
+	 * @param keptFields The (dot-separated) fields to keep or an empty collection to keep all fields.
+	 */
+	public MetadataProjection(boolean wantsPages, boolean wantsOcr, boolean wantsParts, Collection<String> keptFields) {
+		this.wantsPages = wantsPages;
+		this.wantsOcr = wantsOcr;
+		this.wantsParts = wantsParts;
+
+		if (keptFields.isEmpty()) {
+			this.keptFields = null;
+			this.keptFieldsDescription = "*";
+		} else {
+			this.keptFields = new FieldSelection();
+			keptFields.forEach(this.keptFields::add);
+			this.keptFieldsDescription = String.join(",", new TreeSet<>(keptFields));
+		}
+	}
+
+	/***
+	 * Creates a projection from the given configuration. Every setting is optional.
+	 * @param configuration The projection configuration. May be null.
+	 * @param requiredFields Fields that are always kept, if the fields are restricted at all.
+	 */
+	public static MetadataProjection fromConfiguration(JSONObject configuration, Collection<String> requiredFields) {
+		if (configuration == null) {
+			configuration = new JSONObject();
+		}
+
+		List<String> keptFields = new ArrayList<>();
+		JSONArray configuredFields = configuration.optJSONArray(FIELDS);
+		for (int i = 0; configuredFields != null && i < configuredFields.length(); ++i) {
+			keptFields.add(configuredFields.getString(i));
+		}
+		if (!keptFields.isEmpty()) {
+			keptFields.addAll(requiredFields);
+		}
+
+		return new MetadataProjection(configuration.optBoolean(PAGES, WANTS_PAGES_DEFAULT), configuration.optBoolean(OCR, false),
+				configuration.optBoolean(PARTS, true), keptFields);
+	}
+
+	public boolean wantsPages() {
+		return wantsPages;
+	}
+
+	public boolean wantsOcr() {
+		return wantsOcr;
+	}
+
+	public boolean wantsParts() {
+		return wantsParts;
+	}
+
+	/***
+	 * @return A unique description of the kept fields, e.g. to tell apart differently projected metadata.
+	 */
+	public String getKeptFieldsDescription() {
+		return keptFieldsDescription;
+	}
+
+	/***
+	 * Reads the metadata object the parser is positioned on. All fields that are not kept are skipped.
+	 */
+	public JSONObject read(JsonParser parser) throws IOException {
+		return JsonStreamReader.readObject(parser, keptFields == null ? JsonStreamReader.ALL_FIELDS : keptFields);
+	}
+
+	/***
+	 * A tree of the kept fields. A field without subfields is kept completely.
+	 */
+	private static class FieldSelection implements JsonStreamReader.FieldFilter {
+		private final Map<String, FieldSelection> subfields = new HashMap<>();
+		private boolean isKeptCompletely = false;
+
+		void add(String fieldPath) {
+			FieldSelection selection = this;
+			for (String field : fieldPath.trim().split(FIELD_SEPARATOR)) {
+				selection = selection.subfields.computeIfAbsent(field, f -> new FieldSelection());
+			}
+			selection.isKeptCompletely = true;
+		}
+
+		@Override
+		public JsonStreamReader.FieldFilter getFieldFilter(String field) {
+			FieldSelection selection = subfields.get(field);
+			if (selection != null && selection.isKeptCompletely) {
+				return JsonStreamReader.ALL_FIELDS;
+			}
+			return selection;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package de.biofid.services.crawler;
+
+import de.biofid.services.crawler.http.HttpStatusException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/***
+ * Reads all pages of a paged API result with several requests at the same time.
+ *
+ * The pages are requested in a sliding window: while the first pages are processed, the next ones are already
+ * requested. The results are collected in page order. The first empty page marks the end of the result; all
+ * requests for later pages are cancelled then. A failed page is retried a limited number of times, before the
+ * whole reading fails.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+class ParallelPageReader<T> {
+
+	public static final int PARALLEL_PAGES_DEFAULT = 4;
+	public static final int MAXIMUM_PAGE_RETRIES_DEFAULT = 3;
+
+	private static final int FIRST_PAGE = 1;
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	/***
+	 * Reads a single page. An empty page marks the end of the result.
+	 */
+	@FunctionalInterface
+	interface PageReader<T> {
+		List<T> read(int page) throws IOException;
+	}
+
+	private final PageReader<T> pageReader;
+	private final int parallelPages;
+	private final int maximumRetries;
+
+	/***
+	 * @param pageReader Reads a single page.
+	 * @param parallelPages The number of pages that are requested at the same time.
+	 * @param maximumRetries How often a failed page is requested again.
+	 */
+	ParallelPageReader(PageReader<T> pageReader, int parallelPages, int maximumRetries) {
+		this.pageReader = pageReader;
+		this.parallelPages = Math.max(1, parallelPages);
+		this.maximumRetries = Math.max(0, maximumRetries);
+	}
+
+	/***
+	 * Reads all pages up to the first empty one.
+	 * @return The entries of all pages in page order.
+	 * @throws IOException If a page could not be read, even after retrying it.
+	 */
+	List<T> readAll() throws IOException {
+		ThreadPoolExecutor executor = DaemonThreadPool.create("page-reader", parallelPages);
+
+		Deque<Future<List<T>>> requestedPages = new ArrayDeque<>();
+		List<T> entries = new ArrayList<>();
+		try {
+			int nextPage = FIRST_PAGE;
+			while (requestedPages.size() < parallelPages) {
+				requestedPages.add(submit(executor, nextPage++));
+			}
+
+			while (!requestedPages.isEmpty()) {
+				List<T> pageEntries = await(requestedPages.poll());
+				if (pageEntries.isEmpty()) {
+					break;
+				}
+
+				entries.addAll(pageEntries);
+				requestedPages.add(submit(executor, nextPage++));
+			}
+		} finally {
+			// The pages behind the end of the result are not needed
+			requestedPages.forEach(requestedPage -> requestedPage.cancel(true));
+			executor.shutdownNow();
+		}
+
+		return entries;
+	}
+
+	private Future<List<T>> submit(ThreadPoolExecutor executor, int page) {
+		return executor.submit(() -> readWithRetries(page));
+	}
+
+	private List<T> readWithRetries(int page) throws IOException {
+		for (int attempt = 0; ; ++attempt) {
+			try {
+				return pageReader.read(page);
+			} catch (HttpStatusException ex) {
+				// The host refused the request, so another attempt would not help
+				throw ex;
+			} catch (InterruptedIOException ex) {
+				throw ex;
+			} catch (IOException ex) {
+				if (attempt >= maximumRetries || Thread.currentThread().isInterrupted()) {
+					throw ex;
+				}
+				logger.warn("Could not read page {}! Retrying... Reason: {}", page, ex.getMessage());
+			}
+		}
+	}
+
+	private List<T> await(Future<List<T>> requestedPage) throws IOException {
+		try {
+			return requestedPage.get();
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading the pages!");
+		}
+	}
+}
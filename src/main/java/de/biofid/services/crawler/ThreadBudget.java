@@ -0,0 +1,105 @@
+package de.biofid.services.crawler;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Distributes a global number of pipeline threads over all harvesters running in parallel.
+ *
+ * The budget covers the discovery thread and the pipeline workers of every harvester. Threads that prefetch
+ * metadata or download files in parallel are not part of it, since their pools are bounded by their own settings.
+ *
+ * Every harvester needs at least {@link Configuration#MINIMUM_PIPELINE_THREADS} threads, one for its discovery and
+ * one for every pipeline stage. If the budget is too small for this, it is raised to the minimum and a warning is
+ * logged. Harvesters with an explicit thread limit get this limit. All other harvesters share the remaining threads
+ * equally. If the explicit limits exceed the budget, the threads above the minimum are scaled down proportionally.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class ThreadBudget {
+
+	private static final int MINIMUM_THREADS = Configuration.MINIMUM_PIPELINE_THREADS;
+
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	private final int globalThreadBudget;
+	private final Map<String, Integer> harvesterThreadLimits;
+
+	public ThreadBudget(int globalThreadBudget, Map<String, Integer> harvesterThreadLimits) {
+		this.globalThreadBudget = Math.max(1, globalThreadBudget);
+		this.harvesterThreadLimits = new HashMap<>(harvesterThreadLimits);
+	}
+
+	/***
+	 * Computes the number of threads for every given harvester name.
+	 * @param harvesterNames The names of all harvesters that will run in parallel.
+	 * @return A map with the harvester names as keys and their number of threads as values. Every harvester gets
+	 * at least {@link Configuration#MINIMUM_PIPELINE_THREADS} threads.
+	 */
+	public Map<String, Integer> distribute(List<String> harvesterNames) {
+		Map<String, Integer> threadsPerHarvester = new LinkedHashMap<>();
+		if (harvesterNames.isEmpty()) {
+			return threadsPerHarvester;
+		}
+
+		int threadBudget = globalThreadBudget;
+		int requiredThreads = MINIMUM_THREADS * harvesterNames.size();
+		if (threadBudget < requiredThreads) {
+			logger.warn("The pipeline thread budget of {} threads is too small for {} harvesters! Every harvester " +
+					"needs at least {} threads, so {} threads are used.", globalThreadBudget, harvesterNames.size(),
+					MINIMUM_THREADS, requiredThreads);
+			threadBudget = requiredThreads;
+		}
+
+		int explicitlyRequestedExtraThreads = 0;
+		int harvestersWithLimit = 0;
+		for (String harvesterName : harvesterNames) {
+			Integer limit = harvesterThreadLimits.get(harvesterName);
+			if (limit != null) {
+				explicitlyRequestedExtraThreads += Math.max(0, limit - MINIMUM_THREADS);
+				++harvestersWithLimit;
+			}
+		}
+		int harvestersWithoutLimit = harvesterNames.size() - harvestersWithLimit;
+
+		// Every harvester without an explicit limit keeps its minimum
+		int availableExtraThreads = threadBudget - requiredThreads;
+		double scalingFactor = 1.0;
+		if (explicitlyRequestedExtraThreads > availableExtraThreads) {
+			scalingFactor = (double) availableExtraThreads / explicitlyRequestedExtraThreads;
+			logger.warn("The configured harvester thread limits exceed the pipeline thread budget of {} threads! " +
+					"Scaling them down.", threadBudget);
+		}
+
+		int assignedThreads = 0;
+		for (String harvesterName : harvesterNames) {
+			Integer limit = harvesterThreadLimits.get(harvesterName);
+			if (limit != null) {
+				int extraThreads = (int) Math.floor(Math.max(0, limit - MINIMUM_THREADS) * scalingFactor);
+				int threads = MINIMUM_THREADS + extraThreads;
+				threadsPerHarvester.put(harvesterName, threads);
+				assignedThreads += threads;
+			}
+		}
+
+		if (harvestersWithoutLimit > 0) {
+			int fairShare = Math.max(MINIMUM_THREADS, (threadBudget - assignedThreads) / harvestersWithoutLimit);
+			for (String harvesterName : harvesterNames) {
+				threadsPerHarvester.putIfAbsent(harvesterName, fairShare);
+			}
+		}
+
+		return threadsPerHarvester;
+	}
+
+	public int getGlobalThreadBudget() {
+		return globalThreadBudget;
+	}
+}
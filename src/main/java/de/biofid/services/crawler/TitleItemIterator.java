@@ -0,0 +1,140 @@
+package de.biofid.services.crawler;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/***
+ * Iterates over a list of items followed by all items of a list of titles.
+ *
+ * The titles are resolved to their items lazily: only the next few titles are resolved ahead of the iteration,
+ * in parallel. So, the items of the first title can be processed while later titles are still being resolved and
+ * the items of all titles are never held in memory at once. The order of the items is the order of the titles.
+ * A title can be anything that comprises several items (e.g. a series or a collection), as long as the resolver
+ * knows it.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+class TitleItemIterator<T> implements Iterator<Object> {
+
+	public static final int PREFETCHED_TITLES_DEFAULT = 4;
+
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	/***
+	 * Resolves a title to the IDs of its items. Failures have to be handled by the resolver.
+	 */
+	@FunctionalInterface
+	interface TitleResolver<T> {
+		List<Long> resolve(T title);
+	}
+
+	private final Iterator<Object> itemIterator;
+	private final Iterator<T> titleIterator;
+	private final TitleResolver<T> titleResolver;
+	private final int prefetchedTitles;
+	private final Deque<Future<List<Long>>> resolvingTitles = new ArrayDeque<>();
+	private final ThreadPoolExecutor executor;
+	private Iterator<Long> currentTitleItems = Collections.emptyIterator();
+	private boolean isStopped = false;
+
+	/***
+	 * @param items The items to iterate first.
+	 * @param titles The titles, whose items are iterated after the given items.
+	 * @param titleResolver Resolves a single title.
+	 * @param prefetchedTitles The maximum number of titles that are resolved at the same time.
+	 */
+	TitleItemIterator(List<Object> items, List<T> titles, TitleResolver<T> titleResolver, int prefetchedTitles) {
+		this.itemIterator = items.iterator();
+		this.titleIterator = titles.iterator();
+		this.titleResolver = titleResolver;
+		this.prefetchedTitles = Math.max(1, prefetchedTitles);
+
+		this.executor = DaemonThreadPool.create("title-resolver", this.prefetchedTitles);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (itemIterator.hasNext()) {
+			// The titles are resolved while the single items are processed
+			if (!isStopped) {
+				prefetchTitles();
+			}
+			return true;
+		}
+
+		while (!currentTitleItems.hasNext()) {
+			if (isStopped) {
+				return false;
+			}
+
+			prefetchTitles();
+			Future<List<Long>> nextTitle = resolvingTitles.poll();
+			if (nextTitle == null) {
+				stop();
+				return false;
+			}
+
+			currentTitleItems = awaitTitle(nextTitle).iterator();
+		}
+
+		if (!isStopped) {
+			prefetchTitles();
+		}
+		return true;
+	}
+
+	@Override
+	public Object next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		if (itemIterator.hasNext()) {
+			return itemIterator.next();
+		}
+		return currentTitleItems.next();
+	}
+
+	/***
+	 * Starts resolving the upcoming titles, until the prefetch limit is reached.
+	 */
+	private void prefetchTitles() {
+		while (resolvingTitles.size() < prefetchedTitles && titleIterator.hasNext()) {
+			T title = titleIterator.next();
+			resolvingTitles.add(executor.submit(() -> titleResolver.resolve(title)));
+		}
+	}
+
+	private List<Long> awaitTitle(Future<List<Long>> title) {
+		try {
+			return title.get();
+		} catch (ExecutionException ex) {
+			logger.error("Could not resolve the items of a title! Reason: {}", ex.getCause().getMessage());
+		} catch (InterruptedException ex) {
+			logger.error("Interrupted while resolving the items of a title! The remaining titles are skipped.");
+			resolvingTitles.forEach(resolvingTitle -> resolvingTitle.cancel(true));
+			resolvingTitles.clear();
+			stop();
+			Thread.currentThread().interrupt();
+		}
+
+		return Collections.emptyList();
+	}
+
+	private void stop() {
+		isStopped = true;
+		executor.shutdown();
+	}
+}
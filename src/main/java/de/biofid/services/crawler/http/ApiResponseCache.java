@@ -0,0 +1,285 @@
+package de.biofid.services.crawler.http;
+
+import de.biofid.services.crawler.LiteratureHarvester;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/***
+ * A persistent cache for the JSON responses of an API.
+ *
+ * A response is stored per API operation and request parameters. The parameter order does not matter and parameters
+ * that do not change the response (e.g. the API key) can be ignored. Every operation has its own time to live;
+ * responses of operations without one are not cached at all. The cache is bounded in size: if it grows too large,
+ * the least recently used responses are evicted.
+ *
+ * Every response is stored in a file of its own in the cache directory, which survives restarts. The first line of
+ * a file is a header with the key and the storage time, the rest is the response as it was given. The modification
+ * time of a file is its last access, so the usage order survives restarts, too.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class ApiResponseCache {
+
+	public static final long MAXIMUM_SIZE_IN_BYTES_DEFAULT = 500L * 1024 * 1024;
+
+	private static final String CACHE_FILE_SUFFIX = ".json";
+	private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+	private static final String KEY = "key";
+	private static final String STORED_AT = "storedAt";
+	private static final char HEADER_END = '\n';
+
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	private final Path cacheDirectory;
+	private final long maximumSizeInBytes;
+	private final Map<String, Duration> timeToLivePerOperation;
+	private final Set<String> ignoredParameters;
+
+	// The sizes of all cache files in the order of their last access
+	private final LinkedHashMap<String, Long> cacheFileSizes = new LinkedHashMap<>(16, 0.75f, true);
+	private long cacheSizeInBytes = 0;
+
+	/***
+	 * @param cacheDirectory The directory to store the responses. Existing responses in it are used.
+	 * @param maximumSizeInBytes The maximum size of all stored responses.
+	 * @param timeToLivePerOperation How long the responses of an operation are valid.
+	 * @param ignoredParameters Parameters that are not part of the cache key.
+	 */
+	public ApiResponseCache(Path cacheDirectory, long maximumSizeInBytes, Map<String, Duration> timeToLivePerOperation,
+							Set<String> ignoredParameters) {
+		this.cacheDirectory = cacheDirectory;
+		this.maximumSizeInBytes = maximumSizeInBytes;
+		this.timeToLivePerOperation = new HashMap<>(timeToLivePerOperation);
+		this.ignoredParameters = new HashSet<>(ignoredParameters);
+
+		indexCacheDirectory();
+	}
+
+	/***
+	 * Checks if responses of the given operation are cached at all.
+	 */
+	public boolean isCached(String operation) {
+		return timeToLivePerOperation.containsKey(operation);
+	}
+
+	/***
+	 * Returns the stored response for the given request, if it exists and did not expire.
+	 */
+	public Optional<String> get(String operation, Map<String, Object> parameters) {
+		if (!isCached(operation)) {
+			return Optional.empty();
+		}
+
+		String key = createKey(operation, parameters);
+		String fileName = createFileName(key);
+		synchronized (this) {
+			if (!cacheFileSizes.containsKey(fileName)) {
+				return Optional.empty();
+			}
+		}
+
+		Path cacheFile = cacheDirectory.resolve(fileName);
+		try {
+			String content = Files.readString(cacheFile, StandardCharsets.UTF_8);
+			int headerEnd = content.indexOf(HEADER_END);
+			if (headerEnd < 0) {
+				throw new IOException("The header is missing.");
+			}
+
+			JSONObject header = new JSONObject(content.substring(0, headerEnd));
+			Instant expiry = Instant.ofEpochMilli(header.getLong(STORED_AT)).plus(timeToLivePerOperation.get(operation));
+			if (!key.equals(header.getString(KEY)) || Instant.now().isAfter(expiry)) {
+				remove(fileName);
+				return Optional.empty();
+			}
+
+			Files.setLastModifiedTime(cacheFile, FileTime.from(Instant.now()));
+			synchronized (this) {
+				// Marks the file as recently used
+				cacheFileSizes.get(fileName);
+			}
+
+			logger.debug("Serving {} from the response cache.", key);
+			return Optional.of(content.substring(headerEnd + 1));
+		} catch (IOException | JSONException ex) {
+			logger.warn("Could not read the cached response for {}! Reason: {}", key, ex.getMessage());
+			remove(fileName);
+			return Optional.empty();
+		}
+	}
+
+	/***
+	 * Stores the response of the given request, if the responses of its operation are cached.
+	 * The least recently used responses are evicted, if the cache grows too large.
+	 */
+	public void put(String operation, Map<String, Object> parameters, String response) {
+		if (!isCached(operation)) {
+			return;
+		}
+
+		String key = createKey(operation, parameters);
+		String fileName = createFileName(key);
+
+		JSONObject header = new JSONObject();
+		header.put(KEY, key);
+		header.put(STORED_AT, Instant.now().toEpochMilli());
+		byte[] content = (header.toString() + HEADER_END + response).getBytes(StandardCharsets.UTF_8);
+		if (content.length > maximumSizeInBytes) {
+			return;
+		}
+
+		Path cacheFile = cacheDirectory.resolve(fileName);
+		Path temporaryFile = cacheDirectory.resolve(fileName + TEMPORARY_FILE_SUFFIX + Thread.currentThread().getId());
+		try {
+			Files.createDirectories(cacheDirectory);
+			Files.write(temporaryFile, content);
+			Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			logger.warn("Could not cache the response for {}! Reason: {}", key, ex.getMessage());
+			try {
+				Files.deleteIfExists(temporaryFile);
+			} catch (IOException ignored) {
+				// Nothing left to do
+			}
+			return;
+		}
+
+		synchronized (this) {
+			Long previousSize = cacheFileSizes.put(fileName, (long) content.length);
+			cacheSizeInBytes += content.length - (previousSize == null ? 0 : previousSize);
+			evictLeastRecentlyUsed();
+		}
+	}
+
+	/***
+	 * Removes the stored response for the given request, e.g. because it turned out to be outdated.
+	 */
+	public void remove(String operation, Map<String, Object> parameters) {
+		if (isCached(operation)) {
+			remove(createFileName(createKey(operation, parameters)));
+		}
+	}
+
+	/***
+	 * @return The size of all stored responses in bytes.
+	 */
+	public synchronized long getSizeInBytes() {
+		return cacheSizeInBytes;
+	}
+
+	private void evictLeastRecentlyUsed() {
+		Iterator<Map.Entry<String, Long>> cacheFiles = cacheFileSizes.entrySet().iterator();
+		while (cacheSizeInBytes > maximumSizeInBytes && cacheFiles.hasNext()) {
+			Map.Entry<String, Long> cacheFile = cacheFiles.next();
+			cacheSizeInBytes -= cacheFile.getValue();
+			cacheFiles.remove();
+			deleteCacheFile(cacheFile.getKey());
+		}
+	}
+
+	private void remove(String fileName) {
+		synchronized (this) {
+			Long size = cacheFileSizes.remove(fileName);
+			if (size != null) {
+				cacheSizeInBytes -= size;
+			}
+		}
+		deleteCacheFile(fileName);
+	}
+
+	private void deleteCacheFile(String fileName) {
+		try {
+			Files.deleteIfExists(cacheDirectory.resolve(fileName));
+		} catch (IOException ex) {
+			logger.warn("Could not delete the cached response {}! Reason: {}", fileName, ex.getMessage());
+		}
+	}
+
+	/***
+	 * Reads all existing cache files in the order of their last access.
+	 */
+	private void indexCacheDirectory() {
+		if (!Files.isDirectory(cacheDirectory)) {
+			return;
+		}
+
+		List<Path> cacheFiles = new ArrayList<>();
+		try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(cacheDirectory)) {
+			for (Path file : directoryStream) {
+				String fileName = file.getFileName().toString();
+				if (fileName.endsWith(CACHE_FILE_SUFFIX)) {
+					cacheFiles.add(file);
+				} else if (fileName.contains(CACHE_FILE_SUFFIX + TEMPORARY_FILE_SUFFIX)) {
+					// Left over by a crash while storing a response
+					Files.deleteIfExists(file);
+				}
+			}
+
+			cacheFiles.sort(Comparator.comparing(this::getLastAccess));
+			for (Path cacheFile : cacheFiles) {
+				long size = Files.size(cacheFile);
+				cacheFileSizes.put(cacheFile.getFileName().toString(), size);
+				cacheSizeInBytes += size;
+			}
+		} catch (IOException ex) {
+			logger.warn("Could not read the response cache {}! Reason: {}", cacheDirectory, ex.getMessage());
+		}
+
+		evictLeastRecentlyUsed();
+		logger.info("Opened the response cache {} with {} responses ({} bytes).", cacheDirectory,
+				cacheFileSizes.size(), cacheSizeInBytes);
+	}
+
+	private FileTime getLastAccess(Path file) {
+		try {
+			return Files.getLastModifiedTime(file);
+		} catch (IOException ex) {
+			return FileTime.fromMillis(0);
+		}
+	}
+
+	/***
+	 * Creates a key from the operation and the sorted parameters, without the ignored ones.
+	 */
+	private String createKey(String operation, Map<String, Object> parameters) {
+		Map<String, String> normalizedParameters = new TreeMap<>();
+		parameters.forEach((name, value) -> {
+			if (!ignoredParameters.contains(name)) {
+				normalizedParameters.put(name, String.valueOf(value));
+			}
+		});
+
+		StringBuilder key = new StringBuilder(operation);
+		normalizedParameters.forEach((name, value) -> key.append('&').append(name).append('=').append(value));
+		return key.toString();
+	}
+
+	private String createFileName(String key) {
+		return Checksums.compute(Checksums.SHA_256, key.getBytes(StandardCharsets.UTF_8)) + CACHE_FILE_SUFFIX;
+	}
+}
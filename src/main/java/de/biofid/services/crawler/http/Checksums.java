@@ -0,0 +1,85 @@
+package de.biofid.services.crawler.http;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/***
+ * Computes the checksums that verify downloaded files and name stored responses.
+ *
+ * Checksums are given as lower case hex strings, as the Internet Archive publishes them.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class Checksums {
+
+	public static final String MD5 = "MD5";
+	public static final String SHA_256 = "SHA-256";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private Checksums() {}
+
+	/***
+	 * Creates a digest of the given algorithm.
+	 * @param algorithm An algorithm every Java platform supports, e.g. {@link #MD5} or {@link #SHA_256}.
+	 */
+	public static MessageDigest createDigest(String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException ex) {
+			// Every Java platform has to support MD5 and SHA-256
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/***
+	 * Computes the MD5 checksum of the given file. The file is streamed, so it is never held in memory completely.
+	 * @return The checksum as hex string.
+	 */
+	public static String computeMd5(Path file) throws IOException {
+		try (DigestInputStream inputStream = new DigestInputStream(Files.newInputStream(file), createDigest(MD5))) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (inputStream.read(buffer) != -1) {
+				// The stream updates the digest while it is read
+			}
+			return toHexString(inputStream.getMessageDigest().digest());
+		}
+	}
+
+	/***
+	 * Computes the checksum of the given content, e.g. to derive a file name from a text.
+	 * @return The checksum as hex string.
+	 */
+	public static String compute(String algorithm, byte[] content) {
+		return toHexString(createDigest(algorithm).digest(content));
+	}
+
+	public static String toHexString(byte[] bytes) {
+		StringBuilder hexString = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hexString.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hexString.toString();
+	}
+
+	/***
+	 * @throws NumberFormatException If the string is not a hex string.
+	 */
+	public static byte[] fromHexString(String hexString) {
+		if (hexString.length() % 2 != 0) {
+			throw new NumberFormatException("The hex string " + hexString + " has an odd length!");
+		}
+
+		byte[] bytes = new byte[hexString.length() / 2];
+		for (int i = 0; i < bytes.length; ++i) {
+			bytes[i] = (byte) Integer.parseInt(hexString.substring(2 * i, 2 * i + 2), 16);
+		}
+		return bytes;
+	}
+}
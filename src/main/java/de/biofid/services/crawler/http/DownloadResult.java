@@ -0,0 +1,59 @@
+package de.biofid.services.crawler.http;
+
+import java.nio.file.Path;
+
+/***
+ * A completely downloaded file or a file that is unchanged on its host since the last download.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class DownloadResult {
+
+	private final Path file;
+	private final long size;
+	private final String md5Checksum;
+	private final boolean isModified;
+
+	public DownloadResult(Path file, long size, String md5Checksum) {
+		this(file, size, md5Checksum, true);
+	}
+
+	public DownloadResult(Path file, long size, String md5Checksum, boolean isModified) {
+		this.file = file;
+		this.size = size;
+		this.md5Checksum = md5Checksum;
+		this.isModified = isModified;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	/***
+	 * @return The size of the file in bytes.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/***
+	 * @return The MD5 checksum of the file as lower case hex string.
+	 */
+	public String getMd5Checksum() {
+		return md5Checksum;
+	}
+
+	/***
+	 * @return False, if the host reported the file as unchanged and the existing file was kept.
+	 */
+	public boolean isModified() {
+		return isModified;
+	}
+
+	@Override
+	public String toString() {
+		return "{file=" + file + ", size=" + size + ", md5=" + md5Checksum + ", isModified=" + isModified + "}";
+	}
+}
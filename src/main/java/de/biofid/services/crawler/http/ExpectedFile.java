@@ -0,0 +1,76 @@
+package de.biofid.services.crawler.http;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/***
+ * The size and checksum of a file as published by its host, before the file is downloaded.
+ *
+ * Some hosts (e.g. the Internet Archive) list the files they offer together with their size and MD5 checksum.
+ * A downloaded file can be verified against them. If the listing may be outdated (e.g. because it was cached), the
+ * current size and checksum can be requested again before a download that does not match is discarded.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class ExpectedFile {
+
+	public static final long UNKNOWN_SIZE = -1;
+
+	private final long size;
+	private final String md5Checksum;
+	private final Supplier<Optional<ExpectedFile>> currentFileSupplier;
+
+	/***
+	 * @param size The size in bytes or {@link #UNKNOWN_SIZE}.
+	 * @param md5Checksum The MD5 checksum as hex string or null, if it is unknown.
+	 */
+	public ExpectedFile(long size, String md5Checksum) {
+		this(size, md5Checksum, null);
+	}
+
+	/***
+	 * @param size The size in bytes or {@link #UNKNOWN_SIZE}.
+	 * @param md5Checksum The MD5 checksum as hex string or null, if it is unknown.
+	 * @param currentFileSupplier Requests the current size and checksum from the host or null, if they are always
+	 *                            up to date.
+	 */
+	public ExpectedFile(long size, String md5Checksum, Supplier<Optional<ExpectedFile>> currentFileSupplier) {
+		this.size = size;
+		this.md5Checksum = md5Checksum == null || md5Checksum.isEmpty() ? null : md5Checksum.toLowerCase();
+		this.currentFileSupplier = currentFileSupplier;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/***
+	 * @return The MD5 checksum as lower case hex string or null, if it is unknown.
+	 */
+	public String getMd5Checksum() {
+		return md5Checksum;
+	}
+
+	/***
+	 * Checks if a file with the given size and checksum is the expected file. Unknown values are not compared.
+	 */
+	public boolean matches(long size, String md5Checksum) {
+		return (this.size == UNKNOWN_SIZE || this.size == size) &&
+				(this.md5Checksum == null || this.md5Checksum.equalsIgnoreCase(md5Checksum));
+	}
+
+	/***
+	 * Requests the current size and checksum of the file from its host.
+	 * @return The current file or nothing, if it is not listed anymore or can not be requested again.
+	 */
+	public Optional<ExpectedFile> requestCurrentFile() {
+		return currentFileSupplier == null ? Optional.empty() : currentFileSupplier.get();
+	}
+
+	@Override
+	public String toString() {
+		return "{size=" + size + ", md5=" + md5Checksum + "}";
+	}
+}
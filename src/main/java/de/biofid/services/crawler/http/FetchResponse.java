@@ -0,0 +1,76 @@
+package de.biofid.services.crawler.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/***
+ * A response of the {@link HttpFetcher} with a body that is not read yet.
+ *
+ * The response holds a connection permit of its host until it is closed. Hence, it always has to be closed,
+ * preferably with try-with-resources.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class FetchResponse implements Closeable {
+
+	private static final String CONTENT_LENGTH = "Content-Length";
+
+	private final HttpResponse<InputStream> response;
+	private final InputStream body;
+	private final Semaphore connectionPermit;
+	private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+	FetchResponse(HttpResponse<InputStream> response, InputStream body, Semaphore connectionPermit) {
+		this.response = response;
+		this.body = body;
+		this.connectionPermit = connectionPermit;
+	}
+
+	public int getStatusCode() {
+		return response.statusCode();
+	}
+
+	/***
+	 * @return The URI of the response, which differs from the requested one, if the request was redirected.
+	 */
+	public URI getUri() {
+		return response.uri();
+	}
+
+	public Optional<String> getHeader(String name) {
+		return response.headers().firstValue(name);
+	}
+
+	/***
+	 * @return The content length as given by the host or -1, if it is unknown.
+	 */
+	public long getContentLength() {
+		return response.headers().firstValueAsLong(CONTENT_LENGTH).orElse(-1);
+	}
+
+	/***
+	 * @return The (already decompressed) body of the response.
+	 */
+	public InputStream getBody() {
+		return body;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (isClosed.compareAndSet(false, true)) {
+			try {
+				body.close();
+			} finally {
+				connectionPermit.release();
+			}
+		}
+	}
+}
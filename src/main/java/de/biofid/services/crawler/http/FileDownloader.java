@@ -0,0 +1,718 @@
+package de.biofid.services.crawler.http;
+
+import de.biofid.services.crawler.DaemonThreadPool;
+import de.biofid.services.crawler.LiteratureHarvester;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/***
+ * Downloads files by streaming them into a temporary file next to the target file.
+ *
+ * The data is copied through a large direct buffer into a {@link FileChannel} and the MD5 checksum is computed
+ * while streaming. Only a completely downloaded file is moved (atomically, if supported by the file system) to its
+ * target path. Hence, a file at the target path is always complete and a crashed download only leaves a
+ * temporary file with the suffix {@link #PARTIAL_FILE_SUFFIX}.
+ *
+ * If the host supports range requests and identifies the file version by an ETag or its modification date, an
+ * interrupted download is resumed from the last written byte instead of starting over. This also works across
+ * runs, because the validators are stored next to the partial file. If the file changed on the host in the
+ * meantime, the host sends the complete new file.
+ *
+ * Files above a configurable size are split into byte ranges, which are fetched over several connections at the
+ * same time and written to their positions in the file. This helps with hosts that throttle every single
+ * connection. The number of segments is bounded by the connection limit per host of the {@link HttpFetcher}.
+ * The size is taken from the {@link ExpectedFile}, if it is listed, or from the response to the download request.
+ *
+ * The validators of every downloaded file are stored in a hidden file next to it. If the file is downloaded again,
+ * the request is conditional and an unchanged file is neither transferred nor written. If the host publishes the
+ * checksum of the file beforehand, the stored checksum is compared to it and no request is sent at all.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class FileDownloader {
+
+	public static final String PARTIAL_FILE_SUFFIX = ".part";
+	public static final String RESUME_STATE_FILE_SUFFIX = ".resume";
+	public static final long SEGMENTED_DOWNLOAD_DISABLED = 0;
+	public static final int DOWNLOAD_SEGMENTS_DEFAULT = 4;
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	private static final int MAXIMUM_RESUME_ATTEMPTS = 3;
+	private static final long MINIMUM_SEGMENT_SIZE = 1024 * 1024;
+
+	private static final String CONTENT_RANGE = "Content-Range";
+	private static final String IF_RANGE = "If-Range";
+	private static final String RANGE = "Range";
+	private static final int PARTIAL_CONTENT = 206;
+	private static final int NOT_MODIFIED = 304;
+	private static final int RANGE_NOT_SATISFIABLE = 416;
+	// Matches e.g. "bytes 1000-4999/5000"
+	private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+)");
+
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	private static FileDownloader sharedDownloader = new FileDownloader(HttpFetcher.getShared());
+
+	private final HttpFetcher httpFetcher;
+	private final long segmentedDownloadThreshold;
+	private final int maximumSegments;
+	// Segments of all files are downloaded by the same threads, so the number of threads is bounded
+	private final ThreadPoolExecutor segmentExecutor;
+
+	/***
+	 * Creates a downloader that downloads every file over a single connection.
+	 */
+	public FileDownloader(HttpFetcher httpFetcher) {
+		this(httpFetcher, SEGMENTED_DOWNLOAD_DISABLED, 1);
+	}
+
+	/***
+	 * @param httpFetcher The fetcher to send the requests with.
+	 * @param segmentedDownloadThreshold Files of at least this size in bytes are downloaded in segments.
+	 *                                   {@link #SEGMENTED_DOWNLOAD_DISABLED} disables segmented downloads.
+	 * @param maximumSegments The maximum number of segments per file. This is also the maximum number of segments
+	 *                        that are downloaded at the same time over all files.
+	 */
+	public FileDownloader(HttpFetcher httpFetcher, long segmentedDownloadThreshold, int maximumSegments) {
+		this.httpFetcher = httpFetcher;
+		this.segmentedDownloadThreshold = segmentedDownloadThreshold;
+		this.maximumSegments = Math.max(1, maximumSegments);
+
+		this.segmentExecutor = DaemonThreadPool.create("download-segment", this.maximumSegments);
+	}
+
+	public static FileDownloader getShared() {
+		return sharedDownloader;
+	}
+
+	public static void setShared(FileDownloader fileDownloader) {
+		sharedDownloader = fileDownloader;
+	}
+
+	/***
+	 * Downloads the given URL to the given file. An existing file is only replaced, if the download completes.
+	 * A resumable download that breaks off is resumed a few times before giving up. If the file was downloaded
+	 * before and is unchanged on the host, it is kept as is.
+	 * @param sourceUrl The URL to download.
+	 * @param targetFile The path of the downloaded file.
+	 * @return The downloaded file with its size and checksum.
+	 * @throws IOException If the download failed.
+	 */
+	public DownloadResult download(URL sourceUrl, Path targetFile) throws IOException {
+		return download(sourceUrl, targetFile, null);
+	}
+
+	/***
+	 * Downloads the given URL to the given file like {@link #download(URL, Path)} and verifies the downloaded file.
+	 * @param sourceUrl The URL to download.
+	 * @param targetFile The path of the downloaded file.
+	 * If the existing file has the published checksum already, it is kept without sending any request.
+	 * @param expectedFile The size and checksum published by the host or null, if they are unknown.
+	 * @return The downloaded file with its size and checksum.
+	 * @throws IOException If the download failed or the downloaded file is not the expected one.
+	 */
+	public DownloadResult download(URL sourceUrl, Path targetFile, ExpectedFile expectedFile) throws IOException {
+		if (expectedFile != null) {
+			Optional<DownloadResult> unchangedFile = findUnchangedFile(sourceUrl, targetFile, expectedFile);
+			if (unchangedFile.isPresent()) {
+				return unchangedFile.get();
+			}
+		}
+
+		Path partialFile = getPartialFile(targetFile);
+		Optional<FileValidators> validators = FileValidators.readForFile(targetFile, sourceUrl.toString());
+
+		// If the size of the file is unknown, the response of the download request decides on segmenting
+		boolean isSegmentable = isSegmentedDownloadEnabled() && !isResumable(partialFile);
+		if (isSegmentable && expectedFile != null && expectedFile.getSize() != ExpectedFile.UNKNOWN_SIZE) {
+			if (isLargeEnoughForSegments(expectedFile.getSize())) {
+				Optional<DownloadResult> result = tryToDownloadInSegments(sourceUrl, targetFile, partialFile,
+						validators, expectedFile);
+				if (result.isPresent()) {
+					return result.get();
+				}
+			}
+			isSegmentable = false;
+		}
+
+		int resumeAttempt = 0;
+
+		while (true) {
+			try {
+				boolean isFirstAttemptSegmentable = isSegmentable;
+				isSegmentable = false;
+				return downloadOnce(sourceUrl, targetFile, partialFile, validators, expectedFile,
+						isFirstAttemptSegmentable);
+			} catch (HttpStatusException ex) {
+				if (ex.getStatusCode() != RANGE_NOT_SATISFIABLE || resumeAttempt >= MAXIMUM_RESUME_ATTEMPTS) {
+					throw ex;
+				}
+				// The partial download was discarded, so the next attempt starts over
+				++resumeAttempt;
+			} catch (DiscardedPartialDownloadException ex) {
+				if (resumeAttempt >= MAXIMUM_RESUME_ATTEMPTS) {
+					throw ex;
+				}
+				++resumeAttempt;
+				logger.warn("{} Starting over (attempt {} of {}).", ex.getMessage(), resumeAttempt,
+						MAXIMUM_RESUME_ATTEMPTS);
+			} catch (IOException ex) {
+				if (resumeAttempt >= MAXIMUM_RESUME_ATTEMPTS || !isResumable(partialFile) ||
+						Thread.currentThread().isInterrupted()) {
+					throw ex;
+				}
+
+				++resumeAttempt;
+				logger.warn("The download of {} broke off after {} bytes! Resuming (attempt {} of {}). Reason: {}",
+						sourceUrl, Files.size(partialFile), resumeAttempt, MAXIMUM_RESUME_ATTEMPTS, ex.getMessage());
+			}
+		}
+	}
+
+	/***
+	 * Returns the path of the temporary file, which holds the data of the given file while it is downloaded.
+	 */
+	public static Path getPartialFile(Path targetFile) {
+		return targetFile.resolveSibling(targetFile.getFileName() + PARTIAL_FILE_SUFFIX);
+	}
+
+	/***
+	 * Downloads a file that is offered by several mirrors. The mirrors are tried in the order given by the shared
+	 * {@link MirrorSelector}, so the fastest and least loaded one is tried first. If a mirror fails, the next one is
+	 * tried. If all mirrors fail, the file is downloaded from the fallback URL.
+	 * @param mirrorUrls The direct URLs of the file on the mirrors.
+	 * @param fallbackUrl The URL that is used, if all mirrors fail (e.g. a URL that redirects to any mirror).
+	 * @param targetFile The path of the downloaded file.
+	 * @param expectedFile The size and checksum published by the host or null, if they are unknown.
+	 * @return The downloaded file with its size and checksum.
+	 * @throws IOException If the download failed from all URLs.
+	 */
+	public DownloadResult download(List<URL> mirrorUrls, URL fallbackUrl, Path targetFile, ExpectedFile expectedFile)
+			throws IOException {
+		MirrorSelector mirrorSelector = MirrorSelector.getShared();
+		List<URL> sourceUrls = new ArrayList<>(mirrorSelector.order(mirrorUrls));
+		sourceUrls.add(fallbackUrl);
+
+		IOException lastException = null;
+		for (URL sourceUrl : sourceUrls) {
+			long startTime = System.nanoTime();
+			mirrorSelector.recordStart(sourceUrl);
+			try {
+				DownloadResult result = download(sourceUrl, targetFile, expectedFile);
+				mirrorSelector.recordSuccess(sourceUrl, result.isModified() ? result.getSize() : 0,
+						TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+				return result;
+			} catch (InterruptedIOException ex) {
+				mirrorSelector.recordCancellation(sourceUrl);
+				throw ex;
+			} catch (IOException ex) {
+				mirrorSelector.recordFailure(sourceUrl);
+				lastException = ex;
+				logger.warn("Could not download {}! Trying the next mirror. Reason: {}", sourceUrl, ex.getMessage());
+			}
+		}
+
+		throw lastException;
+	}
+
+	/***
+	 * Checks if the existing target file is the expected file, so it does not have to be transferred again.
+	 * The checksum of the target file is read from its validators. If it has none (e.g. because it was downloaded
+	 * by an older version), the checksum is computed once and stored.
+	 */
+	private Optional<DownloadResult> findUnchangedFile(URL sourceUrl, Path targetFile, ExpectedFile expectedFile)
+			throws IOException {
+		if (expectedFile.getMd5Checksum() == null || !Files.exists(targetFile)) {
+			return Optional.empty();
+		}
+
+		long size = Files.size(targetFile);
+		if (expectedFile.getSize() != ExpectedFile.UNKNOWN_SIZE && expectedFile.getSize() != size) {
+			return Optional.empty();
+		}
+
+		Optional<String> storedChecksum = FileValidators.readMd5Checksum(targetFile);
+		String md5Checksum;
+		if (storedChecksum.isPresent()) {
+			md5Checksum = storedChecksum.get();
+		} else {
+			MessageDigest checksum = Checksums.createDigest(Checksums.MD5);
+			try (FileChannel fileChannel = FileChannel.open(targetFile, StandardOpenOption.READ)) {
+				updateChecksumWithFileContent(checksum, fileChannel, size);
+			}
+			md5Checksum = Checksums.toHexString(checksum.digest());
+			FileValidators.writeMd5Checksum(targetFile, sourceUrl.toString(), md5Checksum);
+		}
+
+		if (!expectedFile.matches(size, md5Checksum)) {
+			return Optional.empty();
+		}
+
+		logger.debug("The file {} has the published checksum {}. Keeping it.", targetFile, md5Checksum);
+		return Optional.of(new DownloadResult(targetFile, size, md5Checksum, false));
+	}
+
+	private static Path getResumeStateFile(Path partialFile) {
+		return partialFile.resolveSibling(partialFile.getFileName() + RESUME_STATE_FILE_SUFFIX);
+	}
+
+	/***
+	 * Sends a single download request, which resumes a partial download, if possible.
+	 * @param isSegmentable If true and the response announces a file that is large enough, the response is closed
+	 *                      and the file is downloaded in segments instead.
+	 */
+	private DownloadResult downloadOnce(URL sourceUrl, Path targetFile, Path partialFile,
+										Optional<FileValidators> validators, ExpectedFile expectedFile,
+										boolean isSegmentable) throws IOException {
+		String url = sourceUrl.toString();
+		Path resumeStateFile = getResumeStateFile(partialFile);
+
+		Optional<ResumeState> resumeState = ResumeState.read(resumeStateFile)
+				.filter(state -> state.isForUrl(url) && Files.exists(partialFile));
+		long offset = resumeState.isPresent() ? Files.size(partialFile) : 0;
+		if (resumeState.isEmpty()) {
+			deletePartialDownload(partialFile);
+		} else if (offset >= resumeState.get().getLength()) {
+			return completeResumedDownload(resumeState.get(), partialFile, targetFile, expectedFile);
+		}
+
+		ResumeState segmentedFileState = null;
+		URI segmentedFileUri = null;
+		HttpRequest.Builder request = httpFetcher.newRequest(HttpFetcher.toUri(sourceUrl));
+		if (offset > 0) {
+			logger.info("Resuming the download of {} at byte {}", url, offset);
+			request.header(RANGE, "bytes=" + offset + "-").header(IF_RANGE, resumeState.get().getValidator());
+		} else {
+			validators.ifPresent(fileValidators -> fileValidators.addConditionalHeaders(request));
+		}
+
+		try (FetchResponse response = httpFetcher.send(request.build())) {
+			if (response.getStatusCode() == NOT_MODIFIED && validators.isPresent()) {
+				return createNotModifiedResult(targetFile, validators.get());
+			}
+
+			if (isSegmentable && offset == 0) {
+				Optional<ResumeState> fileState = ResumeState.fromResponse(url, response);
+				if (fileState.isPresent() && isLargeEnoughForSegments(fileState.get().getLength())) {
+					segmentedFileState = fileState.get();
+					// Request the segments from the final location to avoid a redirect per segment
+					segmentedFileUri = response.getUri();
+				}
+			}
+
+			if (segmentedFileState == null) {
+				boolean isResumed = offset > 0 && response.getStatusCode() == PARTIAL_CONTENT;
+				long expectedSize;
+				String etag;
+				String lastModified;
+				if (isResumed) {
+					if (!isContentRangeValid(response, offset, resumeState.get().getLength())) {
+						deletePartialDownload(partialFile);
+						throw new DiscardedPartialDownloadException("The host sent an unexpected range for " + url +
+								"! Discarding the partial download.");
+					}
+					expectedSize = resumeState.get().getLength();
+					etag = resumeState.get().getEtag();
+					lastModified = resumeState.get().getLastModified();
+				} else {
+					if (offset > 0) {
+						logger.info("The host sent the complete file {}. It changed or does not support resuming.",
+								url);
+					}
+					offset = 0;
+					expectedSize = response.getContentLength();
+					etag = response.getHeader(ResumeState.ETAG).orElse(null);
+					lastModified = response.getHeader(ResumeState.LAST_MODIFIED).orElse(null);
+					Optional<ResumeState> newResumeState = ResumeState.fromResponse(url, response);
+					if (newResumeState.isPresent()) {
+						newResumeState.get().write(resumeStateFile);
+					} else {
+						Files.deleteIfExists(resumeStateFile);
+					}
+				}
+
+				MessageDigest checksum = Checksums.createDigest(Checksums.MD5);
+				long size;
+				try (FileChannel fileChannel = openPartialFile(partialFile, isResumed)) {
+					if (isResumed) {
+						updateChecksumWithFileContent(checksum, fileChannel, offset);
+					}
+					size = offset + transfer(Channels.newChannel(response.getBody()), fileChannel, checksum);
+
+					if (expectedSize >= 0 && size != expectedSize) {
+						throw new IOException("The download of " + url + " is incomplete! Received " + size +
+								" of " + expectedSize + " bytes.");
+					}
+
+					fileChannel.force(false);
+				}
+
+				return completeDownload(url, partialFile, targetFile, size, checksum, etag, lastModified, expectedFile);
+			}
+		} catch (HttpStatusException ex) {
+			// Any other status may be temporary, so the partial download is kept to be resumed later
+			if (ex.getStatusCode() == RANGE_NOT_SATISFIABLE) {
+				logger.info("Could not resume the download of {}! Starting over.", url);
+				deletePartialDownload(partialFile);
+			} else if (!isResumable(partialFile)) {
+				deletePartialDownload(partialFile);
+			}
+			throw ex;
+		} catch (IOException | RuntimeException ex) {
+			if (!isResumable(partialFile)) {
+				deletePartialDownload(partialFile);
+			}
+			throw ex;
+		}
+
+		// The response is closed, so its connection is free for the segments
+		Optional<DownloadResult> result = downloadInSegments(url, segmentedFileUri, segmentedFileState, targetFile,
+				partialFile, expectedFile);
+		if (result.isPresent()) {
+			return result.get();
+		}
+		return downloadOnce(sourceUrl, targetFile, partialFile, validators, expectedFile, false);
+	}
+
+	private boolean isSegmentedDownloadEnabled() {
+		return segmentedDownloadThreshold > SEGMENTED_DOWNLOAD_DISABLED && maximumSegments > 1 &&
+				httpFetcher.getMaximumConnectionsPerHost() > 1;
+	}
+
+	private boolean isLargeEnoughForSegments(long length) {
+		return length >= segmentedDownloadThreshold && getNumberOfSegments(length) >= 2;
+	}
+
+	private int getNumberOfSegments(long length) {
+		return (int) Math.min(Math.min(maximumSegments, httpFetcher.getMaximumConnectionsPerHost()),
+				Math.max(1, length / MINIMUM_SEGMENT_SIZE));
+	}
+
+	/***
+	 * Asks the host for the size of the file and downloads it in segments, if it is large enough. This is only
+	 * necessary, if the size of the file is known to be large already.
+	 * @return The downloaded file or nothing, if the file has to be downloaded over a single connection.
+	 */
+	private Optional<DownloadResult> tryToDownloadInSegments(URL sourceUrl, Path targetFile, Path partialFile,
+															 Optional<FileValidators> validators,
+															 ExpectedFile expectedFile) throws IOException {
+		String url = sourceUrl.toString();
+		URI fileUri;
+		Optional<ResumeState> fileState;
+		HttpRequest.Builder headRequest = httpFetcher.newRequest(HttpFetcher.toUri(sourceUrl))
+				.method("HEAD", HttpRequest.BodyPublishers.noBody());
+		validators.ifPresent(fileValidators -> fileValidators.addConditionalHeaders(headRequest));
+		try (FetchResponse response = httpFetcher.send(headRequest.build())) {
+			if (response.getStatusCode() == NOT_MODIFIED && validators.isPresent()) {
+				return Optional.of(createNotModifiedResult(targetFile, validators.get()));
+			}
+
+			// Request the segments from the final location to avoid a redirect per segment
+			fileUri = response.getUri();
+			fileState = ResumeState.fromResponse(url, response);
+		} catch (HttpStatusException ex) {
+			logger.debug("Could not determine the size of {}! Reason: {}", url, ex.getMessage());
+			return Optional.empty();
+		}
+
+		if (fileState.isEmpty() || !isLargeEnoughForSegments(fileState.get().getLength())) {
+			return Optional.empty();
+		}
+
+		return downloadInSegments(url, fileUri, fileState.get(), targetFile, partialFile, expectedFile);
+	}
+
+	/***
+	 * Downloads the given file in segments.
+	 * @return The downloaded file or nothing, if the file has to be downloaded over a single connection.
+	 */
+	private Optional<DownloadResult> downloadInSegments(String url, URI fileUri, ResumeState fileState,
+														Path targetFile, Path partialFile,
+														ExpectedFile expectedFile) throws IOException {
+		long length = fileState.getLength();
+		int numberOfSegments = getNumberOfSegments(length);
+
+		logger.info("Downloading {} ({} bytes) in {} segments", url, length, numberOfSegments);
+		try {
+			downloadSegments(fileUri, fileState, partialFile, numberOfSegments);
+
+			MessageDigest checksum = Checksums.createDigest(Checksums.MD5);
+			try (FileChannel fileChannel = FileChannel.open(partialFile, StandardOpenOption.READ)) {
+				updateChecksumWithFileContent(checksum, fileChannel, length);
+			}
+			return Optional.of(completeDownload(url, partialFile, targetFile, length, checksum,
+					fileState.getEtag(), fileState.getLastModified(), expectedFile));
+		} catch (InterruptedIOException ex) {
+			deletePartialDownload(partialFile);
+			throw ex;
+		} catch (IOException ex) {
+			logger.warn("The segmented download of {} failed! Downloading it over a single connection. Reason: {}",
+					url, ex.getMessage());
+			deletePartialDownload(partialFile);
+			return Optional.empty();
+		}
+	}
+
+	private void downloadSegments(URI fileUri, ResumeState fileState, Path partialFile, int numberOfSegments)
+			throws IOException {
+		long length = fileState.getLength();
+		long segmentSize = (length + numberOfSegments - 1) / numberOfSegments;
+
+		try (FileChannel fileChannel = FileChannel.open(partialFile, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			List<Future<?>> segments = new ArrayList<>();
+			for (long start = 0; start < length; start += segmentSize) {
+				long segmentStart = start;
+				long segmentEnd = Math.min(length, start + segmentSize) - 1;
+				segments.add(segmentExecutor.submit(() -> {
+					downloadSegment(fileUri, fileState, fileChannel, segmentStart, segmentEnd);
+					return null;
+				}));
+			}
+
+			try {
+				for (Future<?> segment : segments) {
+					segment.get();
+				}
+			} catch (ExecutionException ex) {
+				segments.forEach(segment -> segment.cancel(true));
+				Throwable cause = ex.getCause();
+				throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+			} catch (InterruptedException ex) {
+				segments.forEach(segment -> segment.cancel(true));
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while downloading " + fileUri);
+			}
+
+			fileChannel.force(false);
+		}
+	}
+
+	/***
+	 * Downloads the given byte range and writes it to the same position in the file.
+	 */
+	private void downloadSegment(URI fileUri, ResumeState fileState, FileChannel fileChannel, long start, long end)
+			throws IOException {
+		HttpRequest request = httpFetcher.newRequest(fileUri)
+				.header(RANGE, "bytes=" + start + "-" + end)
+				.header(IF_RANGE, fileState.getValidator())
+				.build();
+
+		try (FetchResponse response = httpFetcher.send(request)) {
+			if (response.getStatusCode() != PARTIAL_CONTENT ||
+					!isContentRangeValid(response, start, fileState.getLength())) {
+				throw new IOException("The host did not send the requested range " + start + "-" + end + " of " +
+						fileUri + "!");
+			}
+
+			ReadableByteChannel source = Channels.newChannel(response.getBody());
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			long position = start;
+			while (source.read(buffer) >= 0) {
+				if (buffer.hasRemaining()) {
+					continue;
+				}
+				position = writeAt(fileChannel, buffer, position);
+			}
+			position = writeAt(fileChannel, buffer, position);
+
+			if (position != end + 1) {
+				throw new IOException("The segment " + start + "-" + end + " of " + fileUri + " is incomplete!");
+			}
+		}
+	}
+
+	/***
+	 * Writes the content of the buffer to the given position of the file and clears the buffer.
+	 * @return The position after the written data.
+	 */
+	private long writeAt(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			position += fileChannel.write(buffer, position);
+		}
+		buffer.clear();
+		return position;
+	}
+
+	/***
+	 * Completes a download whose partial file already holds all bytes, e.g. if the previous run crashed right before
+	 * moving the file.
+	 */
+	private DownloadResult completeResumedDownload(ResumeState resumeState, Path partialFile, Path targetFile,
+												   ExpectedFile expectedFile) throws IOException {
+		long size = Files.size(partialFile);
+		if (size != resumeState.getLength()) {
+			deletePartialDownload(partialFile);
+			throw new IOException("The partial file " + partialFile + " is larger than the file on the host!");
+		}
+
+		MessageDigest checksum = Checksums.createDigest(Checksums.MD5);
+		try (FileChannel fileChannel = FileChannel.open(partialFile, StandardOpenOption.READ)) {
+			updateChecksumWithFileContent(checksum, fileChannel, size);
+		}
+		return completeDownload(resumeState.getUrl(), partialFile, targetFile, size, checksum,
+				resumeState.getEtag(), resumeState.getLastModified(), expectedFile);
+	}
+
+	/***
+	 * Moves the downloaded file into place, if it is the expected file. Otherwise, the download is discarded.
+	 */
+	private DownloadResult completeDownload(String url, Path partialFile, Path targetFile, long size,
+											MessageDigest checksum, String etag, String lastModified,
+											ExpectedFile expectedFile) throws IOException {
+		String md5Checksum = Checksums.toHexString(checksum.digest());
+		if (expectedFile != null && !expectedFile.matches(size, md5Checksum)) {
+			// The listing of the file may be outdated, if the host changed the file since it was listed
+			Optional<ExpectedFile> currentFile = expectedFile.requestCurrentFile();
+			if (currentFile.isEmpty() || !currentFile.get().matches(size, md5Checksum)) {
+				deletePartialDownload(partialFile);
+				throw new IOException("The download of " + url + " is corrupt! Received " + size +
+						" bytes with MD5 " + md5Checksum + ", but expected " + currentFile.orElse(expectedFile) + ".");
+			}
+			logger.info("The listing of {} was outdated. The download matches the current listing.", url);
+		}
+		moveIntoPlace(partialFile, targetFile);
+		Files.deleteIfExists(getResumeStateFile(partialFile));
+		new FileValidators(url, etag, lastModified, size, md5Checksum).writeForFile(targetFile);
+
+		DownloadResult result = new DownloadResult(targetFile, size, md5Checksum);
+		logger.debug("Downloaded {}", result);
+		return result;
+	}
+
+	private DownloadResult createNotModifiedResult(Path targetFile, FileValidators validators) {
+		logger.debug("The file {} is unchanged on the host. Keeping it.", targetFile);
+		return new DownloadResult(targetFile, validators.getSize(), validators.getMd5Checksum(), false);
+	}
+
+	private FileChannel openPartialFile(Path partialFile, boolean isResumed) throws IOException {
+		if (isResumed) {
+			FileChannel fileChannel = FileChannel.open(partialFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			fileChannel.position(fileChannel.size());
+			return fileChannel;
+		}
+		return FileChannel.open(partialFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+	}
+
+	/***
+	 * Checks that the host sends the requested range of the same file.
+	 */
+	private boolean isContentRangeValid(FetchResponse response, long offset, long length) {
+		Matcher contentRangeMatcher = CONTENT_RANGE_PATTERN.matcher(response.getHeader(CONTENT_RANGE).orElse(""));
+		return contentRangeMatcher.find() && Long.parseLong(contentRangeMatcher.group(1)) == offset &&
+				Long.parseLong(contentRangeMatcher.group(3)) == length;
+	}
+
+	/***
+	 * A partial download is resumable, if it holds any data and its resume state is known.
+	 */
+	private boolean isResumable(Path partialFile) throws IOException {
+		return Files.exists(partialFile) && Files.size(partialFile) > 0 &&
+				Files.exists(getResumeStateFile(partialFile));
+	}
+
+	private void deletePartialDownload(Path partialFile) throws IOException {
+		Files.deleteIfExists(partialFile);
+		Files.deleteIfExists(getResumeStateFile(partialFile));
+	}
+
+	/***
+	 * Copies the source into the file channel and updates the checksum with every copied byte.
+	 * The buffer is filled completely before it is written to keep the number of write calls low.
+	 * @return The number of copied bytes.
+	 */
+	private long transfer(ReadableByteChannel source, FileChannel sink, MessageDigest checksum) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		long transferredBytes = 0;
+		boolean isEndOfStream = false;
+
+		while (!isEndOfStream) {
+			while (buffer.hasRemaining()) {
+				if (source.read(buffer) < 0) {
+					isEndOfStream = true;
+					break;
+				}
+			}
+
+			buffer.flip();
+			transferredBytes += buffer.remaining();
+
+			checksum.update(buffer.duplicate());
+			while (buffer.hasRemaining()) {
+				sink.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		return transferredBytes;
+	}
+
+	/***
+	 * Updates the checksum with the first bytes of the given file. The position of the channel is not changed.
+	 */
+	private void updateChecksumWithFileContent(MessageDigest checksum, FileChannel fileChannel, long length)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		long position = 0;
+		while (position < length) {
+			buffer.limit((int) Math.min(BUFFER_SIZE, length - position));
+			int readBytes = fileChannel.read(buffer, position);
+			if (readBytes < 0) {
+				break;
+			}
+			position += readBytes;
+
+			buffer.flip();
+			checksum.update(buffer);
+			buffer.clear();
+		}
+	}
+
+	private void moveIntoPlace(Path partialFile, Path targetFile) throws IOException {
+		try {
+			Files.move(partialFile, targetFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException ex) {
+			Files.move(partialFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/***
+	 * The partial download did not match the response of the host and was discarded. The download has to start over.
+	 */
+	private static class DiscardedPartialDownloadException extends IOException {
+		private static final long serialVersionUID = -3306795428740372271L;
+
+		DiscardedPartialDownloadException(String s) {
+			super(s);
+		}
+	}
+}
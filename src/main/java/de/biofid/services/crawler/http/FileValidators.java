@@ -0,0 +1,164 @@
+package de.biofid.services.crawler.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Properties;
+
+/***
+ * The validators (ETag and modification date) of a downloaded file as sent by its host.
+ *
+ * They are stored in a hidden file next to the downloaded file. When the file is downloaded again, they are sent
+ * along with the request, so the host only sends the file, if it changed in the meantime. The checksum of the file
+ * is stored with them, so it can be compared to a checksum published by the host without reading the file.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+class FileValidators {
+
+	static final String VALIDATORS_FILE_SUFFIX = ".validators";
+
+	private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+	private static final String IF_NONE_MATCH = "If-None-Match";
+
+	private static final String URL_KEY = "url";
+	private static final String ETAG_KEY = "etag";
+	private static final String LAST_MODIFIED_KEY = "last-modified";
+	private static final String SIZE_KEY = "size";
+	private static final String MD5_KEY = "md5";
+	private static final String FILE_MODIFIED_KEY = "file-modified";
+
+	private final String url;
+	private final String etag;
+	private final String lastModified;
+	private final long size;
+	private final String md5Checksum;
+
+	FileValidators(String url, String etag, String lastModified, long size, String md5Checksum) {
+		this.url = url;
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.size = size;
+		this.md5Checksum = md5Checksum;
+	}
+
+	/***
+	 * Returns the path of the file, which holds the validators of the given file.
+	 */
+	static Path getValidatorsFile(Path file) {
+		return file.resolveSibling("." + file.getFileName() + VALIDATORS_FILE_SUFFIX);
+	}
+
+	/***
+	 * Reads the validators of the given file, if they belong to the given URL and the file is unchanged locally.
+	 * @return The validators or nothing, if the file has to be downloaded unconditionally.
+	 */
+	static Optional<FileValidators> readForFile(Path file, String url) {
+		return read(file).filter(validators -> url.equals(validators.url) && validators.hasValidator() &&
+				validators.md5Checksum != null);
+	}
+
+	/***
+	 * Reads the stored checksum of the given file, if the file is unchanged locally. It does not matter, from which
+	 * URL the file was downloaded.
+	 */
+	static Optional<String> readMd5Checksum(Path file) {
+		return read(file).map(validators -> validators.md5Checksum);
+	}
+
+	/***
+	 * Stores the given checksum for the given file. The validators stored for the file before are kept, if the file
+	 * is unchanged locally.
+	 * @param url The URL of the file, if no validators were stored before.
+	 */
+	static void writeMd5Checksum(Path file, String url, String md5Checksum) throws IOException {
+		long size = Files.size(file);
+		FileValidators validators = read(file)
+				.map(stored -> new FileValidators(stored.url, stored.etag, stored.lastModified, size, md5Checksum))
+				.orElseGet(() -> new FileValidators(url, null, null, size, md5Checksum));
+		validators.writeForFile(file);
+	}
+
+	private static Optional<FileValidators> read(Path file) {
+		Path validatorsFile = getValidatorsFile(file);
+		if (!Files.exists(file) || !Files.exists(validatorsFile)) {
+			return Optional.empty();
+		}
+
+		Properties properties = new Properties();
+		try (InputStream inputStream = Files.newInputStream(validatorsFile)) {
+			properties.load(inputStream);
+			FileValidators validators = new FileValidators(properties.getProperty(URL_KEY),
+					properties.getProperty(ETAG_KEY), properties.getProperty(LAST_MODIFIED_KEY),
+					Long.parseLong(properties.getProperty(SIZE_KEY)), properties.getProperty(MD5_KEY));
+
+			// The file must not have been changed locally since the validators were stored
+			String fileModified = properties.getProperty(FILE_MODIFIED_KEY);
+			if (Files.size(file) != validators.size ||
+					(fileModified != null && !fileModified.equals(Files.getLastModifiedTime(file).toString()))) {
+				return Optional.empty();
+			}
+			return Optional.of(validators);
+		} catch (IOException | NumberFormatException ex) {
+			return Optional.empty();
+		}
+	}
+
+	/***
+	 * Stores the validators and the checksum for the given file.
+	 */
+	void writeForFile(Path file) throws IOException {
+		Path validatorsFile = getValidatorsFile(file);
+		if (md5Checksum == null) {
+			Files.deleteIfExists(validatorsFile);
+			return;
+		}
+
+		Properties properties = new Properties();
+		properties.setProperty(URL_KEY, url);
+		properties.setProperty(SIZE_KEY, Long.toString(size));
+		properties.setProperty(MD5_KEY, md5Checksum);
+		properties.setProperty(FILE_MODIFIED_KEY, Files.getLastModifiedTime(file).toString());
+		if (etag != null) {
+			properties.setProperty(ETAG_KEY, etag);
+		}
+		if (lastModified != null) {
+			properties.setProperty(LAST_MODIFIED_KEY, lastModified);
+		}
+
+		try (OutputStream outputStream = Files.newOutputStream(validatorsFile)) {
+			properties.store(outputStream, null);
+		}
+	}
+
+	/***
+	 * Makes the given request conditional, so the host answers with "304 Not Modified", if the file is unchanged.
+	 */
+	HttpRequest.Builder addConditionalHeaders(HttpRequest.Builder request) {
+		if (etag != null) {
+			request.header(IF_NONE_MATCH, etag);
+		}
+		if (lastModified != null) {
+			request.header(IF_MODIFIED_SINCE, lastModified);
+		}
+		return request;
+	}
+
+	long getSize() {
+		return size;
+	}
+
+	String getMd5Checksum() {
+		return md5Checksum;
+	}
+
+	private boolean hasValidator() {
+		return etag != null || lastModified != null;
+	}
+}
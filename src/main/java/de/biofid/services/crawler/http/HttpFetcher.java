@@ -0,0 +1,252 @@
+package de.biofid.services.crawler.http;
+
+import com.fasterxml.jackson.core.JsonParser;
+import de.biofid.services.crawler.LiteratureHarvester;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/***
+ * The single HTTP layer of all harvesters.
+ *
+ * All requests go through one pooled {@link HttpClient}, which keeps the connections to a host alive and
+ * multiplexes requests over HTTP/2, if the host supports it. API responses and websites are requested gzip
+ * compressed. The number of concurrent connections per host is capped and every request is sent under the
+ * control of the shared {@link RateLimiter}.
+ *
+ * The read timeout limits both the wait for the response headers and every wait for further data of the body.
+ * A response that stalls while its body is read is closed, so it releases its connection permit.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class HttpFetcher {
+
+	public static final int CONNECT_TIMEOUT_SECONDS_DEFAULT = 30;
+	public static final int READ_TIMEOUT_SECONDS_DEFAULT = 120;
+	public static final int MAXIMUM_CONNECTIONS_PER_HOST_DEFAULT = 4;
+
+	private static final String ACCEPT_ENCODING = "Accept-Encoding";
+	private static final String CONTENT_ENCODING = "Content-Encoding";
+	private static final String CONTENT_TYPE = "Content-Type";
+	private static final String GZIP = "gzip";
+	private static final String RETRY_AFTER = "Retry-After";
+	private static final String USER_AGENT = "User-Agent";
+	private static final String USER_AGENT_NAME = "BIOfid LiteratureCrawler (https://www.biofid.de)";
+
+	private static final int FIRST_ERROR_STATUS = 400;
+	private static final Pattern CHARSET_PATTERN = Pattern.compile("charset=\"?([^\\s;\"]+)", Pattern.CASE_INSENSITIVE);
+
+	private static HttpFetcher sharedFetcher = new HttpFetcher(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS_DEFAULT),
+			Duration.ofSeconds(READ_TIMEOUT_SECONDS_DEFAULT), MAXIMUM_CONNECTIONS_PER_HOST_DEFAULT);
+
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	private final HttpClient httpClient;
+	private final Duration readTimeout;
+	private final int maximumConnectionsPerHost;
+	private final Map<String, Semaphore> hostConnectionPermits = new ConcurrentHashMap<>();
+
+	/***
+	 * @param connectTimeout The maximum time to establish a connection.
+	 * @param readTimeout The maximum time to wait for the response headers of a host and for further data of the
+	 *                    response body.
+	 * @param maximumConnectionsPerHost The maximum number of concurrent requests to a single host.
+	 */
+	public HttpFetcher(Duration connectTimeout, Duration readTimeout, int maximumConnectionsPerHost) {
+		this.readTimeout = readTimeout;
+		this.maximumConnectionsPerHost = Math.max(1, maximumConnectionsPerHost);
+		this.httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.connectTimeout(connectTimeout)
+				.build();
+	}
+
+	public static HttpFetcher getShared() {
+		return sharedFetcher;
+	}
+
+	public static void setShared(HttpFetcher httpFetcher) {
+		sharedFetcher = httpFetcher;
+	}
+
+	public int getMaximumConnectionsPerHost() {
+		return maximumConnectionsPerHost;
+	}
+
+	/***
+	 * Creates a GET request for the given URL with the default timeout and headers.
+	 * Further headers can be added to the returned builder.
+	 */
+	public HttpRequest.Builder newRequest(URI uri) {
+		return HttpRequest.newBuilder(uri)
+				.GET()
+				.timeout(readTimeout)
+				.header(USER_AGENT, USER_AGENT_NAME);
+	}
+
+	/***
+	 * Sends the given request. Requests answered with an overload status are retried.
+	 * @param request The request to send.
+	 * @return The response with a body that is still to be read. It has to be closed by the caller!
+	 * @throws HttpStatusException If the host responded with an error status.
+	 * @throws IOException If the request failed.
+	 */
+	public FetchResponse send(HttpRequest request) throws IOException {
+		URL url = request.uri().toURL();
+		return RateLimiter.getShared().execute(url, () -> sendOnce(request));
+	}
+
+	/***
+	 * Fetches the given URL as a string.
+	 */
+	public String getString(String url) throws IOException {
+		HttpRequest request = newRequest(URI.create(url)).header(ACCEPT_ENCODING, GZIP).build();
+		try (FetchResponse response = send(request)) {
+			Charset charset = getCharset(response).orElse(StandardCharsets.UTF_8);
+			return new String(response.getBody().readAllBytes(), charset);
+		}
+	}
+
+	/***
+	 * Fetches the given URL with the given query parameters and parses the response as JSON.
+	 */
+	public JSONObject getJson(String url, Map<String, Object> queryParameters) throws IOException {
+		return getJson(url, queryParameters,
+				parser -> JsonStreamReader.readObject(parser, JsonStreamReader.ALL_FIELDS));
+	}
+
+	/***
+	 * Fetches the given URL with the given query parameters and reads the JSON response while it is received.
+	 * The response is never held in memory as a whole.
+	 * @param responseReader Reads the response. The parser is positioned on the first token of the response.
+	 */
+	public <T> T getJson(String url, Map<String, Object> queryParameters, JsonResponseReader<T> responseReader)
+			throws IOException {
+		String requestUrl = queryParameters.isEmpty() ? url : url + "?" + toQueryString(queryParameters);
+		HttpRequest request = newRequest(URI.create(requestUrl)).header(ACCEPT_ENCODING, GZIP).build();
+		try (FetchResponse response = send(request);
+			 JsonParser parser = JsonStreamReader.createParser(response.getBody())) {
+			return responseReader.read(parser);
+		}
+	}
+
+	/***
+	 * Fetches and parses the website at the given URL.
+	 */
+	public Document getDocument(String url) throws IOException {
+		HttpRequest request = newRequest(URI.create(url)).header(ACCEPT_ENCODING, GZIP).build();
+		try (FetchResponse response = send(request)) {
+			String charsetName = getCharset(response).map(Charset::name).orElse(null);
+			return Jsoup.parse(response.getBody(), charsetName, response.getUri().toString());
+		}
+	}
+
+	private FetchResponse sendOnce(HttpRequest request) throws IOException {
+		Semaphore connectionPermit = getConnectionPermit(request.uri().getHost());
+		try {
+			connectionPermit.acquire();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a connection to " + request.uri());
+		}
+
+		try {
+			logger.debug("Requesting {}", request.uri());
+			HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+			int statusCode = response.statusCode();
+
+			if (OverloadedException.isOverloadStatus(statusCode)) {
+				response.body().close();
+				throw new OverloadedException("HTTP " + statusCode + " for URL " + request.uri(), statusCode,
+						OverloadedException.parseRetryAfter(response.headers().firstValue(RETRY_AFTER).orElse(null)));
+			} else if (statusCode >= FIRST_ERROR_STATUS) {
+				response.body().close();
+				throw new HttpStatusException(statusCode, request.uri());
+			}
+
+			InputStream body = new IdleTimeoutInputStream(response.body(), readTimeout);
+			return new FetchResponse(response, decodeBody(request, response, body), connectionPermit);
+		} catch (InterruptedException ex) {
+			connectionPermit.release();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while requesting " + request.uri());
+		} catch (IOException | RuntimeException ex) {
+			connectionPermit.release();
+			throw ex;
+		}
+	}
+
+	private InputStream decodeBody(HttpRequest request, HttpResponse<InputStream> response, InputStream body)
+			throws IOException {
+		boolean isCompressionRequested = request.headers().firstValue(ACCEPT_ENCODING).isPresent();
+		String contentEncoding = response.headers().firstValue(CONTENT_ENCODING).orElse("");
+		if (isCompressionRequested && contentEncoding.equalsIgnoreCase(GZIP)) {
+			try {
+				return new GZIPInputStream(body);
+			} catch (IOException ex) {
+				body.close();
+				throw ex;
+			}
+		}
+		return body;
+	}
+
+	private Optional<Charset> getCharset(FetchResponse response) {
+		return response.getHeader(CONTENT_TYPE)
+				.map(CHARSET_PATTERN::matcher)
+				.filter(Matcher::find)
+				.map(matcher -> matcher.group(1))
+				.filter(Charset::isSupported)
+				.map(Charset::forName);
+	}
+
+	private Semaphore getConnectionPermit(String host) {
+		String hostKey = host == null ? "" : host.toLowerCase(Locale.ROOT);
+		return hostConnectionPermits.computeIfAbsent(hostKey, key -> new Semaphore(maximumConnectionsPerHost, true));
+	}
+
+	private String toQueryString(Map<String, Object> queryParameters) {
+		StringJoiner queryString = new StringJoiner("&");
+		for (Map.Entry<String, Object> parameter : queryParameters.entrySet()) {
+			queryString.add(URLEncoder.encode(parameter.getKey(), StandardCharsets.UTF_8) + "=" +
+					URLEncoder.encode(String.valueOf(parameter.getValue()), StandardCharsets.UTF_8));
+		}
+		return queryString.toString();
+	}
+
+	static URI toUri(URL url) throws IOException {
+		try {
+			return url.toURI();
+		} catch (URISyntaxException ex) {
+			throw new IOException("Invalid URL " + url, ex);
+		}
+	}
+}
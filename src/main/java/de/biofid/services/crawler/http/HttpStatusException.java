@@ -0,0 +1,36 @@
+package de.biofid.services.crawler.http;
+
+import java.io.IOException;
+import java.net.URI;
+
+/***
+ * Signals that a host answered a request with an HTTP error status.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class HttpStatusException extends IOException {
+
+	public static final int UNAUTHORIZED = 401;
+	public static final int NOT_FOUND = 404;
+
+	private static final long serialVersionUID = 4176390813795563741L;
+
+	private final int statusCode;
+	private final URI uri;
+
+	public HttpStatusException(int statusCode, URI uri) {
+		super("HTTP " + statusCode + " for URL " + uri);
+		this.statusCode = statusCode;
+		this.uri = uri;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	public URI getUri() {
+		return uri;
+	}
+}
@@ -0,0 +1,119 @@
+package de.biofid.services.crawler.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * An input stream that is closed, if a read waits longer than the idle timeout for data.
+ *
+ * The timeout of an HTTP request only covers the wait for the response headers. A body that stalls afterwards would
+ * block its reader forever. Hence, a watchdog checks the running read regularly and closes the stream, if it
+ * is waiting for too long. The blocked read fails then. The time between two reads does not count, so a slow
+ * consumer is not mistaken for a stalled host.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+class IdleTimeoutInputStream extends FilterInputStream {
+
+	private static final long MINIMUM_CHECK_PERIOD_MILLISECONDS = 10;
+	private static final long NO_READ = -1;
+
+	private static final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+		Thread thread = new Thread(runnable, "read-timeout-watchdog");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	static {
+		watchdog.setRemoveOnCancelPolicy(true);
+	}
+
+	private final long idleTimeoutNanos;
+	private final ScheduledFuture<?> check;
+	private volatile long readStartNanos = NO_READ;
+	private volatile boolean isTimedOut = false;
+
+	/***
+	 * @param in The stream to watch.
+	 * @param idleTimeout The maximum time a single read may wait for data.
+	 */
+	IdleTimeoutInputStream(InputStream in, Duration idleTimeout) {
+		super(in);
+		this.idleTimeoutNanos = idleTimeout.toNanos();
+		long checkPeriod = Math.max(MINIMUM_CHECK_PERIOD_MILLISECONDS, idleTimeout.toMillis() / 4);
+		this.check = watchdog.scheduleWithFixedDelay(this::closeIfStalled, checkPeriod, checkPeriod,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public int read() throws IOException {
+		startRead();
+		try {
+			return super.read();
+		} catch (IOException ex) {
+			throw createExceptionIfTimedOut(ex);
+		} finally {
+			readStartNanos = NO_READ;
+		}
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		startRead();
+		try {
+			return super.read(buffer, offset, length);
+		} catch (IOException ex) {
+			throw createExceptionIfTimedOut(ex);
+		} finally {
+			readStartNanos = NO_READ;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		check.cancel(false);
+		super.close();
+	}
+
+	private void startRead() throws IOException {
+		if (isTimedOut) {
+			throw createTimeoutException();
+		}
+		readStartNanos = System.nanoTime();
+	}
+
+	private void closeIfStalled() {
+		long readStart = readStartNanos;
+		if (readStart == NO_READ || System.nanoTime() - readStart < idleTimeoutNanos) {
+			return;
+		}
+
+		isTimedOut = true;
+		try {
+			close();
+		} catch (IOException ex) {
+			// The blocked read fails anyway
+		}
+	}
+
+	private IOException createExceptionIfTimedOut(IOException ex) {
+		if (!isTimedOut) {
+			return ex;
+		}
+
+		IOException timeoutException = createTimeoutException();
+		timeoutException.addSuppressed(ex);
+		return timeoutException;
+	}
+
+	private IOException createTimeoutException() {
+		return new IOException("No data received for " + TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) + " ms.");
+	}
+}
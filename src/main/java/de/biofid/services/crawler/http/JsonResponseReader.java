@@ -0,0 +1,24 @@
+package de.biofid.services.crawler.http;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/***
+ * Reads a JSON response while it is streamed, without building a document of the whole response first.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface JsonResponseReader<T> {
+
+	/***
+	 * Reads the value the given parser is positioned on.
+	 * @param parser A parser, whose current token is the first token of the value (e.g. the start of an object).
+	 * @return The value that was read.
+	 * @throws IOException If the JSON could not be read.
+	 */
+	T read(JsonParser parser) throws IOException;
+}
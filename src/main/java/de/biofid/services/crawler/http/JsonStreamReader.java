@@ -0,0 +1,155 @@
+package de.biofid.services.crawler.http;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/***
+ * Builds JSON values from a streaming parser.
+ *
+ * Only the fields that pass a {@link FieldFilter} are built; all other fields are skipped in the stream without
+ * ever being held in memory. So, a large response can be read into a small document.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class JsonStreamReader {
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	/***
+	 * Decides which fields of a JSON object are read.
+	 */
+	@FunctionalInterface
+	public interface FieldFilter {
+
+		/***
+		 * @param field The name of a field.
+		 * @return The filter for the value of the field or null, if the field is skipped.
+		 */
+		FieldFilter getFieldFilter(String field);
+	}
+
+	/***
+	 * Reads all fields.
+	 */
+	public static final FieldFilter ALL_FIELDS = new FieldFilter() {
+		@Override
+		public FieldFilter getFieldFilter(String field) {
+			return this;
+		}
+	};
+
+	private JsonStreamReader() {}
+
+	/***
+	 * Reads only the given fields of an object. Their values are read completely.
+	 */
+	public static FieldFilter only(Collection<String> fields) {
+		Set<String> keptFields = new HashSet<>(fields);
+		return field -> keptFields.contains(field) ? ALL_FIELDS : null;
+	}
+
+	/***
+	 * Creates a parser for the given stream. The encoding is detected automatically.
+	 * The parser is positioned on the first token already.
+	 */
+	public static JsonParser createParser(InputStream inputStream) throws IOException {
+		JsonParser parser = jsonFactory.createParser(inputStream);
+		parser.nextToken();
+		return parser;
+	}
+
+	/***
+	 * Creates a parser for the given string. The parser is positioned on the first token already.
+	 */
+	public static JsonParser createParser(String json) throws IOException {
+		JsonParser parser = jsonFactory.createParser(json);
+		parser.nextToken();
+		return parser;
+	}
+
+	/***
+	 * Reads the value the parser is positioned on. Objects and arrays are read recursively.
+	 * @return A JSONObject, a JSONArray, a string, a number, a boolean or JSONObject.NULL.
+	 */
+	public static Object readValue(JsonParser parser, FieldFilter fieldFilter) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == null) {
+			throw new IOException("Unexpected end of the JSON input!");
+		}
+
+		switch (token) {
+			case START_OBJECT:
+				return readObject(parser, fieldFilter);
+			case START_ARRAY:
+				return readArray(parser, fieldFilter);
+			case VALUE_STRING:
+				return parser.getText();
+			case VALUE_NUMBER_INT:
+			case VALUE_NUMBER_FLOAT:
+				return parser.getNumberValue();
+			case VALUE_TRUE:
+				return true;
+			case VALUE_FALSE:
+				return false;
+			case VALUE_NULL:
+				return JSONObject.NULL;
+			default:
+				throw new IOException("Unexpected JSON token " + token + "!");
+		}
+	}
+
+	/***
+	 * Reads the object the parser is positioned on. Fields that do not pass the filter are skipped.
+	 */
+	public static JSONObject readObject(JsonParser parser, FieldFilter fieldFilter) throws IOException {
+		expect(parser, JsonToken.START_OBJECT);
+
+		JSONObject json = new JSONObject();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+
+			FieldFilter valueFilter = fieldFilter.getFieldFilter(field);
+			if (valueFilter == null) {
+				parser.skipChildren();
+			} else {
+				json.put(field, readValue(parser, valueFilter));
+			}
+		}
+		return json;
+	}
+
+	/***
+	 * Reads the array the parser is positioned on. The filter applies to every object in the array.
+	 */
+	public static JSONArray readArray(JsonParser parser, FieldFilter fieldFilter) throws IOException {
+		expect(parser, JsonToken.START_ARRAY);
+
+		JSONArray jsonArray = new JSONArray();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			jsonArray.put(readValue(parser, fieldFilter));
+		}
+		return jsonArray;
+	}
+
+	/***
+	 * Checks that the parser is positioned on the given token.
+	 * @throws IOException If it is positioned on another token.
+	 */
+	public static void expect(JsonParser parser, JsonToken expectedToken) throws IOException {
+		if (parser.currentToken() != expectedToken) {
+			throw new IOException("Expected " + expectedToken + ", but found " + parser.currentToken() + "!");
+		}
+	}
+}
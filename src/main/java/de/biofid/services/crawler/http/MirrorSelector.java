@@ -0,0 +1,140 @@
+package de.biofid.services.crawler.http;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * Decides which mirror of a file is downloaded from.
+ *
+ * For every host, the throughput of the finished downloads, the number of running downloads and the time of the
+ * last failure are tracked. The mirrors are ordered by their expected throughput, shared by the downloads that are
+ * running on the host already. So, the fastest and least loaded host is tried first. A host that failed recently is
+ * tried last. A host without any download yet is expected to be as fast as the fastest known host, so every host
+ * gets its chance.
+ *
+ * A single instance is shared by all harvesters.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class MirrorSelector {
+
+	public static final long FAILURE_COOLDOWN_MILLISECONDS = 5 * 60 * 1000;
+
+	// The weight of the latest download in the throughput of a host
+	private static final double THROUGHPUT_SMOOTHING = 0.3;
+	private static final double UNKNOWN_THROUGHPUT = -1;
+
+	private static MirrorSelector sharedMirrorSelector = new MirrorSelector();
+
+	private final Map<String, HostStatistics> hostStatistics = new ConcurrentHashMap<>();
+
+	public static MirrorSelector getShared() {
+		return sharedMirrorSelector;
+	}
+
+	public static void setShared(MirrorSelector mirrorSelector) {
+		sharedMirrorSelector = mirrorSelector;
+	}
+
+	/***
+	 * Orders the given mirrors of a file, so the most promising one is first. Mirrors that are equally promising
+	 * keep their order.
+	 */
+	public List<URL> order(List<URL> mirrorUrls) {
+		long now = System.currentTimeMillis();
+		double bestKnownThroughput = hostStatistics.values().stream()
+				.mapToDouble(HostStatistics::getThroughput)
+				.max()
+				.orElse(UNKNOWN_THROUGHPUT);
+
+		List<URL> orderedMirrorUrls = new ArrayList<>(mirrorUrls);
+		orderedMirrorUrls.sort(Comparator
+				.comparing((URL mirrorUrl) -> getStatistics(mirrorUrl).hasFailedSince(now - FAILURE_COOLDOWN_MILLISECONDS))
+				.thenComparing(mirrorUrl -> -getStatistics(mirrorUrl).getExpectedThroughput(bestKnownThroughput)));
+		return orderedMirrorUrls;
+	}
+
+	/***
+	 * Records that a download from the given URL started.
+	 */
+	public void recordStart(URL url) {
+		getStatistics(url).start();
+	}
+
+	/***
+	 * Records that a download from the given URL finished.
+	 * @param transferredBytes The number of received bytes or 0, if the file was not transferred.
+	 * @param durationInMilliseconds How long the download took.
+	 */
+	public void recordSuccess(URL url, long transferredBytes, long durationInMilliseconds) {
+		getStatistics(url).finish(transferredBytes, durationInMilliseconds);
+	}
+
+	/***
+	 * Records that a download from the given URL was stopped, without blaming the host.
+	 */
+	public void recordCancellation(URL url) {
+		getStatistics(url).finish(0, 0);
+	}
+
+	/***
+	 * Records that a download from the given URL failed.
+	 */
+	public void recordFailure(URL url) {
+		getStatistics(url).fail(System.currentTimeMillis());
+	}
+
+	private HostStatistics getStatistics(URL url) {
+		return hostStatistics.computeIfAbsent(url.getHost().toLowerCase(Locale.ROOT), host -> new HostStatistics());
+	}
+
+	private static class HostStatistics {
+		// In bytes per millisecond
+		private double throughput = UNKNOWN_THROUGHPUT;
+		private int runningDownloads = 0;
+		private long lastFailure = 0;
+
+		synchronized void start() {
+			++runningDownloads;
+		}
+
+		synchronized void finish(long transferredBytes, long durationInMilliseconds) {
+			runningDownloads = Math.max(0, runningDownloads - 1);
+			if (transferredBytes <= 0) {
+				return;
+			}
+
+			double downloadThroughput = (double) transferredBytes / Math.max(1, durationInMilliseconds);
+			throughput = throughput == UNKNOWN_THROUGHPUT ? downloadThroughput :
+					THROUGHPUT_SMOOTHING * downloadThroughput + (1 - THROUGHPUT_SMOOTHING) * throughput;
+		}
+
+		synchronized void fail(long time) {
+			runningDownloads = Math.max(0, runningDownloads - 1);
+			lastFailure = time;
+		}
+
+		synchronized double getThroughput() {
+			return throughput;
+		}
+
+		synchronized boolean hasFailedSince(long time) {
+			return lastFailure > time;
+		}
+
+		/***
+		 * The throughput a new download can expect, if it shares the host with the running downloads.
+		 */
+		synchronized double getExpectedThroughput(double bestKnownThroughput) {
+			double hostThroughput = throughput == UNKNOWN_THROUGHPUT ? bestKnownThroughput : throughput;
+			return hostThroughput / (1 + runningDownloads);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package de.biofid.services.crawler.http;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/***
+ * Signals that a host answered with "429 Too Many Requests" or "503 Service Unavailable".
+ *
+ * The request may be retried after the time the host asked for in its "Retry-After" header.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class OverloadedException extends IOException {
+
+	public static final int TOO_MANY_REQUESTS = 429;
+	public static final int SERVICE_UNAVAILABLE = 503;
+
+	public static final long RETRY_AFTER_UNKNOWN = -1;
+
+	private static final long serialVersionUID = -2383562419074413256L;
+
+	private final int statusCode;
+	private final long retryAfterMilliseconds;
+
+	public OverloadedException(String message, int statusCode, long retryAfterMilliseconds) {
+		super(message);
+		this.statusCode = statusCode;
+		this.retryAfterMilliseconds = retryAfterMilliseconds;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/***
+	 * @return The time in milliseconds the host asked to wait. {@link #RETRY_AFTER_UNKNOWN}, if it did not tell.
+	 */
+	public long getRetryAfterMilliseconds() {
+		return retryAfterMilliseconds;
+	}
+
+	public static boolean isOverloadStatus(int statusCode) {
+		return statusCode == TOO_MANY_REQUESTS || statusCode == SERVICE_UNAVAILABLE;
+	}
+
+	/***
+	 * Parses the value of a "Retry-After" header, which is either a number of seconds or an HTTP date.
+	 * @param headerValue The header value. May be null.
+	 * @return The time to wait in milliseconds or {@link #RETRY_AFTER_UNKNOWN}, if the value could not be parsed.
+	 */
+	public static long parseRetryAfter(String headerValue) {
+		if (headerValue == null || headerValue.isBlank()) {
+			return RETRY_AFTER_UNKNOWN;
+		}
+
+		String value = headerValue.trim();
+		try {
+			return Math.max(0, Long.parseLong(value) * 1000);
+		} catch (NumberFormatException ex) {
+			// Not a number of seconds, so it has to be a date
+		}
+
+		try {
+			ZonedDateTime retryDate = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+			return Math.max(0, Duration.between(ZonedDateTime.now(retryDate.getZone()), retryDate).toMillis());
+		} catch (DateTimeParseException ex) {
+			return RETRY_AFTER_UNKNOWN;
+		}
+	}
+}
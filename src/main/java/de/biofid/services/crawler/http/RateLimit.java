@@ -0,0 +1,62 @@
+package de.biofid.services.crawler.http;
+
+/***
+ * The allowed request rate for a single host.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class RateLimit {
+
+	public static final RateLimit UNLIMITED = new RateLimit(Double.POSITIVE_INFINITY, 1);
+
+	private final double requestsPerSecond;
+	private final int burst;
+
+	/***
+	 * @param requestsPerSecond The sustained number of requests per second. It has to be greater than 0.
+	 * @param burst The number of requests that may be sent at once after an idle period. It has to be at least 1.
+	 * @throws IllegalArgumentException If one of the values is out of range.
+	 */
+	public RateLimit(double requestsPerSecond, int burst) {
+		if (!(requestsPerSecond > 0)) {
+			throw new IllegalArgumentException("The requests per second have to be greater than 0, but are " +
+					requestsPerSecond + "!");
+		}
+		if (burst < 1) {
+			throw new IllegalArgumentException("The burst has to be at least 1, but is " + burst + "!");
+		}
+
+		this.requestsPerSecond = requestsPerSecond;
+		this.burst = burst;
+	}
+
+	/***
+	 * Creates a rate limit from a fixed delay between two requests.
+	 * @param millisecondsDelay The delay in milliseconds. A delay of 0 or less means no limit.
+	 */
+	public static RateLimit fromDelay(long millisecondsDelay) {
+		if (millisecondsDelay <= 0) {
+			return UNLIMITED;
+		}
+		return new RateLimit(1000.0 / millisecondsDelay, 1);
+	}
+
+	public double getRequestsPerSecond() {
+		return requestsPerSecond;
+	}
+
+	public int getBurst() {
+		return burst;
+	}
+
+	public boolean isUnlimited() {
+		return Double.isInfinite(requestsPerSecond);
+	}
+
+	@Override
+	public String toString() {
+		return "{requestsPerSecond=" + requestsPerSecond + ", burst=" + burst + "}";
+	}
+}
@@ -0,0 +1,290 @@
+package de.biofid.services.crawler.http;
+
+import de.biofid.services.crawler.LiteratureHarvester;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Limits the request rate per host with a token bucket for every host.
+ *
+ * Every HTTP request has to acquire a permit for its host before it is sent. The limits are configured by host name.
+ * A configured host name also covers all of its subdomains (e.g. "archive.org" covers "ia800.us.archive.org"), which
+ * then share a single bucket. Hosts without a configuration get a bucket of their own with the default limit.
+ *
+ * A single instance is shared by all harvesters, so parallel harvesters hitting the same host stay polite.
+ *
+ * The limits adapt to the feedback of the hosts. If a host signals an overload (HTTP 429 or 503), its rate is halved
+ * and no request is sent until the time the host asked for in its "Retry-After" header. With every healthy response,
+ * the rate recovers additively up to the configured limit. Requests sent via {@link #execute(URL, Request)} are
+ * retried instead of failing on an overload.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+public class RateLimiter {
+
+	public static final int MAXIMUM_RETRIES_DEFAULT = 5;
+
+	// The rate an unlimited host starts with after its first overload
+	private static final double ADAPTIVE_INITIAL_REQUESTS_PER_SECOND = 2;
+	// Above this rate, an unlimited host is not throttled anymore
+	private static final double ADAPTIVE_RELEASE_REQUESTS_PER_SECOND = 100;
+	private static final double ADAPTIVE_MINIMUM_REQUESTS_PER_SECOND = 0.05;
+	private static final double ADDITIVE_INCREASE_FRACTION = 0.05;
+	private static final double ADDITIVE_INCREASE_UNLIMITED = 0.5;
+	private static final long BACKOFF_DEFAULT_MILLISECONDS = 1000;
+	private static final long BACKOFF_MAXIMUM_MILLISECONDS = 5 * 60 * 1000;
+	private static final double MULTIPLICATIVE_DECREASE_FACTOR = 0.5;
+
+	private static RateLimiter sharedRateLimiter = new RateLimiter();
+
+	private static final Logger logger = LogManager.getLogger(LiteratureHarvester.LOGGER_NAME);
+
+	private final Map<String, RateLimit> hostRateLimits = new ConcurrentHashMap<>();
+	private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+	private volatile RateLimit defaultRateLimit = RateLimit.UNLIMITED;
+	private volatile int maximumRetries = MAXIMUM_RETRIES_DEFAULT;
+
+	public static RateLimiter getShared() {
+		return sharedRateLimiter;
+	}
+
+	public static void setShared(RateLimiter rateLimiter) {
+		sharedRateLimiter = rateLimiter;
+	}
+
+	/***
+	 * Sets the limit for all hosts that are not configured explicitly.
+	 */
+	public void setDefaultRateLimit(RateLimit rateLimit) {
+		this.defaultRateLimit = rateLimit;
+		buckets.clear();
+	}
+
+	/***
+	 * Sets the limit for the given host and all of its subdomains.
+	 */
+	public void setRateLimit(String host, RateLimit rateLimit) {
+		hostRateLimits.put(normalizeHost(host), rateLimit);
+		buckets.clear();
+	}
+
+	public void setRateLimits(Map<String, RateLimit> rateLimits) {
+		rateLimits.forEach(this::setRateLimit);
+	}
+
+	/***
+	 * Sets how often a request is retried, if its host is overloaded.
+	 */
+	public void setMaximumRetries(int maximumRetries) {
+		this.maximumRetries = Math.max(0, maximumRetries);
+	}
+
+	/***
+	 * Sends a request as soon as its host permits it. If the host is overloaded, the request is retried
+	 * after the host recovered, up to the maximum number of retries.
+	 * @param url The URL to request.
+	 * @param request Sends the actual request. It has to throw an {@link OverloadedException} if the host responds
+	 *                with an overload status.
+	 * @return The result of the request.
+	 * @throws IOException If the request failed or the host was still overloaded after all retries.
+	 */
+	public <T> T execute(URL url, Request<T> request) throws IOException {
+		String host = url.getHost();
+		int attempt = 0;
+
+		while (true) {
+			acquireForHost(host);
+			try {
+				T result = request.send();
+				reportSuccess(host);
+				return result;
+			} catch (OverloadedException ex) {
+				reportOverload(host, ex.getRetryAfterMilliseconds());
+
+				if (attempt >= maximumRetries || Thread.currentThread().isInterrupted()) {
+					logger.error("Host {} is still overloaded after {} retries! Giving up on {}", host, attempt, url);
+					throw ex;
+				}
+
+				++attempt;
+				logger.warn("Host {} is overloaded (HTTP {})! Retrying {} (attempt {} of {})",
+						host, ex.getStatusCode(), url, attempt, maximumRetries);
+			}
+		}
+	}
+
+	/***
+	 * Sends a request as soon as its host permits it, see {@link #execute(URL, Request)}.
+	 */
+	public <T> T execute(String urlString, Request<T> request) throws IOException {
+		return execute(new URL(urlString), request);
+	}
+
+	/***
+	 * Slows down the requests to the given host.
+	 * The rate is reduced multiplicatively and the host is not requested for the given time.
+	 * @param host The overloaded host.
+	 * @param retryAfterMilliseconds The time the host asked to wait or {@link OverloadedException#RETRY_AFTER_UNKNOWN}.
+	 */
+	public void reportOverload(String host, long retryAfterMilliseconds) {
+		String bucketKey = getBucketKey(normalizeHost(host));
+		TokenBucket bucket = buckets.computeIfAbsent(bucketKey, key -> createAdaptiveBucket(key));
+
+		bucket.decreaseRate(MULTIPLICATIVE_DECREASE_FACTOR, ADAPTIVE_MINIMUM_REQUESTS_PER_SECOND);
+
+		long pauseMilliseconds = retryAfterMilliseconds >= 0 ? retryAfterMilliseconds : BACKOFF_DEFAULT_MILLISECONDS;
+		pauseMilliseconds = Math.min(pauseMilliseconds, BACKOFF_MAXIMUM_MILLISECONDS);
+		bucket.pause(TimeUnit.MILLISECONDS.toNanos(pauseMilliseconds));
+
+		logger.warn("Host {} is overloaded! Reduced the rate to {} requests per second and pausing for {} ms.",
+				host, bucket.getTokensPerSecond(), pauseMilliseconds);
+	}
+
+	/***
+	 * Lets the rate of the given host recover additively up to its configured limit.
+	 * @param host The host that answered healthy.
+	 */
+	public void reportSuccess(String host) {
+		String bucketKey = getBucketKey(normalizeHost(host));
+		TokenBucket bucket = buckets.get(bucketKey);
+		if (bucket == null) {
+			return;
+		}
+
+		double maximumRequestsPerSecond = bucket.getMaximumTokensPerSecond();
+		if (Double.isInfinite(maximumRequestsPerSecond)) {
+			bucket.increaseRate(ADDITIVE_INCREASE_UNLIMITED);
+			if (bucket.getTokensPerSecond() >= ADAPTIVE_RELEASE_REQUESTS_PER_SECOND) {
+				logger.info("Host {} recovered. It is not throttled anymore.", host);
+				buckets.remove(bucketKey, bucket);
+			}
+		} else {
+			bucket.increaseRate(maximumRequestsPerSecond * ADDITIVE_INCREASE_FRACTION);
+		}
+	}
+
+	/***
+	 * Returns the current, possibly reduced, rate for the given host.
+	 * @return The requests per second. Infinity, if the host is not throttled.
+	 */
+	public double getCurrentRequestsPerSecond(String host) {
+		TokenBucket bucket = buckets.get(getBucketKey(normalizeHost(host)));
+		return bucket == null ? Double.POSITIVE_INFINITY : bucket.getTokensPerSecond();
+	}
+
+	/***
+	 * Blocks until a request to the host of the given URL may be sent.
+	 * @param urlString The URL to request.
+	 */
+	public void acquire(String urlString) {
+		try {
+			acquire(new URL(urlString));
+		} catch (MalformedURLException ex) {
+			logger.warn("Could not determine the host of URL {} for rate limiting!", urlString);
+		}
+	}
+
+	/***
+	 * Blocks until a request to the host of the given URL may be sent.
+	 * @param url The URL to request.
+	 */
+	public void acquire(URL url) {
+		acquireForHost(url.getHost());
+	}
+
+	/***
+	 * Blocks until a request to the given host may be sent.
+	 * @param host The host name to request.
+	 */
+	public void acquireForHost(String host) {
+		TokenBucket bucket = getBucket(host);
+		if (bucket == null) {
+			return;
+		}
+
+		long waitingTimeNanos = bucket.reserve();
+		if (waitingTimeNanos > 0) {
+			logger.debug("Waiting {} ms for a request permit for host {}",
+					TimeUnit.NANOSECONDS.toMillis(waitingTimeNanos), host);
+			try {
+				TimeUnit.NANOSECONDS.sleep(waitingTimeNanos);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/***
+	 * Returns the configured limit for the given host.
+	 * @return The limit of the most specific configured (parent) domain. The default limit, otherwise.
+	 */
+	public RateLimit getRateLimit(String host) {
+		String bucketKey = getBucketKey(normalizeHost(host));
+		return hostRateLimits.getOrDefault(bucketKey, defaultRateLimit);
+	}
+
+	private TokenBucket getBucket(String host) {
+		String bucketKey = getBucketKey(normalizeHost(host));
+		TokenBucket bucket = buckets.get(bucketKey);
+		if (bucket != null) {
+			return bucket;
+		}
+
+		RateLimit rateLimit = hostRateLimits.getOrDefault(bucketKey, defaultRateLimit);
+		if (rateLimit.isUnlimited()) {
+			return null;
+		}
+
+		return buckets.computeIfAbsent(bucketKey, key -> new TokenBucket(rateLimit));
+	}
+
+	private TokenBucket createAdaptiveBucket(String bucketKey) {
+		RateLimit rateLimit = hostRateLimits.getOrDefault(bucketKey, defaultRateLimit);
+		if (rateLimit.isUnlimited()) {
+			return new TokenBucket(ADAPTIVE_INITIAL_REQUESTS_PER_SECOND, Double.POSITIVE_INFINITY, 1);
+		}
+
+		return new TokenBucket(rateLimit);
+	}
+
+	/***
+	 * Finds the most specific configured domain for the given host. If there is none, the host itself is the key.
+	 */
+	private String getBucketKey(String host) {
+		String domain = host;
+		while (true) {
+			if (hostRateLimits.containsKey(domain)) {
+				return domain;
+			}
+
+			int dotIndex = domain.indexOf('.');
+			if (dotIndex < 0) {
+				return host;
+			}
+			domain = domain.substring(dotIndex + 1);
+		}
+	}
+
+	private String normalizeHost(String host) {
+		return host.toLowerCase(Locale.ROOT);
+	}
+
+	/***
+	 * A single HTTP request.
+	 * @param <T> The result type of the request.
+	 */
+	@FunctionalInterface
+	public interface Request<T> {
+		T send() throws IOException;
+	}
+}
@@ -0,0 +1,130 @@
+package de.biofid.services.crawler.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Properties;
+
+/***
+ * The information needed to resume a partial download with a range request.
+ *
+ * It is stored next to the partial file, so a download can also be resumed by a later run. A download is only
+ * resumable, if the host supports range requests and identifies the file version by an ETag or its modification
+ * date. Otherwise, the partial data could not be validated against the current file on the host.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+class ResumeState {
+
+	static final String ACCEPT_RANGES = "Accept-Ranges";
+	static final String ETAG = "ETag";
+	static final String LAST_MODIFIED = "Last-Modified";
+
+	private static final String BYTES_UNIT = "bytes";
+	private static final String WEAK_ETAG_PREFIX = "W/";
+
+	private static final String URL_KEY = "url";
+	private static final String ETAG_KEY = "etag";
+	private static final String LAST_MODIFIED_KEY = "last-modified";
+	private static final String LENGTH_KEY = "length";
+
+	private final String url;
+	private final String etag;
+	private final String lastModified;
+	private final long length;
+
+	ResumeState(String url, String etag, String lastModified, long length) {
+		this.url = url;
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.length = length;
+	}
+
+	/***
+	 * Creates the resume state of a complete (not partial) response.
+	 * @return The resume state or nothing, if the download could not be resumed.
+	 */
+	static Optional<ResumeState> fromResponse(String url, FetchResponse response) {
+		boolean isAcceptingRanges = response.getHeader(ACCEPT_RANGES)
+				.map(value -> value.trim().equalsIgnoreCase(BYTES_UNIT)).orElse(false);
+		String etag = response.getHeader(ETAG).filter(value -> !value.startsWith(WEAK_ETAG_PREFIX)).orElse(null);
+		String lastModified = response.getHeader(LAST_MODIFIED).orElse(null);
+		long length = response.getContentLength();
+
+		if (!isAcceptingRanges || length <= 0 || (etag == null && lastModified == null)) {
+			return Optional.empty();
+		}
+
+		return Optional.of(new ResumeState(url, etag, lastModified, length));
+	}
+
+	/***
+	 * Reads the resume state from the given file.
+	 * @return The resume state or nothing, if the file does not exist or is corrupted.
+	 */
+	static Optional<ResumeState> read(Path stateFile) {
+		if (!Files.exists(stateFile)) {
+			return Optional.empty();
+		}
+
+		Properties properties = new Properties();
+		try (InputStream inputStream = Files.newInputStream(stateFile)) {
+			properties.load(inputStream);
+			return Optional.of(new ResumeState(properties.getProperty(URL_KEY), properties.getProperty(ETAG_KEY),
+					properties.getProperty(LAST_MODIFIED_KEY), Long.parseLong(properties.getProperty(LENGTH_KEY))));
+		} catch (IOException | NumberFormatException ex) {
+			return Optional.empty();
+		}
+	}
+
+	void write(Path stateFile) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(URL_KEY, url);
+		properties.setProperty(LENGTH_KEY, Long.toString(length));
+		if (etag != null) {
+			properties.setProperty(ETAG_KEY, etag);
+		}
+		if (lastModified != null) {
+			properties.setProperty(LAST_MODIFIED_KEY, lastModified);
+		}
+
+		try (OutputStream outputStream = Files.newOutputStream(stateFile)) {
+			properties.store(outputStream, null);
+		}
+	}
+
+	boolean isForUrl(String url) {
+		return this.url != null && this.url.equals(url);
+	}
+
+	/***
+	 * @return The value for the "If-Range" header, which makes the host send the complete file, if it changed.
+	 */
+	String getValidator() {
+		return etag != null ? etag : lastModified;
+	}
+
+	String getUrl() {
+		return url;
+	}
+
+	String getEtag() {
+		return etag;
+	}
+
+	String getLastModified() {
+		return lastModified;
+	}
+
+	/***
+	 * @return The total length of the file in bytes.
+	 */
+	long getLength() {
+		return length;
+	}
+}
@@ -0,0 +1,104 @@
+package de.biofid.services.crawler.http;
+
+/***
+ * A token bucket that refills continuously with a given rate up to a maximum of burst tokens.
+ *
+ * Callers reserve a token and get the time they have to wait for it. The bucket may hence run into debt, which
+ * queues concurrent callers fairly without holding the lock while waiting.
+ *
+ * The refill rate adapts to the feedback of the host: it is reduced multiplicatively when the host is overloaded
+ * and recovers additively up to the configured rate when the responses are healthy again.
+ *
+ * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
+ * @author https://www.biofid.de
+ * @version 1.0
+ */
+class TokenBucket {
+
+	private static final double NANOSECONDS_PER_SECOND = 1_000_000_000.0;
+
+	private double tokensPerSecond;
+	private final double maximumTokensPerSecond;
+	private final int capacity;
+	private double availableTokens;
+	private long lastRefillNanos;
+
+	TokenBucket(RateLimit rateLimit) {
+		this(rateLimit.getRequestsPerSecond(), rateLimit.getRequestsPerSecond(), rateLimit.getBurst());
+	}
+
+	/***
+	 * @param tokensPerSecond The initial refill rate.
+	 * @param maximumTokensPerSecond The rate the bucket may recover to. May be infinite.
+	 * @param capacity The maximum number of tokens in the bucket.
+	 */
+	TokenBucket(double tokensPerSecond, double maximumTokensPerSecond, int capacity) {
+		this.tokensPerSecond = tokensPerSecond;
+		this.maximumTokensPerSecond = maximumTokensPerSecond;
+		this.capacity = capacity;
+		this.availableTokens = capacity;
+		this.lastRefillNanos = System.nanoTime();
+	}
+
+	/***
+	 * Takes a token from the bucket.
+	 * @return The time in nanoseconds the caller has to wait before it may use the token.
+	 */
+	synchronized long reserve() {
+		refill();
+		availableTokens -= 1;
+
+		if (availableTokens >= 0) {
+			return 0;
+		}
+
+		return (long) Math.ceil(-availableTokens / tokensPerSecond * NANOSECONDS_PER_SECOND);
+	}
+
+	/***
+	 * Multiplies the refill rate with the given factor, but does not go below the given minimum.
+	 */
+	synchronized void decreaseRate(double factor, double minimumTokensPerSecond) {
+		refill();
+		double currentTokensPerSecond = Double.isInfinite(tokensPerSecond) ? minimumTokensPerSecond : tokensPerSecond;
+		tokensPerSecond = Math.max(minimumTokensPerSecond, currentTokensPerSecond * factor);
+	}
+
+	/***
+	 * Adds the given step to the refill rate, but does not exceed the maximum rate.
+	 * @return True, if the bucket reached its maximum rate.
+	 */
+	synchronized boolean increaseRate(double tokensPerSecondStep) {
+		if (tokensPerSecond >= maximumTokensPerSecond) {
+			return true;
+		}
+
+		refill();
+		tokensPerSecond = Math.min(maximumTokensPerSecond, tokensPerSecond + tokensPerSecondStep);
+		return tokensPerSecond >= maximumTokensPerSecond;
+	}
+
+	/***
+	 * Empties the bucket and goes into debt, so no token is available for the given time.
+	 */
+	synchronized void pause(long pauseNanos) {
+		refill();
+		double pauseTokens = pauseNanos / NANOSECONDS_PER_SECOND * tokensPerSecond;
+		availableTokens = Math.min(0, availableTokens) - pauseTokens;
+	}
+
+	synchronized double getTokensPerSecond() {
+		return tokensPerSecond;
+	}
+
+	double getMaximumTokensPerSecond() {
+		return maximumTokensPerSecond;
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		double refilledTokens = (now - lastRefillNanos) / NANOSECONDS_PER_SECOND * tokensPerSecond;
+		availableTokens = Math.min(capacity, availableTokens + refilledTokens);
+		lastRefillNanos = now;
+	}
+}
@@ -8,6 +8,10 @@ public class Metadata {
     public URL pdfUrl;
     public URL url;
 
+    // Needed to restore journaled metadata
+    public Metadata() {
+    }
+
     public Metadata(long id, URL pdfUrl, Citation citation, URL url) {
         this.pdfUrl = pdfUrl;
         this.citation = citation;
@@ -1,17 +1,20 @@
 package de.biofid.services.crawler.zobodat;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.biofid.services.configuration.ConfigurationKeys;
 import de.biofid.services.crawler.Configuration;
+import de.biofid.services.crawler.DaemonThreadPool;
+import de.biofid.services.crawler.HarvestJournal;
 import de.biofid.services.crawler.Harvester;
 import de.biofid.services.crawler.Item;
+import de.biofid.services.crawler.http.HttpFetcher;
 import de.biofid.services.crawler.metadata.Citation;
 import de.biofid.services.crawler.metadata.Metadata;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -20,6 +23,9 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -27,6 +33,15 @@ import java.util.stream.StreamSupport;
 
 /***
  * A Harvester to crawl Zobodat.at literature.
+ *
+ * The site is crawled lazily and depth-first: every article is handed out as soon as its citation is parsed, while
+ * the rest of the site is still waiting to be crawled. Only the pages on the path from the start page to the
+ * current page are held in memory, not the whole site.
+ *
+ * The pages and citations referenced by a page are fetched by several workers at the same time, ahead of the crawl.
+ * So, sibling series, volumes and articles are requested in parallel, subject to the rate limit of the host. Still,
+ * the fetched pages are processed in the order of the depth-first crawl, so the articles are handed out and the
+ * pages are journaled in the same order as by a sequential crawl.
  * 
  * @author Adrian Pachzelt (University Library Johann Christian Senckenberg, Frankfurt)
  * @author https://www.biofid.de
@@ -61,10 +76,24 @@ public class ZobodatHarvester extends Harvester {
 	public static final String ZOBODAT_URL = "https://www.zobodat.at";
 	public static final String ZOBODAT_ARTICLE_BASE_URL = "https://www.zobodat.at/publikation_articles.php?id=";
 	public static final String ZOBODAT_TITLE_BASE_URL = "https://www.zobodat.at/publikation_series.php?id=";
+
+	public static final int PARALLEL_CRAWL_PAGES_DEFAULT = 4;
+
+	private static final ObjectMapper METADATA_MAPPER = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 	
-	private boolean isMetadataCollected = false;
-	private Iterator<Metadata> itemMetadataIterator = null;
-	private final List<Metadata> itemMetadataList = new ArrayList<>();
+	private boolean isCrawlStarted = false;
+	// The pages that are being crawled, the current one on top
+	private final Deque<CrawlFrame> frontier = new ArrayDeque<>();
+	// Metadata that were found, but not handed out yet
+	private final Deque<Metadata> pendingMetadata = new ArrayDeque<>();
+	// Metadata of the pages crawled by an interrupted run, which are read from the journal on demand
+	private Iterator<JSONObject> restoredMetadata = Collections.emptyIterator();
+	// Metadata that were found since the last journaled page
+	private final List<Metadata> unjournaledMetadata = new ArrayList<>();
+	private final Map<String, Integer> crawledPages = new HashMap<>();
+	private final int parallelCrawlPages;
+	private final ThreadPoolExecutor crawlExecutor;
 	private boolean crawlAllItems;
 	
 	private List<Object> listOfItemsToProcess = new ArrayList<>();
@@ -90,10 +119,14 @@ public class ZobodatHarvester extends Harvester {
 		}
 
 		crawlAllItems = jsonConfiguration.optBoolean(ConfigurationKeys.CRAWL_ALL_ITEMS, false);
+
+		parallelCrawlPages = Math.max(1, jsonConfiguration.optInt(ConfigurationKeys.PARALLEL_CRAWL_PAGES,
+				PARALLEL_CRAWL_PAGES_DEFAULT));
+		crawlExecutor = DaemonThreadPool.create("zobodat-crawler", parallelCrawlPages);
 	}
 	
 	public Document getDocumentFromUrl(String url) throws IOException {
-		return Jsoup.connect(url).get();
+		return HttpFetcher.getShared().getDocument(url);
 	}
 	
 	public String getFolderName() {
@@ -124,12 +157,15 @@ public class ZobodatHarvester extends Harvester {
 		return elements;
 	}
 	
+	/***
+	 * Returns the metadata that were found, but not handed out yet.
+	 */
 	public JSONArray getMetadataListAsJSONArray() {
-		return toJSONArray(itemMetadataList);
+		return toJSONArray(pendingMetadata);
 	}
 	
 	public int getMetadataListSize() {
-		return itemMetadataList.size();
+		return pendingMetadata.size();
 	}
 
 	public List<Object> getListOfItemsToProcess() {
@@ -141,54 +177,64 @@ public class ZobodatHarvester extends Harvester {
 	 * 
 	 * This function finds out, if the given list represents a list of articles or if it needs
 	 * to delve deeper. If the latter, all given items are crawled recursively.
-	 * If it is a list with articles, their metadata are extracted and stored.
+	 * If it is a list with articles, their metadata are extracted and queued to be handed out.
 	 * @param itemList A list of items from the Zobodat page.
 	 */
 	public void iterateItems(Elements itemList) {
-		int sumOfAllItemsReferencedFromThisSite = 0;
-		
-		for (Element item : itemList) {
-			String urlString = item.select(SELECTOR_ITEM_URL).attr(ATTRIBUTE_HREF);
-			urlString = generateZobodatUrlStringFromString(urlString);
-			
-			if (!urlString.isEmpty()) {
-				sumOfAllItemsReferencedFromThisSite = crawlUrlRecursively(urlString);
-			}
-		}
-		
-		if (sumOfAllItemsReferencedFromThisSite == 0) {
-			logger.debug("Is article list!");
-			itemMetadataList.addAll(extractItemMetadataFromArticleList(itemList));
+		frontier.push(new CrawlFrame(null, itemList, getChildUrls(itemList)));
+		int depth = frontier.size();
+
+		Metadata itemMetadata;
+		while ((itemMetadata = crawlNextMetadata(depth)) != null) {
+			pendingMetadata.add(itemMetadata);
 		}
 	}
 	
 	public boolean nextItem(Item item) {
-		if (!isMetadataCollected) {
+		if (!isCrawlStarted) {
+			restoreCrawledPagesFromJournal();
 			logger.info("Start crawling metadata!");
+			List<String> startUrls = new ArrayList<>();
 			if (!listOfItemsToProcess.isEmpty() && !crawlAllItems) {
 				logger.info("Crawling the following item ID list: " + listOfItemsToProcess);
 				for (Object obj : listOfItemsToProcess) {
-					String itemUrl = (String) obj;
-					crawlUrlRecursively(itemUrl);
+					startUrls.add((String) obj);
 				}
 			} else {
 				logger.info("Start crawling all of Zobodat!");
-				crawlUrlRecursively(ZOBODAT_LITERATURE_BASE_URL);
+				startUrls.add(ZOBODAT_LITERATURE_BASE_URL);
 			}
-			isMetadataCollected = true;
-			itemMetadataIterator = itemMetadataList.iterator();
-			logger.info("Crawling of metadata complete!");
+			frontier.push(new CrawlFrame(null, new Elements(), startUrls));
+			isCrawlStarted = true;
 		}
 		
-		if (itemMetadataIterator.hasNext()) {
+		while (true) {
 			logger.debug("Getting next metadata!");
-			Metadata itemMetadata = itemMetadataIterator.next();
+			Metadata itemMetadata = nextRestoredMetadata();
+			if (itemMetadata == null) {
+				itemMetadata = pendingMetadata.poll();
+			}
+			if (itemMetadata == null) {
+				itemMetadata = crawlNextMetadata(1);
+			}
+			if (itemMetadata == null) {
+				logger.info("Crawling of metadata complete!");
+				return false;
+			}
+
+			if (isItemAlreadyHarvested(itemMetadata.id)) {
+				logger.info("Item ID {} was harvested completely before. Skipping it.", itemMetadata.id);
+				continue;
+			}
 			addMetadataToItem(item, itemMetadata);
-		} else {
-			return false;
+			return true;
 		}
-		
-		return true;
+	}
+
+	@Override
+	protected void releaseResources() {
+		// Pages that were fetched ahead are not needed anymore
+		crawlExecutor.shutdownNow();
 	}
 
 	public String idStringToZobodatArticleUrl(String itemId) {
@@ -257,13 +303,99 @@ public class ZobodatHarvester extends Harvester {
 		}
 	}
 
-	private int crawlUrlRecursively(String url) {
-		if (url.isEmpty()) {
-			return 0;
+	/***
+	 * Continues the depth-first crawl until the next article is found.
+	 *
+	 * A page is visited by fetching all pages it references first. If none of them references any items itself,
+	 * the page is a list of articles and the metadata of its articles are extracted one by one. A page is finished
+	 * and journaled, when all its referenced pages and articles were processed. The referenced pages and the
+	 * articles of a page are fetched ahead in parallel, but they are processed in their order on the page.
+	 * @param minimumDepth The crawl stops, when the frontier has less pages.
+	 * @return The metadata of the next article or null, if the crawl is finished.
+	 */
+	private Metadata crawlNextMetadata(int minimumDepth) {
+		while (frontier.size() >= minimumDepth && !frontier.isEmpty()) {
+			CrawlFrame page = frontier.peek();
+
+			prefetchChildPages(page);
+			Future<CrawlFrame> childPage = page.fetchingChildPages.poll();
+			if (childPage != null) {
+				CrawlFrame fetchedChildPage = await(childPage);
+				if (fetchedChildPage != null) {
+					frontier.push(fetchedChildPage);
+				}
+				continue;
+			}
+
+			if (page.numberOfReferencedItems == 0) {
+				if (page.isFirstArticle() && page.hasNextArticle()) {
+					logger.debug("Is article list!");
+					logger.info("Found " + page.items.size() + " items on this site!");
+				}
+				prefetchArticles(page);
+				Future<Metadata> article = page.extractingArticles.poll();
+				if (article != null) {
+					Metadata itemMetadata = await(article);
+					if (itemMetadata != null) {
+						if (getJournal() != null) {
+							unjournaledMetadata.add(itemMetadata);
+						}
+						return itemMetadata;
+					}
+					continue;
+				}
+			}
+
+			frontier.pop();
+			if (page.url != null) {
+				recordCrawledPage(page.url, page.items.size());
+			}
+			CrawlFrame parentPage = frontier.peek();
+			if (parentPage != null) {
+				parentPage.numberOfReferencedItems += page.items.size();
+			}
 		}
-		
-		pause();
-		
+
+		return null;
+	}
+
+	/***
+	 * Starts fetching the upcoming pages referenced by the given page, until the parallel limit is reached. A page
+	 * that was crawled before the interruption is not fetched again.
+	 */
+	private void prefetchChildPages(CrawlFrame page) {
+		while (page.fetchingChildPages.size() < parallelCrawlPages && page.hasNextChildUrl()) {
+			String childUrl = page.nextChildUrl();
+			if (childUrl.isEmpty()) {
+				continue;
+			}
+
+			Integer numberOfCrawledItems = crawledPages.get(childUrl);
+			if (numberOfCrawledItems != null) {
+				logger.debug("URL " + childUrl + " was crawled before the interruption. Skipping it.");
+				page.numberOfReferencedItems += numberOfCrawledItems;
+				continue;
+			}
+
+			page.fetchingChildPages.add(crawlExecutor.submit(() -> fetchPage(childUrl)));
+		}
+	}
+
+	/***
+	 * Starts extracting the metadata of the upcoming articles of the given page, until the parallel limit is reached.
+	 */
+	private void prefetchArticles(CrawlFrame page) {
+		while (page.extractingArticles.size() < parallelCrawlPages && page.hasNextArticle()) {
+			Element article = page.nextArticle();
+			page.extractingArticles.add(crawlExecutor.submit(() -> extractItemMetadata(article)));
+		}
+	}
+
+	/***
+	 * Fetches the given page with the items listed on it.
+	 * @return The page or null, if it could not be fetched.
+	 */
+	private CrawlFrame fetchPage(String url) {
 		logger.info("Processing URL " + url);
 		
 		Document website;
@@ -271,33 +403,113 @@ public class ZobodatHarvester extends Harvester {
 			website = getDocumentFromUrl(url);
 		} catch (IOException ex) {
 			logger.error("Could not fetch URL " + url);
-			return 0;
+			return null;
 		}
 		
 		Elements itemList = getItemListFromWebsite(website);
-		iterateItems(itemList);
-		
-		return itemList.size();
+		return new CrawlFrame(url, itemList, getChildUrls(itemList));
 	}
-	
-	private List<Metadata> extractItemMetadataFromArticleList(Elements itemList) {
-		List<Metadata> metadataList = new ArrayList<>();
-		
-		logger.info("Found " + itemList.size() + " items on this site!");
-		
+
+	private <T> T await(Future<T> task) {
+		try {
+			return task.get();
+		} catch (ExecutionException ex) {
+			logger.error("Could not crawl a page! Reason: " + ex.getCause().getMessage());
+		} catch (InterruptedException ex) {
+			logger.error("Interrupted while crawling! The remaining pages are skipped.");
+			stopCrawl();
+			Thread.currentThread().interrupt();
+		}
+
+		return null;
+	}
+
+	/***
+	 * Cancels all running requests and empties the frontier, so the crawl ends.
+	 */
+	private void stopCrawl() {
+		for (CrawlFrame page : frontier) {
+			page.fetchingChildPages.forEach(childPage -> childPage.cancel(true));
+			page.extractingArticles.forEach(article -> article.cancel(true));
+		}
+		frontier.clear();
+	}
+
+	private List<String> getChildUrls(Elements itemList) {
+		List<String> childUrls = new ArrayList<>();
 		for (Element item : itemList) {
-			URL itemPdfUrl = getItemPdfUrl(item);
-			
-			if (itemPdfUrl != null) {
-				URL citationUrl = getCitationUrl(item);
-				long itemID = getItemIDFromUrl(citationUrl);
-				Citation citation = getCitationFromUrl(citationUrl);
-				metadataList.add(new Metadata(itemID, itemPdfUrl, citation, citationUrl));
+			String urlString = item.select(SELECTOR_ITEM_URL).attr(ATTRIBUTE_HREF);
+			childUrls.add(generateZobodatUrlStringFromString(urlString));
+		}
+		return childUrls;
+	}
+
+	/***
+	 * Writes the given page to the journal together with all metadata that were found since the last journaled page.
+	 * Since the crawl is depth-first, a page is journaled after all pages it references.
+	 */
+	private void recordCrawledPage(String url, int numberOfItems) {
+		HarvestJournal journal = getJournal();
+		if (journal == null) {
+			return;
+		}
+
+		JSONArray newMetadataJson = toJSONArray(unjournaledMetadata);
+		if (newMetadataJson == null) {
+			return;
+		}
+
+		journal.recordCrawledPage(url, numberOfItems, newMetadataJson);
+		unjournaledMetadata.clear();
+	}
+
+	/***
+	 * Restores the pages that were crawled before the last run was interrupted. The metadata found on them are
+	 * handed out again, unless their items were finished.
+	 */
+	private void restoreCrawledPagesFromJournal() {
+		HarvestJournal journal = getJournal();
+		if (journal == null) {
+			return;
+		}
+
+		crawledPages.putAll(journal.takeCrawledPages());
+		try {
+			restoredMetadata = journal.readCrawledMetadata();
+		} catch (IOException ex) {
+			logger.error("Could not read the crawled metadata from the journal! Reason: " + ex.getMessage());
+		}
+
+		if (!crawledPages.isEmpty()) {
+			logger.info("Restored " + crawledPages.size() + " crawled pages from the journal.");
+		}
+	}
+
+	/***
+	 * Returns the next metadata that was journaled by the interrupted run or null, if there are none left.
+	 */
+	private Metadata nextRestoredMetadata() {
+		while (restoredMetadata.hasNext()) {
+			JSONObject metadataJson = restoredMetadata.next();
+			try {
+				return METADATA_MAPPER.readValue(metadataJson.toString(), Metadata.class);
+			} catch (JsonProcessingException ex) {
+				logger.error("Could not restore the journaled metadata: " + metadataJson);
 			}
 		}
-		
-		
-		return metadataList;
+		return null;
+	}
+	
+	private Metadata extractItemMetadata(Element item) {
+		URL itemPdfUrl = getItemPdfUrl(item);
+		if (itemPdfUrl == null) {
+			return null;
+		}
+
+		URL citationUrl = getCitationUrl(item);
+		long itemID = getItemIDFromUrl(citationUrl);
+		Citation citation = getCitationFromUrl(citationUrl);
+		return new Metadata(itemID, itemPdfUrl, citation, citationUrl);
 	}
 
 	private String generateZobodatUrlStringFromString(String url, String prefix) {
@@ -404,4 +616,50 @@ public class ZobodatHarvester extends Harvester {
 
 		return null;
 	}
+
+	/***
+	 * A page of the depth-first crawl, with its progress.
+	 */
+	private static class CrawlFrame {
+		private final String url;
+		private final Elements items;
+		private final List<String> childUrls;
+		// The referenced pages and articles that are fetched ahead, in their order on the page
+		private final Deque<Future<CrawlFrame>> fetchingChildPages = new ArrayDeque<>();
+		private final Deque<Future<Metadata>> extractingArticles = new ArrayDeque<>();
+		private int nextChild = 0;
+		private int nextArticle = 0;
+		private int numberOfReferencedItems = 0;
+
+		/***
+		 * @param url The URL of the page or null, if the page is not to be journaled.
+		 * @param items The items listed on the page.
+		 * @param childUrls The URLs of the pages referenced by the page.
+		 */
+		CrawlFrame(String url, Elements items, List<String> childUrls) {
+			this.url = url;
+			this.items = items;
+			this.childUrls = childUrls;
+		}
+
+		boolean hasNextChildUrl() {
+			return nextChild < childUrls.size();
+		}
+
+		String nextChildUrl() {
+			return childUrls.get(nextChild++);
+		}
+
+		boolean hasNextArticle() {
+			return nextArticle < items.size();
+		}
+
+		boolean isFirstArticle() {
+			return nextArticle == 0;
+		}
+
+		Element nextArticle() {
+			return items.get(nextArticle++);
+		}
+	}
 }
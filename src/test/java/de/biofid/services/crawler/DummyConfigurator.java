@@ -13,6 +13,13 @@ public class DummyConfigurator extends HarvesterConfigurator {
 		}
 	}
 	
+	public void setValue(String harvesterName, String key, Object value) {
+		Configuration conf = getConfigurationForName(harvesterName);
+		if (conf != null) {
+			conf.getHarvesterJsonConfiguration().put(key, value);
+		}
+	}
+	
 	public void addItemToArray(String harvesterName, String itemContainerName, Object item) {
 		Configuration conf = getConfigurationForName(harvesterName);
 		
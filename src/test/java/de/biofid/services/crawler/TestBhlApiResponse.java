@@ -0,0 +1,56 @@
+package de.biofid.services.crawler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import de.biofid.services.crawler.http.JsonResponseReader;
+import de.biofid.services.crawler.http.JsonStreamReader;
+import org.json.JSONArray;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBhlApiResponse {
+
+    private static final JsonResponseReader<JSONArray> ITEM_ID_READER =
+            parser -> JsonStreamReader.readArray(parser, JsonStreamReader.only(List.of("ItemID")));
+
+    @Test
+    public void testResultIsReadAndUnknownFieldsAreSkipped() throws IOException {
+        BhlApiResponse<JSONArray> response = read("{\"Status\": \"ok\", \"Unknown\": {\"Nested\": [1, 2]}, " +
+                "\"ErrorMessage\": \"\", \"Result\": [{\"ItemID\": 1001, \"Pages\": [{\"PageID\": 1}]}]}");
+
+        assertTrue(response.isOk());
+        assertFalse(response.isUnauthorized());
+        assertEquals(1, response.getResult().length());
+        assertEquals(1001, response.getResult().getJSONObject(0).getLong("ItemID"));
+        assertFalse(response.getResult().getJSONObject(0).has("Pages"));
+    }
+
+    @Test
+    public void testUnauthorizedResponseWithoutResult() throws IOException {
+        BhlApiResponse<JSONArray> response = read("{\"Status\": \"Unauthorized\", " +
+                "\"ErrorMessage\": \"Invalid API key\", \"Result\": null}");
+
+        assertFalse(response.isOk());
+        assertTrue(response.isUnauthorized());
+        assertEquals("Invalid API key", response.getErrorMessage());
+        assertNull(response.getResult());
+    }
+
+    @Test
+    public void testResponseCanBeReadFromItsJson() throws IOException {
+        BhlApiResponse<JSONArray> response = read("{\"Status\": \"ok\", \"Result\": [{\"ItemID\": 1001}]}");
+        BhlApiResponse<JSONArray> restoredResponse = read(response.toJson(response.getResult()));
+
+        assertTrue(restoredResponse.isOk());
+        assertEquals(1001, restoredResponse.getResult().getJSONObject(0).getLong("ItemID"));
+    }
+
+    private BhlApiResponse<JSONArray> read(String json) throws IOException {
+        try (JsonParser parser = JsonStreamReader.createParser(json)) {
+            return BhlApiResponse.reader(ITEM_ID_READER).read(parser);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package de.biofid.services.crawler;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBhlBulkDataReader {
+
+    private static final Path BULK_DATA_DIRECTORY = Paths.get("src/test/resources/bhl/bulkData");
+
+    @Test
+    public void testAllItemsAreReadWithTheirTitles() throws IOException {
+        List<JSONObject> items = readItems(BULK_DATA_DIRECTORY, Collections.emptyList(), Collections.emptyList());
+
+        assertEquals(3, items.size());
+
+        JSONObject firstItem = items.get(0);
+        assertEquals(1001, firstItem.getLong("ItemID"));
+        assertEquals(2001, firstItem.getLong("PrimaryTitleID"));
+        assertEquals("mitteilungenausd11naturf", firstItem.getString("SourceIdentifier"));
+        assertEquals("Bd. 1", firstItem.getString("Volume"));
+        assertEquals("Mitteilungen aus dem naturwissenschaftlichen Verein", firstItem.getString("Title"));
+        assertEquals("GER", firstItem.getString("Language"));
+        assertEquals("Internet Archive", firstItem.getString("Source"));
+        assertEquals("https://www.biodiversitylibrary.org/item/1001", firstItem.getString("ItemUrl"));
+        assertEquals("https://www.biodiversitylibrary.org/itempdf/1001", firstItem.getString("ItemPDFUrl"));
+        assertEquals("https://www.biodiversitylibrary.org/itemtext/1001", firstItem.getString("ItemTextUrl"));
+    }
+
+    @Test
+    public void testMissingColumnsAreCompleted() throws IOException {
+        List<JSONObject> items = readItems(BULK_DATA_DIRECTORY, List.of(1003L), Collections.emptyList());
+
+        assertEquals(1, items.size());
+        JSONObject item = items.get(0);
+        assertFalse(item.has("SourceIdentifier"));
+        assertFalse(item.has("Volume"));
+        assertEquals("", item.getString("Source"));
+        assertEquals("https://www.biodiversitylibrary.org/item/1003", item.getString("ItemUrl"));
+    }
+
+    @Test
+    public void testItemsAreFilteredByItemAndTitle() throws IOException {
+        List<JSONObject> items = readItems(BULK_DATA_DIRECTORY, List.of(1003L), List.of(2001L));
+
+        assertEquals(3, items.size());
+
+        items = readItems(BULK_DATA_DIRECTORY, Collections.emptyList(), List.of(2001L));
+        assertEquals(2, items.size());
+        assertEquals(1001, items.get(0).getLong("ItemID"));
+        assertEquals(1002, items.get(1).getLong("ItemID"));
+    }
+
+    @Test
+    public void testItemsAreReadWithoutTitleFile(@TempDir Path tempDir) throws IOException {
+        Files.writeString(tempDir.resolve(BhlBulkDataReader.ITEM_FILE_NAME),
+                "Year\tItemID\tBarCode\n1890\t1001\tabc\nbroken\tline\t\n1891\t1002\t\n");
+
+        List<JSONObject> items = readItems(tempDir, Collections.emptyList(), Collections.emptyList());
+
+        assertEquals(2, items.size());
+        assertEquals("1890", items.get(0).getString("Year"));
+        assertEquals("abc", items.get(0).getString("SourceIdentifier"));
+        assertFalse(items.get(0).has("Title"));
+        assertEquals(1002, items.get(1).getLong("ItemID"));
+    }
+
+    @Test
+    public void testItemFileWithoutItemIdIsRejected(@TempDir Path tempDir) throws IOException {
+        Files.writeString(tempDir.resolve(BhlBulkDataReader.ITEM_FILE_NAME), "Year\tBarCode\n1890\tabc\n");
+
+        assertThrows(IOException.class,
+                () -> new BhlBulkDataReader(tempDir, Collections.emptyList(), Collections.emptyList()));
+    }
+
+    private List<JSONObject> readItems(Path exportDirectory, List<Long> itemIds, List<Long> titleIds)
+            throws IOException {
+        List<JSONObject> items = new ArrayList<>();
+        try (BhlBulkDataReader reader = new BhlBulkDataReader(exportDirectory, itemIds, titleIds)) {
+            reader.forEachRemaining(item -> items.add((JSONObject) item));
+        }
+        return items;
+    }
+}
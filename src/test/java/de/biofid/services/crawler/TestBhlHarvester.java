@@ -1,16 +1,20 @@
 package de.biofid.services.crawler;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
 import de.biofid.services.crawler.BhlHarvester.ItemDoesNotExistException;
+import de.biofid.services.crawler.http.JsonResponseReader;
+import de.biofid.services.crawler.http.JsonStreamReader;
 import org.apache.http.auth.AuthenticationException;
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
@@ -48,11 +52,66 @@ public class TestBhlHarvester {
 
         JSONObject itemJson = bhlHarvester.getItemMetadata(itemId);
         assertEquals((int) itemJson.get("ItemID"), itemId);
-        assertTrue(itemJson.has("Pages"));
+        // The pages are not requested by default
+        assertFalse(itemJson.has("Pages"));
         assertTrue(itemJson.has("Parts"));
         assertFalse(itemJson.has("OcrText"));
     }
 
+    @Test
+    public void testItemMetadataIsRequestedInBatches(@TempDir Path tempDir) throws IOException {
+        DummyConfigurator configurator = setup();
+        long[] itemIDArray = {1001, 1002, 1003};
+        for (long itemID : itemIDArray) {
+            configurator.addItemToArray(BhlHarvester.BHL_STRING, ITEM_ARRAY, itemID);
+        }
+
+        BhlHarvester bhlHarvesterSpy = prepareMockApiDataAndGetHarvesterSpy(configurator,
+                "src/test/resources/bhl/apiResponses/getItemMetadataBatch.json", tempDir.toFile());
+        bhlHarvesterSpy.setMetadataBatchSize(10);
+
+        Item firstItem = new Item();
+        Item secondItem = new Item();
+        assertTrue(bhlHarvesterSpy.nextItem(firstItem));
+        assertTrue(bhlHarvesterSpy.nextItem(secondItem));
+        // Item 1003 is not part of the API response
+        assertFalse(bhlHarvesterSpy.nextItem(new Item()));
+
+        assertEquals(1001, firstItem.getItemId());
+        assertEquals(1002, secondItem.getItemId());
+
+        ArgumentCaptor<Map<String, Object>> parameterCaptor = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(bhlHarvesterSpy, Mockito.times(1)).getFromBhlApi(parameterCaptor.capture(), any());
+        assertEquals("1001|1002|1003", parameterCaptor.getValue().get("id"));
+    }
+
+    @Test
+    public void testItemsOfTitleAreRead(@TempDir Path tempDir) throws IOException, AuthenticationException {
+        DummyConfigurator configurator = setup();
+        BhlHarvester bhlHarvesterSpy = prepareMockApiDataAndGetHarvesterSpy(configurator,
+                "src/test/resources/bhl/apiResponses/getTitleMetadata.json", tempDir.toFile());
+
+        assertEquals(List.of(1001L, 1002L), bhlHarvesterSpy.getItemsFromTitle(2001));
+    }
+
+    @Test
+    public void testItemsAreReadFromBulkData(@TempDir Path tempDir) throws IOException {
+        DummyConfigurator configurator = setup();
+        configurator.setValue(BhlHarvester.BHL_STRING, "bulk-data", "src/test/resources/bhl/bulkData");
+        configurator.addItemToArray(BhlHarvester.BHL_STRING, TITLE_ARRAY, 2002);
+
+        BhlHarvester bhlHarvesterSpy = prepareMockApiDataAndGetHarvesterSpy(configurator,
+                "src/test/resources/bhl/apiResponses/getItemMetadataBatch.json", tempDir.toFile());
+
+        Item item = new Item();
+        assertTrue(bhlHarvesterSpy.nextItem(item));
+        assertFalse(bhlHarvesterSpy.nextItem(new Item()));
+
+        assertEquals(1003, item.getItemId());
+        assertEquals("https://www.biodiversitylibrary.org/itempdf/1003", item.getTextFileUrls().get(0).toString());
+        Mockito.verify(bhlHarvesterSpy, Mockito.never()).getFromBhlApi(any(), any());
+    }
+
     @Test
     public void testHarvestSingleElement(@TempDir Path tempDir) throws Exception {
         DummyConfigurator configurator = setup();
@@ -268,25 +327,21 @@ public class TestBhlHarvester {
         return getConfigurator();
     }
 
-    private JSONObject loadApiResponse(String filePath) throws IOException {
-        File testFilePath = new File(filePath);
-        ObjectMapper objectMapper = new ObjectMapper();
-        Map<String, Object> data = objectMapper.readValue(testFilePath, new TypeReference<Map<String, Object>>() {
-        });
-
-        return new JSONObject(data);
-    }
-
     private BhlHarvester prepareMockApiDataAndGetHarvesterSpy(HarvesterConfigurator configurator,
                                                               String filePath,
                                                               File outputDir) throws IOException {
         Harvester.setOutputDirectory(outputDir.toString());
         BhlHarvester bhlHarvester = new BhlHarvester(
                 configurator.getConfigurationForHarvesterName(BhlHarvester.BHL_STRING));
-        JSONObject apiResponse = loadApiResponse(filePath);
-
         BhlHarvester bhlHarvesterSpy = Mockito.spy(bhlHarvester);
-        Mockito.doReturn(apiResponse).when(bhlHarvesterSpy).getFromBhlApi(any());
+        // The stored response is streamed through the reader of the request, like a received response
+        Mockito.doAnswer(invocation -> {
+            JsonResponseReader<?> resultReader = invocation.getArgument(1);
+            try (InputStream apiResponse = Files.newInputStream(Paths.get(filePath));
+                 JsonParser parser = JsonStreamReader.createParser(apiResponse)) {
+                return BhlApiResponse.reader(resultReader).read(parser);
+            }
+        }).when(bhlHarvesterSpy).getFromBhlApi(any(), any());
 
         return bhlHarvesterSpy;
     }
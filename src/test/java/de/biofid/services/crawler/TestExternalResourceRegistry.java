@@ -0,0 +1,71 @@
+package de.biofid.services.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestExternalResourceRegistry {
+
+    @Test
+    public void testFirstMatchingResolverIsFound() {
+        ExternalResourceResolver firstResolver = new DummyResolver("Madrid");
+        ExternalResourceResolver secondResolver = new DummyResolver("Madrid");
+        try (ExternalResourceRegistry registry = new ExternalResourceRegistry(1)) {
+            registry.register(firstResolver);
+            registry.register(secondResolver);
+
+            assertSame(firstResolver, registry.findResolver("Bibdigital Madrid").get());
+            assertFalse(registry.findResolver("Internet Archive").isPresent());
+            assertFalse(registry.findResolver("").isPresent());
+        }
+    }
+
+    @Test
+    public void testItemIsResolvedInTheBackground() throws Exception {
+        try (ExternalResourceRegistry registry = new ExternalResourceRegistry(2)) {
+            Future<Item> item = registry.resolve(new DummyResolver("Madrid"), new URL("https://example.org/item/42"));
+
+            assertEquals(42, item.get().getItemId());
+        }
+    }
+
+    @Test
+    public void testFailedResolutionFailsTheFuture() throws Exception {
+        try (ExternalResourceRegistry registry = new ExternalResourceRegistry(2)) {
+            Future<Item> item = registry.resolve(new DummyResolver("Madrid"), new URL("https://example.org/item/x"));
+
+            ExecutionException exception = assertThrows(ExecutionException.class, item::get);
+            assertTrue(exception.getCause() instanceof IOException);
+        }
+    }
+
+    private static class DummyResolver implements ExternalResourceResolver {
+        private final String sourceName;
+
+        DummyResolver(String sourceName) {
+            this.sourceName = sourceName;
+        }
+
+        @Override
+        public boolean isResolving(String sourceName) {
+            return sourceName.contains(this.sourceName);
+        }
+
+        @Override
+        public Item resolve(URL externalUrl) throws IOException {
+            String path = externalUrl.getPath();
+            try {
+                Item item = new Item();
+                item.setItemId(Long.parseLong(path.substring(path.lastIndexOf('/') + 1)));
+                return item;
+            } catch (NumberFormatException ex) {
+                throw new IOException("Not an item: " + externalUrl);
+            }
+        }
+    }
+}
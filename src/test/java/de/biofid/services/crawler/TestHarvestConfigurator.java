@@ -1,16 +1,20 @@
 package de.biofid.services.crawler;
 
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TestHarvestConfigurator {
 
     private static final String TEST_CONFIGURATION = "src/test/resources/configurations/test-harvest-configurator.yml";
+    private static final String INVALID_RATE_LIMIT_CONFIGURATION =
+            "src/test/resources/configurations/invalid-rate-limit-config.yml";
 
     private HarvesterConfigurator configurator;
 
@@ -42,6 +46,65 @@ public class TestHarvestConfigurator {
         assertFalse(zobodatConfiguration.isOverwrittingEnabled());
     }
 
+    @Test
+    public void testReadParallelHarvestingSettings() throws IOException {
+        configurator.readConfigurationYamlFile(TEST_CONFIGURATION);
+
+        assertTrue(configurator.isParallelHarvestingEnabled());
+        assertEquals(12, configurator.getPipelineThreadBudget());
+
+        ThreadBudget threadBudget = new ThreadBudget(
+                configurator.getPipelineThreadBudget(), configurator.getHarvesterPipelineThreadLimits());
+        Map<String, Integer> threadsPerHarvester = threadBudget.distribute(List.of("BHL", "Zobodat"));
+        assertEquals(8, (int) threadsPerHarvester.get("BHL"));
+        assertEquals(4, (int) threadsPerHarvester.get("Zobodat"));
+    }
+
+    @Test
+    public void testThreadLimitsAreScaledToBudget() {
+        ThreadBudget threadBudget = new ThreadBudget(16, Map.of("BHL", 12, "Zobodat", 12));
+        Map<String, Integer> threadsPerHarvester = threadBudget.distribute(List.of("BHL", "Zobodat", "Other"));
+
+        assertEquals(16, countPipelineThreads(threadsPerHarvester));
+        assertEquals(6, (int) threadsPerHarvester.get("BHL"));
+        assertEquals(6, (int) threadsPerHarvester.get("Zobodat"));
+        assertEquals(Configuration.MINIMUM_PIPELINE_THREADS, (int) threadsPerHarvester.get("Other"));
+    }
+
+    @Test
+    public void testTooSmallBudgetIsRaisedToTheMinimumOfEveryHarvester() {
+        ThreadBudget threadBudget = new ThreadBudget(4, Map.of("BHL", 8, "Zobodat", 8));
+        Map<String, Integer> threadsPerHarvester = threadBudget.distribute(List.of("BHL", "Zobodat", "Other"));
+
+        assertEquals(3 * Configuration.MINIMUM_PIPELINE_THREADS, countPipelineThreads(threadsPerHarvester));
+    }
+
+    /***
+     * Counts the threads the pipelines of the given harvesters actually start with the default workers.
+     */
+    private int countPipelineThreads(Map<String, Integer> threadsPerHarvester) {
+        int threads = 0;
+        for (Map.Entry<String, Integer> harvesterThreads : threadsPerHarvester.entrySet()) {
+            Configuration configuration = new Configuration(harvesterThreads.getKey(),
+                    "de.biofid.services.crawler.BhlHarvester", new JSONObject().put("download-workers", 8));
+            configuration.limitPipelineThreads(harvesterThreads.getValue());
+
+            int harvesterPipelineThreads = 1 + configuration.getFilterWorkers() + configuration.getDownloadWorkers() +
+                    configuration.getMetadataWorkers();
+            assertTrue(harvesterPipelineThreads <= harvesterThreads.getValue());
+            threads += harvesterPipelineThreads;
+        }
+        return threads;
+    }
+
+    @Test
+    public void testInvalidRateLimitIsRejected() {
+        IOException exception = assertThrows(HarvesterConfigurator.InvalidConfigurationException.class,
+                () -> configurator.readConfigurationYamlFile(INVALID_RATE_LIMIT_CONFIGURATION));
+
+        assertTrue(exception.getMessage().contains("www.zobodat.at"));
+    }
+
     @BeforeEach
     public void setup() {
         configurator = new HarvesterConfigurator();
@@ -0,0 +1,152 @@
+package de.biofid.services.crawler;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestHarvestJournal {
+
+    @Test
+    public void testResumeContinuesAtFirstUnfinishedItem(@TempDir Path tempDir) throws IOException {
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, false)) {
+            for (int position = 0; position < 5; ++position) {
+                journal.recordDiscovered(100 + position, position);
+            }
+            journal.recordStage(100, HarvestJournal.Stage.COMPLETE);
+            journal.recordStage(101, HarvestJournal.Stage.SKIPPED);
+            journal.recordStage(102, HarvestJournal.Stage.DOWNLOADED);
+            journal.recordStage(103, HarvestJournal.Stage.COMPLETE);
+        }
+
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, true)) {
+            assertEquals(2, journal.getResumePosition());
+            assertTrue(journal.isItemFinished(100));
+            assertTrue(journal.isItemFinished(101));
+            assertFalse(journal.isItemFinished(102));
+            assertTrue(journal.isItemFinished(103));
+            assertFalse(journal.isItemFinished(104));
+            assertTrue(journal.hasItemReachedStage(102, HarvestJournal.Stage.DOWNLOADED));
+            assertFalse(journal.hasItemReachedStage(104, HarvestJournal.Stage.DOWNLOADED));
+        }
+    }
+
+    @Test
+    public void testResumeContinuesAtFailedItemAfterFinishedOnes(@TempDir Path tempDir) throws IOException {
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, false)) {
+            journal.recordDiscovered(100, 0);
+            journal.recordStage(100, HarvestJournal.Stage.COMPLETE);
+            // Failed before it entered the pipeline
+            journal.recordDiscovered(101, 1);
+            // Passed by the discovery, because it was harvested before
+            journal.recordDiscovered(102, 2);
+            journal.recordStage(102, HarvestJournal.Stage.SKIPPED);
+        }
+
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, true)) {
+            assertEquals(1, journal.getResumePosition());
+        }
+    }
+
+    @Test
+    public void testRediscoveredItemKeepsItsStage(@TempDir Path tempDir) throws IOException {
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, false)) {
+            journal.recordDiscovered(100, 0);
+            journal.recordDiscovered(101, 1);
+            journal.recordStage(100, HarvestJournal.Stage.COMPLETE);
+            journal.recordStage(101, HarvestJournal.Stage.DOWNLOADED);
+        }
+
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, true)) {
+            journal.recordDiscovered(100, 0);
+            journal.recordDiscovered(101, 1);
+            journal.recordDiscovered(102, 2);
+
+            assertTrue(journal.isItemFinished(100));
+            assertTrue(journal.hasItemReachedStage(101, HarvestJournal.Stage.DOWNLOADED));
+            assertFalse(journal.hasItemReachedStage(102, HarvestJournal.Stage.DOWNLOADED));
+        }
+
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, true)) {
+            assertTrue(journal.isItemFinished(100));
+            assertTrue(journal.hasItemReachedStage(101, HarvestJournal.Stage.DOWNLOADED));
+            assertFalse(journal.isItemFinished(101));
+            assertFalse(journal.isItemFinished(102));
+            assertEquals(1, journal.getResumePosition());
+        }
+    }
+
+    @Test
+    public void testResumeContinuesAfterLastItemIfAllAreFinished(@TempDir Path tempDir) throws IOException {
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, false)) {
+            journal.recordDiscovered(100, 0);
+            journal.recordDiscovered(101, 1);
+            journal.recordStage(100, HarvestJournal.Stage.COMPLETE);
+            journal.recordStage(101, HarvestJournal.Stage.COMPLETE);
+        }
+
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, true)) {
+            assertEquals(2, journal.getResumePosition());
+        }
+    }
+
+    @Test
+    public void testJournalIsDiscardedWithoutResumeAndDeletedWhenFinished(@TempDir Path tempDir) throws IOException {
+        Path journalFile = tempDir.resolve(HarvestJournal.JOURNAL_FILE_NAME);
+
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, false)) {
+            journal.recordDiscovered(100, 0);
+        }
+
+        HarvestJournal journal = HarvestJournal.open(tempDir, false);
+        assertEquals(0, journal.getResumePosition());
+        assertFalse(journal.isItemFinished(100));
+
+        journal.finish();
+        assertFalse(Files.exists(journalFile));
+    }
+
+    @Test
+    public void testCrawledPagesAreRestoredAfterBrokenRecord(@TempDir Path tempDir) throws IOException {
+        Path journalFile = tempDir.resolve(HarvestJournal.JOURNAL_FILE_NAME);
+
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, false)) {
+            journal.recordCrawledPage("https://www.zobodat.at/publikation_volumes.php?id=1", 2,
+                    new JSONArray().put(new JSONObject().put("id", 1)).put(new JSONObject().put("id", 2)));
+            journal.recordCrawledPage("https://www.zobodat.at/publikation_series.php?id=1", 1, new JSONArray());
+        }
+        // A record that was cut off by a crash
+        Files.writeString(journalFile, "{\"type\": \"page\", \"url\": \"https://", StandardOpenOption.APPEND);
+
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, true)) {
+            journal.recordCrawledPage("https://www.zobodat.at/publikation_volumes.php?id=2", 1,
+                    new JSONArray().put(new JSONObject().put("id", 3)));
+        }
+
+        try (HarvestJournal journal = HarvestJournal.open(tempDir, true)) {
+            Map<String, Integer> crawledPages = journal.takeCrawledPages();
+            assertEquals(3, crawledPages.size());
+            assertEquals(Integer.valueOf(2), crawledPages.get("https://www.zobodat.at/publikation_volumes.php?id=1"));
+            assertTrue(journal.takeCrawledPages().isEmpty());
+
+            // Pages recorded by the current run are not read back
+            journal.recordCrawledPage("https://www.zobodat.at/publikation_volumes.php?id=3", 1,
+                    new JSONArray().put(new JSONObject().put("id", 4)));
+
+            List<JSONObject> metadata = new ArrayList<>();
+            journal.readCrawledMetadata().forEachRemaining(metadata::add);
+            assertEquals(3, metadata.size());
+            assertEquals(3, metadata.get(2).getInt("id"));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package de.biofid.services.crawler;
+
+import de.biofid.services.crawler.http.DownloadResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestHarvestManifest {
+
+    private static final String SOURCE = "BHL";
+
+    @Test
+    public void testCompleteItemIsFoundAfterReopening(@TempDir Path tempDir) throws IOException {
+        Path metadataFile = writeFile(tempDir.resolve("metadata/xml/1234.xml"), "<Metadata/>");
+        Path textFile = writeFile(tempDir.resolve("text/pdf/1234.pdf"), "PDF content");
+
+        try (HarvestManifest manifest = HarvestManifest.open(tempDir)) {
+            manifest.record(SOURCE, 1234, metadataFile, List.of(createResult(textFile)),
+                    HarvestManifest.Status.COMPLETE);
+        }
+
+        try (HarvestManifest manifest = HarvestManifest.open(tempDir)) {
+            assertEquals(1, manifest.size());
+            assertTrue(manifest.isComplete(SOURCE, 1234));
+            assertFalse(manifest.isComplete(SOURCE, 5678));
+            assertFalse(manifest.isComplete("Zobodat", 1234));
+            HarvestManifest.Entry entry = manifest.getEntry(SOURCE, 1234).get();
+            assertEquals("text/pdf/1234.pdf", entry.getFilePath(0));
+            assertEquals(Files.size(textFile), entry.getFileSize(0));
+            assertEquals("d41d8cd98f00b204e9800998ecf8427e", entry.getFileMd5Checksum(0));
+        }
+    }
+
+    @Test
+    public void testItemWithMissingFileIsNotComplete(@TempDir Path tempDir) throws IOException {
+        Path metadataFile = writeFile(tempDir.resolve("metadata/xml/1234.xml"), "<Metadata/>");
+        Path textFile = writeFile(tempDir.resolve("text/pdf/1234.pdf"), "PDF content");
+
+        try (HarvestManifest manifest = HarvestManifest.open(tempDir)) {
+            manifest.record(SOURCE, 1234, metadataFile, List.of(createResult(textFile)),
+                    HarvestManifest.Status.COMPLETE);
+            assertTrue(manifest.isComplete(SOURCE, 1234));
+
+            Files.delete(textFile);
+            assertFalse(manifest.isComplete(SOURCE, 1234));
+        }
+    }
+
+    @Test
+    public void testFailedItemIsRecordedUnlessItWasComplete(@TempDir Path tempDir) throws IOException {
+        Path metadataFile = writeFile(tempDir.resolve("metadata/xml/1234.xml"), "<Metadata/>");
+
+        try (HarvestManifest manifest = HarvestManifest.open(tempDir)) {
+            manifest.record(SOURCE, 1234, metadataFile, Collections.emptyList(), HarvestManifest.Status.COMPLETE);
+            manifest.recordFailed(SOURCE, 1234);
+            manifest.recordFailed(SOURCE, 5678);
+        }
+
+        try (HarvestManifest manifest = HarvestManifest.open(tempDir)) {
+            assertTrue(manifest.isComplete(SOURCE, 1234));
+            assertFalse(manifest.isComplete(SOURCE, 5678));
+            assertEquals(HarvestManifest.Status.FAILED, manifest.getEntry(SOURCE, 5678).get().getStatus());
+        }
+    }
+
+    @Test
+    public void testIncompleteItemIsNotComplete(@TempDir Path tempDir) throws IOException {
+        Path metadataFile = writeFile(tempDir.resolve("metadata/xml/1234.xml"), "<Metadata/>");
+
+        try (HarvestManifest manifest = HarvestManifest.open(tempDir)) {
+            manifest.record(SOURCE, 1234, metadataFile, Collections.emptyList(), HarvestManifest.Status.INCOMPLETE);
+            assertFalse(manifest.isComplete(SOURCE, 1234));
+        }
+    }
+
+    @Test
+    public void testLatestRecordWinsAndBrokenLinesAreSkipped(@TempDir Path tempDir) throws IOException {
+        Path metadataFile = writeFile(tempDir.resolve("metadata/xml/1234.xml"), "<Metadata/>");
+
+        try (HarvestManifest manifest = HarvestManifest.open(tempDir)) {
+            manifest.record(SOURCE, 1234, metadataFile, Collections.emptyList(), HarvestManifest.Status.INCOMPLETE);
+            manifest.record(SOURCE, 1234, metadataFile, Collections.emptyList(), HarvestManifest.Status.COMPLETE);
+        }
+
+        Path manifestFile = tempDir.resolve(HarvestManifest.MANIFEST_FILE_NAME);
+        // A record that was cut off by a crash
+        Files.writeString(manifestFile, "{\"source\": \"BHL\", \"itemId\": 99", StandardOpenOption.APPEND);
+
+        try (HarvestManifest manifest = HarvestManifest.open(tempDir)) {
+            assertEquals(1, manifest.size());
+            assertTrue(manifest.isComplete(SOURCE, 1234));
+        }
+
+        assertEquals(1, Files.readAllLines(manifestFile).size());
+    }
+
+    private DownloadResult createResult(Path file) throws IOException {
+        return new DownloadResult(file, Files.size(file), "d41d8cd98f00b204e9800998ecf8427e");
+    }
+
+    private Path writeFile(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}
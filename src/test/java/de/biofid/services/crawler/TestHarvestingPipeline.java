@@ -0,0 +1,122 @@
+package de.biofid.services.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestHarvestingPipeline {
+
+    private static final int NUMBER_OF_ITEMS = 50;
+
+    @Test
+    public void testAllItemsPassAllStages() {
+        Set<Long> downloadedItems = ConcurrentHashMap.newKeySet();
+        Set<Long> writtenItems = ConcurrentHashMap.newKeySet();
+
+        HarvestingPipeline pipeline = new HarvestingPipeline("test", 2, 2, 4, 2);
+        boolean isComplete = pipeline.run(createDiscovery(NUMBER_OF_ITEMS),
+                item -> true,
+                item -> downloadedItems.add(item.getItemId()),
+                item -> writtenItems.add(item.getItemId()));
+
+        assertTrue(isComplete);
+        assertEquals(NUMBER_OF_ITEMS, downloadedItems.size());
+        assertEquals(NUMBER_OF_ITEMS, writtenItems.size());
+    }
+
+    @Test
+    public void testFilteredItemsAreNotProcessed() {
+        Set<Long> writtenItems = ConcurrentHashMap.newKeySet();
+
+        HarvestingPipeline pipeline = new HarvestingPipeline("test", 4, 1, 1, 1);
+        pipeline.run(createDiscovery(NUMBER_OF_ITEMS),
+                item -> item.getItemId() % 2 == 0,
+                item -> {},
+                item -> writtenItems.add(item.getItemId()));
+
+        assertEquals(NUMBER_OF_ITEMS / 2, writtenItems.size());
+        for (long itemId : writtenItems) {
+            assertEquals(0, itemId % 2);
+        }
+    }
+
+    @Test
+    public void testFailingItemDoesNotStopThePipeline() {
+        Set<Long> writtenItems = ConcurrentHashMap.newKeySet();
+
+        HarvestingPipeline pipeline = new HarvestingPipeline("test", 4, 1, 3, 1);
+        pipeline.run(createDiscovery(NUMBER_OF_ITEMS),
+                item -> true,
+                item -> {
+                    if (item.getItemId() == 7) {
+                        throw new IllegalStateException("Download failed!");
+                    }
+                },
+                item -> writtenItems.add(item.getItemId()));
+
+        assertEquals(NUMBER_OF_ITEMS - 1, writtenItems.size());
+        assertFalse(writtenItems.contains(7L));
+    }
+
+    @Test
+    public void testPipelineEndsIfAWorkerDiesByAnError() {
+        Set<Long> writtenItems = ConcurrentHashMap.newKeySet();
+
+        // A single download worker and more items than fit into the queues
+        HarvestingPipeline pipeline = new HarvestingPipeline("test", 2, 1, 1, 1);
+        boolean isComplete = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> pipeline.run(
+                createDiscovery(NUMBER_OF_ITEMS),
+                item -> true,
+                item -> {
+                    if (item.getItemId() == 7) {
+                        throw new OutOfMemoryError("Item too large!");
+                    }
+                },
+                item -> writtenItems.add(item.getItemId())));
+
+        assertFalse(isComplete);
+        assertFalse(writtenItems.contains(7L));
+        assertTrue(writtenItems.size() < NUMBER_OF_ITEMS);
+    }
+
+    @Test
+    public void testFailingDiscoveryIsReported() {
+        Set<Long> writtenItems = ConcurrentHashMap.newKeySet();
+        Supplier<Item> discovery = createDiscovery(NUMBER_OF_ITEMS);
+
+        HarvestingPipeline pipeline = new HarvestingPipeline("test", 4, 1, 1, 1);
+        boolean isComplete = pipeline.run(() -> {
+                    Item item = discovery.get();
+                    if (item.getItemId() == 10) {
+                        throw new IllegalStateException("Discovery failed!");
+                    }
+                    return item;
+                },
+                item -> true,
+                item -> {},
+                item -> writtenItems.add(item.getItemId()));
+
+        assertFalse(isComplete);
+        assertEquals(10, writtenItems.size());
+    }
+
+    private Supplier<Item> createDiscovery(int numberOfItems) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return () -> {
+            int itemId = counter.getAndIncrement();
+            if (itemId >= numberOfItems) {
+                return null;
+            }
+
+            Item item = new Item();
+            item.setItemId(itemId);
+            return item;
+        };
+    }
+}
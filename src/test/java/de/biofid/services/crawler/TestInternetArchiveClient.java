@@ -0,0 +1,147 @@
+package de.biofid.services.crawler;
+
+import com.sun.net.httpserver.HttpServer;
+import de.biofid.services.crawler.http.ApiResponseCache;
+import de.biofid.services.crawler.http.ExpectedFile;
+import de.biofid.services.crawler.http.RateLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestInternetArchiveClient {
+
+    private static final String LISTING = "{\"d1\": \"ia800100.us.archive.org\", \"d2\": \"ia600100.us.archive.org\", " +
+            "\"dir\": \"/12/items/mitteilungen\", \"workable_servers\": [\"ia600100.us.archive.org\", " +
+            "\"ia800100.us.archive.org\"], \"files\": [" +
+            "{\"name\": \"mitteilungen_abbyy.gz\", \"source\": \"derivative\", \"size\": \"12345\", " +
+            "\"md5\": \"0CC175B9C0F1B6A831C399E269772661\", \"sha1\": \"abc\"}, " +
+            "{\"name\": \"mitteilungen.pdf\", \"size\": \"999\"}], \"metadata\": {\"title\": \"Mitteilungen\"}}";
+
+    private final AtomicInteger listingRequests = new AtomicInteger(0);
+    private HttpServer server;
+    private String metadataApiUrl;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/metadata/", exchange -> {
+            listingRequests.incrementAndGet();
+            // Unknown identifiers are answered with an empty object
+            byte[] body = (exchange.getRequestURI().getPath().endsWith("/mitteilungen") ? LISTING : "{}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        });
+        server.start();
+
+        metadataApiUrl = "http://localhost:" + server.getAddress().getPort() + "/metadata/";
+        RateLimiter.setShared(new RateLimiter());
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testListedFilesHaveSizeAndChecksum() {
+        InternetArchiveClient client = new InternetArchiveClient(metadataApiUrl, null);
+
+        InternetArchiveFileListing listing = client.getFileListing("mitteilungen").get();
+
+        assertTrue(listing.exists());
+        ExpectedFile abbyyFile = listing.getFile("mitteilungen_abbyy.gz").get();
+        assertEquals(12345, abbyyFile.getSize());
+        assertEquals("0cc175b9c0f1b6a831c399e269772661", abbyyFile.getMd5Checksum());
+        assertNull(listing.getFile("mitteilungen.pdf").get().getMd5Checksum());
+        assertFalse(listing.getFile("mitteilungen_chocr.html.gz").isPresent());
+    }
+
+    @Test
+    public void testFileUrlsPointToStorageNodesPrimaryFirst() {
+        InternetArchiveClient client = new InternetArchiveClient(metadataApiUrl, null);
+
+        InternetArchiveFileListing listing = client.getFileListing("mitteilungen").get();
+
+        assertEquals(List.of("https://ia800100.us.archive.org/12/items/mitteilungen/mitteilungen_abbyy.gz",
+                        "https://ia600100.us.archive.org/12/items/mitteilungen/mitteilungen_abbyy.gz"),
+                listing.getFileUrls("mitteilungen_abbyy.gz"));
+        assertTrue(client.getFileListing("unknown").get().getFileUrls("unknown.pdf").isEmpty());
+    }
+
+    @Test
+    public void testPrefetchedListingIsRequestedOnce() {
+        InternetArchiveClient client = new InternetArchiveClient(metadataApiUrl, null);
+
+        client.prefetchFileListing("mitteilungen");
+        client.prefetchFileListing("mitteilungen");
+
+        assertTrue(client.getFileListing("mitteilungen").get().exists());
+        assertEquals(1, listingRequests.get());
+    }
+
+    @Test
+    public void testListingsAreCachedIncludingUnknownIdentifiers(@TempDir Path tempDir) {
+        InternetArchiveClient client = new InternetArchiveClient(metadataApiUrl, createCache(tempDir));
+
+        assertTrue(client.getFileListing("mitteilungen").get().exists());
+        assertFalse(client.getFileListing("unknown").get().exists());
+
+        InternetArchiveClient restartedClient = new InternetArchiveClient(metadataApiUrl, createCache(tempDir));
+        Optional<InternetArchiveFileListing> listing = restartedClient.getFileListing("mitteilungen");
+        assertEquals(12345, listing.get().getFile("mitteilungen_abbyy.gz").get().getSize());
+        assertEquals(2, listing.get().getFileUrls("mitteilungen_abbyy.gz").size());
+        assertFalse(restartedClient.getFileListing("unknown").get().exists());
+        assertEquals(2, listingRequests.get());
+    }
+
+    @Test
+    public void testRefreshedListingReplacesTheCachedOne(@TempDir Path tempDir) {
+        ApiResponseCache cache = createCache(tempDir);
+        InternetArchiveClient client = new InternetArchiveClient(metadataApiUrl, cache);
+        cache.put(InternetArchiveClient.CACHE_OPERATION, Collections.singletonMap("identifier", "mitteilungen"),
+                "{}");
+        assertFalse(client.getFileListing("mitteilungen").get().exists());
+
+        Supplier<Optional<InternetArchiveFileListing>> currentListing =
+                client.createCurrentFileListingSupplier("mitteilungen");
+
+        assertTrue(currentListing.get().get().exists());
+        assertTrue(currentListing.get().get().exists());
+        assertTrue(client.getFileListing("mitteilungen").get().exists());
+        assertEquals(1, listingRequests.get());
+    }
+
+    @Test
+    public void testUnavailableListingIsEmpty() {
+        InternetArchiveClient client = new InternetArchiveClient(metadataApiUrl.replace("/metadata/", "/missing/"),
+                null);
+
+        assertFalse(client.getFileListing("mitteilungen").isPresent());
+    }
+
+    private ApiResponseCache createCache(Path directory) {
+        Map<String, Duration> timeToLive = Collections.singletonMap(InternetArchiveClient.CACHE_OPERATION,
+                Duration.ofDays(1));
+        return new ApiResponseCache(directory, ApiResponseCache.MAXIMUM_SIZE_IN_BYTES_DEFAULT, timeToLive,
+                Collections.emptySet());
+    }
+}
@@ -81,6 +81,36 @@ public class TestItem {
 		}
 	}
 	
+	@Test
+	public void testParallelMultiFileTextDownload() throws DownloadFailedException {
+		int itemId = 12345;
+		item.addTextFileUrl("https://www.biodiversitylibrary.org/itempdf/93597", Item.FileType.PDF);
+		item.addTextFileUrl("https://www.biodiversitylibrary.org/itemtext/93597", Item.FileType.TXT);
+		item.addTextFileUrl("https://archive.org/download/pussyherlanguage00clar/pussyherlanguage00clar_abbyy.gz", Item.FileType.ABBYY);
+		item.addTextFileUrl("https://www.biodiversitylibrary.org/itempdf/122536", Item.FileType.PDF);
+
+		item.setItemId(itemId);
+
+		Item.setParallelFileDownloadEnabled(true);
+		try {
+			createdTextFiles = item.writeTextFiles(TEST_DIRECTORY, true);
+		} finally {
+			Item.setParallelFileDownloadEnabled(false);
+		}
+		assertEquals(4, createdTextFiles.size());
+
+		// The order of the returned files has to be the order of the URLs
+		String[] fileNameComparisonArray = {
+				itemId + ".pdf", itemId + ".txt", itemId + ".gz", itemId + "-1.pdf"
+		};
+
+		for (int i = 0; i < fileNameComparisonArray.length; ++i) {
+			Path createdFilePath = createdTextFiles.get(i);
+			assertEquals(fileNameComparisonArray[i], createdFilePath.getFileName().toString());
+			assertTrue(createdFilePath.toFile().exists());
+		}
+	}
+	
 	@Test
 	public void testWriteMetadataFile() throws UnsupportedOutputFormatException, 
 												ParserConfigurationException, SAXException, 
@@ -0,0 +1,81 @@
+package de.biofid.services.crawler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import de.biofid.services.crawler.http.JsonStreamReader;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMetadataProjection {
+
+    @Test
+    public void testAllFieldsAreKeptByDefault() throws IOException {
+        MetadataProjection projection = MetadataProjection.fromConfiguration(null, List.of("ItemID"));
+
+        assertFalse(projection.wantsPages());
+        assertTrue(projection.wantsParts());
+        assertFalse(projection.wantsOcr());
+        assertEquals(createItemMetadata().toString(), read(projection, createItemMetadata()).toString());
+    }
+
+    @Test
+    public void testOnlyConfiguredAndRequiredFieldsAreKept() throws IOException {
+        JSONObject configuration = new JSONObject()
+                .put(MetadataProjection.PAGES, false)
+                .put(MetadataProjection.FIELDS, new JSONArray().put("Year").put("Pages.PageID"));
+        MetadataProjection projection = MetadataProjection.fromConfiguration(configuration, List.of("ItemID"));
+
+        assertFalse(projection.wantsPages());
+
+        JSONObject metadata = read(projection, createItemMetadata());
+        assertEquals(Set.of("ItemID", "Year", "Pages"), metadata.keySet());
+
+        JSONArray pages = metadata.getJSONArray("Pages");
+        assertEquals(2, pages.length());
+        assertEquals(Set.of("PageID"), pages.getJSONObject(0).keySet());
+        assertEquals(2, pages.getJSONObject(1).getLong("PageID"));
+    }
+
+    @Test
+    public void testFieldIsKeptCompletelyIfGivenWithoutSubfields() throws IOException {
+        MetadataProjection projection = new MetadataProjection(true, false, true, List.of("Pages", "Pages.PageID"));
+
+        JSONObject metadata = read(projection, createItemMetadata());
+        assertEquals(Set.of("Pages"), metadata.keySet());
+        assertTrue(metadata.getJSONArray("Pages").getJSONObject(0).has("OcrText"));
+    }
+
+    @Test
+    public void testKeptFieldsDescriptionIsIndependentOfOrder() {
+        assertEquals(new MetadataProjection(true, false, true, List.of("Year", "ItemID")).getKeptFieldsDescription(),
+                new MetadataProjection(true, false, true, List.of("ItemID", "Year")).getKeptFieldsDescription());
+        assertNotEquals(new MetadataProjection(true, false, true, List.of("ItemID")).getKeptFieldsDescription(),
+                new MetadataProjection(true, false, true, Collections.emptyList()).getKeptFieldsDescription());
+    }
+
+    private JSONObject read(MetadataProjection projection, JSONObject metadata) throws IOException {
+        try (JsonParser parser = JsonStreamReader.createParser(metadata.toString())) {
+            return projection.read(parser);
+        }
+    }
+
+    private JSONObject createItemMetadata() {
+        JSONArray pages = new JSONArray();
+        for (long pageId = 1; pageId <= 2; ++pageId) {
+            pages.put(new JSONObject().put("PageID", pageId).put("OcrText", "Text of page " + pageId));
+        }
+
+        return new JSONObject()
+                .put("ItemID", 1234)
+                .put("Year", "1900")
+                .put("Volume", "v.1")
+                .put("Pages", pages);
+    }
+}
@@ -0,0 +1,83 @@
+package de.biofid.services.crawler;
+
+import de.biofid.services.crawler.http.HttpStatusException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestParallelPageReader {
+
+    @Test
+    public void testPagesAreCollectedInOrderUntilTheFirstEmptyPage() throws IOException {
+        int numberOfPages = 10;
+        int parallelPages = 3;
+        AtomicInteger highestRequestedPage = new AtomicInteger(0);
+
+        ParallelPageReader<Integer> pageReader = new ParallelPageReader<>(page -> {
+            highestRequestedPage.accumulateAndGet(page, Math::max);
+            try {
+                // Later pages are answered first
+                Thread.sleep(20 - page);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return page <= numberOfPages ? List.of(page * 10, page * 10 + 1) : Collections.emptyList();
+        }, parallelPages, 0);
+
+        List<Integer> entries = pageReader.readAll();
+
+        assertEquals(2 * numberOfPages, entries.size());
+        for (int i = 0; i < entries.size(); ++i) {
+            assertEquals(Integer.valueOf((i / 2 + 1) * 10 + i % 2), entries.get(i));
+        }
+        // Only the window behind the first empty page is requested in vain
+        assertTrue(highestRequestedPage.get() <= numberOfPages + parallelPages);
+    }
+
+    @Test
+    public void testFailedPageIsRetried() throws IOException {
+        AtomicInteger failures = new AtomicInteger(0);
+        ParallelPageReader<Integer> pageReader = new ParallelPageReader<>(page -> {
+            if (page == 1 && failures.getAndIncrement() < 2) {
+                throw new IOException("Connection reset");
+            }
+            return page == 1 ? List.of(1) : Collections.emptyList();
+        }, 2, 2);
+
+        assertEquals(List.of(1), pageReader.readAll());
+        assertEquals(3, failures.get());
+    }
+
+    @Test
+    public void testReadingFailsAfterAllRetries() {
+        AtomicInteger attempts = new AtomicInteger(0);
+        ParallelPageReader<Integer> pageReader = new ParallelPageReader<>(page -> {
+            if (page == 2) {
+                attempts.incrementAndGet();
+                throw new IOException("Connection reset");
+            }
+            return page < 5 ? List.of(page) : Collections.emptyList();
+        }, 2, 3);
+
+        assertThrows(IOException.class, pageReader::readAll);
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    public void testRefusedRequestIsNotRetried() {
+        AtomicInteger attempts = new AtomicInteger(0);
+        ParallelPageReader<Integer> pageReader = new ParallelPageReader<>(page -> {
+            attempts.incrementAndGet();
+            throw new HttpStatusException(HttpStatusException.UNAUTHORIZED, URI.create("https://example.org"));
+        }, 1, 3);
+
+        assertThrows(HttpStatusException.class, pageReader::readAll);
+        assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,81 @@
+package de.biofid.services.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestTitleItemIterator {
+
+    @Test
+    public void testItemsAreFollowedByTitleItemsInOrder() {
+        TitleItemIterator<Long> iterator = new TitleItemIterator<>(List.of("1", "2"), List.of(10L, 20L, 30L),
+                titleId -> titleId == 20 ? Collections.emptyList() : List.of(titleId + 1, titleId + 2), 2);
+
+        List<Object> items = new ArrayList<>();
+        iterator.forEachRemaining(items::add);
+
+        assertEquals(List.of("1", "2", 11L, 12L, 31L, 32L), items);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testFirstTitleIsAvailableWhileLaterTitlesAreResolved() throws InterruptedException {
+        CountDownLatch laterTitlesReleased = new CountDownLatch(1);
+        CountDownLatch laterTitleStarted = new CountDownLatch(1);
+
+        Iterator<Object> iterator = new TitleItemIterator<>(Collections.emptyList(), List.of(1L, 2L), titleId -> {
+            if (titleId == 2) {
+                laterTitleStarted.countDown();
+                try {
+                    laterTitlesReleased.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return List.of(titleId * 100);
+        }, 2);
+
+        assertEquals(100L, iterator.next());
+        assertTrue(laterTitleStarted.await(5, TimeUnit.SECONDS));
+
+        laterTitlesReleased.countDown();
+        assertEquals(200L, iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testNumberOfConcurrentlyResolvedTitlesIsBounded() {
+        int prefetchedTitles = 3;
+        AtomicInteger runningResolutions = new AtomicInteger(0);
+        AtomicInteger maximumRunningResolutions = new AtomicInteger(0);
+        List<Long> titles = new ArrayList<>();
+        for (long titleId = 0; titleId < 20; ++titleId) {
+            titles.add(titleId);
+        }
+
+        TitleItemIterator<Long> iterator = new TitleItemIterator<>(Collections.emptyList(), titles, titleId -> {
+            maximumRunningResolutions.accumulateAndGet(runningResolutions.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            runningResolutions.decrementAndGet();
+            return List.of(titleId);
+        }, prefetchedTitles);
+
+        List<Object> items = new ArrayList<>();
+        iterator.forEachRemaining(items::add);
+
+        assertEquals(20, items.size());
+        assertTrue(maximumRunningResolutions.get() <= prefetchedTitles);
+    }
+}
@@ -18,6 +18,19 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -198,6 +211,91 @@ public class TestZobodatHarvester {
 		zobodatHarvester.addMetadataToItem(item, metadata);
 	}
 
+	@Test
+	public void testArticlesAreHandedOutWhileCrawling(@TempDir Path tempDir) throws IOException {
+		DummyConfigurator configurator = setup(tempDir);
+		configurator.addItemToArray(ZobodatHarvester.ZOBODAT_STRING, "titles", 1);
+		configurator.setValue(ZobodatHarvester.ZOBODAT_STRING, "parallel-crawl-pages", 1);
+		Map<String, Document> site = new HashMap<>();
+		site.put(ZobodatHarvester.ZOBODAT_TITLE_BASE_URL + "1", createPage(
+				createListEntry("/publikation_volumes.php?id=10", null),
+				createListEntry("/publikation_volumes.php?id=11", null)));
+		site.put("https://www.zobodat.at/publikation_volumes.php?id=10", createPage(
+				createListEntry("/publikation_articles.php?id=100", "/pdf/100.pdf"),
+				createListEntry("/publikation_articles.php?id=101", "/pdf/101.pdf")));
+		site.put("https://www.zobodat.at/publikation_volumes.php?id=11", createPage(
+				createListEntry("/publikation_articles.php?id=102", "/pdf/102.pdf")));
+
+		LocalZobodatHarvester zobodatHarvester = new LocalZobodatHarvester(
+				configurator.getConfigurationForHarvesterName(ZobodatHarvester.ZOBODAT_STRING), site);
+
+		Item item = new Item();
+		assertTrue(zobodatHarvester.nextItem(item));
+		assertEquals(100, item.getItemId());
+		// The second volume is not crawled before the first article is handed out
+		assertFalse(zobodatHarvester.fetchedUrls.contains("https://www.zobodat.at/publikation_volumes.php?id=11"));
+
+		List<Long> itemIds = new ArrayList<>();
+		item = new Item();
+		while (zobodatHarvester.nextItem(item)) {
+			itemIds.add(item.getItemId());
+			assertEquals(0, zobodatHarvester.getMetadataListSize());
+			item = new Item();
+		}
+		assertEquals(List.of(101L, 102L), itemIds);
+	}
+
+	@Test
+	public void testParallelCrawlKeepsTheOrderOfTheSite(@TempDir Path tempDir) throws IOException {
+		DummyConfigurator configurator = setup(tempDir);
+		configurator.addItemToArray(ZobodatHarvester.ZOBODAT_STRING, "titles", 1);
+		configurator.setValue(ZobodatHarvester.ZOBODAT_STRING, "parallel-crawl-pages", 4);
+		Map<String, Document> site = new HashMap<>();
+		site.put(ZobodatHarvester.ZOBODAT_TITLE_BASE_URL + "1", createPage(
+				createListEntry("/publikation_volumes.php?id=10", null),
+				createListEntry("/publikation_volumes.php?id=11", null),
+				createListEntry("/publikation_volumes.php?id=12", null)));
+		List<Long> expectedItemIds = new ArrayList<>();
+		for (int volume = 10; volume <= 12; ++volume) {
+			long firstArticle = volume * 10L;
+			site.put("https://www.zobodat.at/publikation_volumes.php?id=" + volume, createPage(
+					createListEntry("/publikation_articles.php?id=" + firstArticle, "/pdf/" + firstArticle + ".pdf"),
+					createListEntry("/publikation_articles.php?id=" + (firstArticle + 1),
+							"/pdf/" + (firstArticle + 1) + ".pdf")));
+			expectedItemIds.add(firstArticle);
+			expectedItemIds.add(firstArticle + 1);
+		}
+
+		LocalZobodatHarvester zobodatHarvester = new LocalZobodatHarvester(
+				configurator.getConfigurationForHarvesterName(ZobodatHarvester.ZOBODAT_STRING), site);
+		// The volumes are only served once all of them are requested, which fails if they are not fetched in parallel
+		zobodatHarvester.serveTogether(List.of("https://www.zobodat.at/publikation_volumes.php?id=10",
+				"https://www.zobodat.at/publikation_volumes.php?id=11",
+				"https://www.zobodat.at/publikation_volumes.php?id=12"));
+
+		List<Long> itemIds = new ArrayList<>();
+		Item item = new Item();
+		while (zobodatHarvester.nextItem(item)) {
+			itemIds.add(item.getItemId());
+			item = new Item();
+		}
+
+		assertEquals(expectedItemIds, itemIds);
+		assertTrue(zobodatHarvester.isServedTogether.get());
+		assertTrue(zobodatHarvester.maximumParallelFetches.get() <= 4);
+	}
+
+	private Document createPage(String... listEntries) {
+		return Jsoup.parse("<html><body><ul class=\"search-results-list\">" + String.join("", listEntries) +
+				"</ul></body></html>", ZobodatHarvester.ZOBODAT_URL);
+	}
+
+	private String createListEntry(String url, String pdfUrl) {
+		String publicationLink = pdfUrl == null ? "" : "<a class=\"publication-link\" href=\"" + pdfUrl + "\">PDF</a>";
+		return "<li class=\"result\"><div class=\"content\"><a class=\"red\" href=\"" + url + "\">Entry</a>" +
+				"<div><a href=\"" + url + "\">Citation</a></div></div>" + publicationLink + "</li>";
+	}
+
 	private void areAllMetadataFieldsSerialized(JSONObject item) {
 		assertTrue(item.has(METADATA_PDF_URL));
 		assertTrue(item.has(METADATA_CITATION));
@@ -238,4 +336,51 @@ public class TestZobodatHarvester {
 		configurator.readConfigurationYamlFile(testConfigFilePath);
 		return configurator;
 	}
+
+	/***
+	 * Serves the pages of a local site. Unknown pages are empty. Pages can be held back until all pages of a group
+	 * are requested.
+	 */
+	private static class LocalZobodatHarvester extends ZobodatHarvester {
+		private final Map<String, Document> site;
+		private final List<String> fetchedUrls = new CopyOnWriteArrayList<>();
+		private final AtomicInteger parallelFetches = new AtomicInteger(0);
+		private final AtomicInteger maximumParallelFetches = new AtomicInteger(0);
+		private final AtomicBoolean isServedTogether = new AtomicBoolean(true);
+		private Set<String> urlsServedTogether = Collections.emptySet();
+		private CountDownLatch pendingUrlsServedTogether = new CountDownLatch(0);
+
+		LocalZobodatHarvester(Configuration configuration, Map<String, Document> site) throws IOException {
+			super(configuration);
+			this.site = site;
+		}
+
+		/***
+		 * Holds back the given pages until all of them are requested.
+		 */
+		void serveTogether(Collection<String> urls) {
+			urlsServedTogether = new HashSet<>(urls);
+			pendingUrlsServedTogether = new CountDownLatch(urls.size());
+		}
+
+		@Override
+		public Document getDocumentFromUrl(String url) throws IOException {
+			fetchedUrls.add(url);
+			maximumParallelFetches.accumulateAndGet(parallelFetches.incrementAndGet(), Math::max);
+			try {
+				if (urlsServedTogether.contains(url)) {
+					pendingUrlsServedTogether.countDown();
+					if (!pendingUrlsServedTogether.await(5, TimeUnit.SECONDS)) {
+						isServedTogether.set(false);
+					}
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException(ex);
+			} finally {
+				parallelFetches.decrementAndGet();
+			}
+			return site.getOrDefault(url, Jsoup.parse("<html><body></body></html>"));
+		}
+	}
 }
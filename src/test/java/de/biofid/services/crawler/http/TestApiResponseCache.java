@@ -0,0 +1,93 @@
+package de.biofid.services.crawler.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestApiResponseCache {
+
+    private static final String OPERATION = "GetItemMetadata";
+    private static final String API_KEY = "apikey";
+
+    @Test
+    public void testResponseIsFoundIndependentOfParameterOrderAndApiKey(@TempDir Path tempDir) {
+        ApiResponseCache cache = createCache(tempDir, Duration.ofDays(1), ApiResponseCache.MAXIMUM_SIZE_IN_BYTES_DEFAULT);
+        cache.put(OPERATION, createParameters(1234, "key-1"), createResponse(1234));
+
+        Map<String, Object> reorderedParameters = new HashMap<>();
+        reorderedParameters.put("id", 1234);
+        reorderedParameters.put(API_KEY, "key-2");
+        reorderedParameters.put("op", OPERATION);
+
+        Optional<String> response = cache.get(OPERATION, reorderedParameters);
+        assertTrue(response.isPresent());
+        assertEquals(createResponse(1234), response.get());
+        assertFalse(cache.get(OPERATION, createParameters(5678, "key-1")).isPresent());
+    }
+
+    @Test
+    public void testResponsesSurviveReopening(@TempDir Path tempDir) {
+        createCache(tempDir, Duration.ofDays(1), ApiResponseCache.MAXIMUM_SIZE_IN_BYTES_DEFAULT)
+                .put(OPERATION, createParameters(1234, "key"), createResponse(1234));
+
+        ApiResponseCache reopenedCache = createCache(tempDir, Duration.ofDays(1),
+                ApiResponseCache.MAXIMUM_SIZE_IN_BYTES_DEFAULT);
+        assertTrue(reopenedCache.getSizeInBytes() > 0);
+        assertTrue(reopenedCache.get(OPERATION, createParameters(1234, "key")).isPresent());
+    }
+
+    @Test
+    public void testExpiredAndUncachedOperationsAreNotServed(@TempDir Path tempDir) {
+        ApiResponseCache cache = createCache(tempDir, Duration.ZERO.minusSeconds(1),
+                ApiResponseCache.MAXIMUM_SIZE_IN_BYTES_DEFAULT);
+        cache.put(OPERATION, createParameters(1234, "key"), createResponse(1234));
+        assertFalse(cache.get(OPERATION, createParameters(1234, "key")).isPresent());
+        assertEquals(0, cache.getSizeInBytes());
+
+        cache.put("GetCollections", createParameters(1234, "key"), createResponse(1234));
+        assertFalse(cache.isCached("GetCollections"));
+        assertFalse(cache.get("GetCollections", createParameters(1234, "key")).isPresent());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResponseIsEvicted(@TempDir Path tempDir) {
+        ApiResponseCache cache = createCache(tempDir, Duration.ofDays(1), ApiResponseCache.MAXIMUM_SIZE_IN_BYTES_DEFAULT);
+        cache.put(OPERATION, createParameters(1, "key"), createResponse(1));
+        long sizeOfSingleResponse = cache.getSizeInBytes();
+
+        // Room for two responses only
+        cache = createCache(tempDir, Duration.ofDays(1), 2 * sizeOfSingleResponse + sizeOfSingleResponse / 2);
+        cache.put(OPERATION, createParameters(2, "key"), createResponse(2));
+        assertTrue(cache.get(OPERATION, createParameters(1, "key")).isPresent());
+        cache.put(OPERATION, createParameters(3, "key"), createResponse(3));
+
+        assertTrue(cache.get(OPERATION, createParameters(1, "key")).isPresent());
+        assertFalse(cache.get(OPERATION, createParameters(2, "key")).isPresent());
+        assertTrue(cache.get(OPERATION, createParameters(3, "key")).isPresent());
+    }
+
+    private ApiResponseCache createCache(Path directory, Duration timeToLive, long maximumSizeInBytes) {
+        return new ApiResponseCache(directory, maximumSizeInBytes, Map.of(OPERATION, timeToLive), Set.of(API_KEY));
+    }
+
+    private Map<String, Object> createParameters(long itemId, String apiKey) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(API_KEY, apiKey);
+        parameters.put("op", OPERATION);
+        parameters.put("id", itemId);
+        return parameters;
+    }
+
+    private String createResponse(long itemId) {
+        // Line breaks within a response have to be preserved
+        return "{\n  \"ItemID\": " + itemId + "\n}";
+    }
+}
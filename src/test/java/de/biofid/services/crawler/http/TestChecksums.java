@@ -0,0 +1,34 @@
+package de.biofid.services.crawler.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestChecksums {
+
+    @Test
+    public void testMd5OfFileIsLowerCaseHex(@TempDir Path tempDir) throws IOException {
+        Path emptyFile = Files.createFile(tempDir.resolve("empty.txt"));
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "a");
+
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e", Checksums.computeMd5(emptyFile));
+        assertEquals("0cc175b9c0f1b6a831c399e269772661", Checksums.computeMd5(file));
+        assertEquals(Checksums.computeMd5(file), Checksums.compute(Checksums.MD5, "a".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testHexStringIsConvertedBackToBytes() {
+        byte[] bytes = {0, 15, 16, -1, -128, 127};
+
+        assertEquals("000f10ff807f", Checksums.toHexString(bytes));
+        assertArrayEquals(bytes, Checksums.fromHexString("000F10FF807F"));
+        assertThrows(NumberFormatException.class, () -> Checksums.fromHexString("abc"));
+        assertThrows(NumberFormatException.class, () -> Checksums.fromHexString("zz"));
+    }
+}
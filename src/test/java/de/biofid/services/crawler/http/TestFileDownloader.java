@@ -0,0 +1,454 @@
+package de.biofid.services.crawler.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFileDownloader {
+
+    private static final int CONTENT_SIZE = 3 * 1024 * 1024 + 17;
+    private static final String ETAG = "\"v1\"";
+
+    private final byte[] content = new byte[CONTENT_SIZE];
+    private final List<String> receivedRanges = new CopyOnWriteArrayList<>();
+    private final AtomicInteger resumableRequests = new AtomicInteger(0);
+    private final AtomicInteger fullTransfers = new AtomicInteger(0);
+    private final AtomicInteger fileRequests = new AtomicInteger(0);
+    private final AtomicInteger headRequests = new AtomicInteger(0);
+    private HttpServer server;
+    private String baseUrl;
+    private FileDownloader downloader;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        new Random(42).nextBytes(content);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/file", exchange -> {
+            fileRequests.incrementAndGet();
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(content);
+            }
+        });
+        server.createContext("/truncated", exchange -> {
+            exchange.sendResponseHeaders(200, content.length);
+            OutputStream body = exchange.getResponseBody();
+            body.write(content, 0, content.length / 2);
+            body.flush();
+            exchange.close();
+        });
+        server.createContext("/resumable", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            exchange.getResponseHeaders().add("ETag", ETAG);
+
+            if (range != null && ETAG.equals(ifRange)) {
+                receivedRanges.add(range);
+                int offset = Integer.parseInt(range.replaceAll("\\D", ""));
+                exchange.getResponseHeaders().add("Content-Range",
+                        "bytes " + offset + "-" + (content.length - 1) + "/" + content.length);
+                exchange.sendResponseHeaders(206, content.length - offset);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(content, offset, content.length - offset);
+                }
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, content.length);
+            OutputStream body = exchange.getResponseBody();
+            if (resumableRequests.getAndIncrement() == 0) {
+                // The first transfer breaks off in the middle
+                body.write(content, 0, content.length / 2);
+                body.flush();
+                exchange.close();
+                return;
+            }
+            body.write(content);
+            body.close();
+        });
+        server.createContext("/ranged", exchange -> {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            exchange.getResponseHeaders().add("ETag", ETAG);
+
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                headRequests.incrementAndGet();
+                exchange.getResponseHeaders().add("Content-Length", Integer.toString(content.length));
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+
+            if (exchange.getRequestHeaders().getFirst("Range") == null) {
+                fullTransfers.incrementAndGet();
+                exchange.sendResponseHeaders(200, content.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(content);
+                } catch (IOException ex) {
+                    // The client may close the response after the headers
+                }
+                return;
+            }
+
+            String[] range = exchange.getRequestHeaders().getFirst("Range").replace("bytes=", "").split("-");
+            int start = Integer.parseInt(range[0]);
+            int end = Integer.parseInt(range[1]);
+            receivedRanges.add(start + "-" + end);
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            exchange.sendResponseHeaders(206, end - start + 1);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(content, start, end - start + 1);
+            }
+        });
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.createContext("/misranged", exchange -> {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            exchange.getResponseHeaders().add("ETag", ETAG);
+
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range != null) {
+                receivedRanges.add(range);
+                // The host ignores the requested offset
+                exchange.getResponseHeaders().add("Content-Range",
+                        "bytes 0-" + (content.length - 1) + "/" + content.length);
+                exchange.sendResponseHeaders(206, content.length);
+            } else {
+                exchange.sendResponseHeaders(200, content.length);
+            }
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(content);
+            }
+        });
+        server.createContext("/conditional", exchange -> {
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            fullTransfers.incrementAndGet();
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(content);
+            }
+        });
+        server.start();
+
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        downloader = new FileDownloader(new HttpFetcher(Duration.ofSeconds(5), Duration.ofSeconds(5), 2));
+        RateLimiter.setShared(new RateLimiter());
+        MirrorSelector.setShared(new MirrorSelector());
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testDownloadIsCompleteAndChecksummed(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.pdf");
+
+        DownloadResult result = downloader.download(new URL(baseUrl + "/file"), targetFile);
+
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+        assertEquals(CONTENT_SIZE, result.getSize());
+        assertEquals(md5(content), result.getMd5Checksum());
+        assertFalse(Files.exists(FileDownloader.getPartialFile(targetFile)));
+    }
+
+    @Test
+    public void testTruncatedDownloadDoesNotReplaceTheTargetFile(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.pdf");
+        byte[] previousContent = "previous".getBytes();
+        Files.write(targetFile, previousContent);
+
+        assertThrows(IOException.class, () -> downloader.download(new URL(baseUrl + "/truncated"), targetFile));
+
+        assertArrayEquals(previousContent, Files.readAllBytes(targetFile));
+        assertFalse(Files.exists(FileDownloader.getPartialFile(targetFile)));
+    }
+
+    @Test
+    public void testBrokenDownloadIsResumed(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+
+        DownloadResult result = downloader.download(new URL(baseUrl + "/resumable"), targetFile);
+
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+        assertEquals(md5(content), result.getMd5Checksum());
+        assertEquals(1, receivedRanges.size());
+        assertNotEquals("bytes=0-", receivedRanges.get(0));
+        Path partialFile = FileDownloader.getPartialFile(targetFile);
+        assertFalse(Files.exists(partialFile));
+        assertFalse(Files.exists(partialFile.resolveSibling(partialFile.getFileName() +
+                FileDownloader.RESUME_STATE_FILE_SUFFIX)));
+    }
+
+    @Test
+    public void testPartialDownloadOfChangedFileIsDiscarded(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+        Path partialFile = FileDownloader.getPartialFile(targetFile);
+        Files.write(partialFile, "outdated".getBytes());
+        new ResumeState(baseUrl + "/resumable", "\"v0\"", null, CONTENT_SIZE)
+                .write(partialFile.resolveSibling(partialFile.getFileName() + FileDownloader.RESUME_STATE_FILE_SUFFIX));
+        resumableRequests.set(1);
+
+        DownloadResult result = downloader.download(new URL(baseUrl + "/resumable"), targetFile);
+
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+        assertEquals(md5(content), result.getMd5Checksum());
+        assertTrue(receivedRanges.isEmpty());
+    }
+
+    @Test
+    public void testPartialDownloadIsKeptIfTheHostFails(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+        Path partialFile = FileDownloader.getPartialFile(targetFile);
+        Files.write(partialFile, "partial".getBytes());
+        new ResumeState(baseUrl + "/missing", ETAG, null, CONTENT_SIZE)
+                .write(partialFile.resolveSibling(partialFile.getFileName() + FileDownloader.RESUME_STATE_FILE_SUFFIX));
+
+        HttpStatusException exception = assertThrows(HttpStatusException.class,
+                () -> downloader.download(new URL(baseUrl + "/missing"), targetFile));
+
+        assertEquals(404, exception.getStatusCode());
+        assertArrayEquals("partial".getBytes(), Files.readAllBytes(partialFile));
+    }
+
+    @Test
+    public void testDownloadStartsOverAfterAnUnexpectedRange(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+        Path partialFile = FileDownloader.getPartialFile(targetFile);
+        Files.write(partialFile, "partial".getBytes());
+        new ResumeState(baseUrl + "/misranged", ETAG, null, CONTENT_SIZE)
+                .write(partialFile.resolveSibling(partialFile.getFileName() + FileDownloader.RESUME_STATE_FILE_SUFFIX));
+
+        DownloadResult result = downloader.download(new URL(baseUrl + "/misranged"), targetFile);
+
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+        assertEquals(md5(content), result.getMd5Checksum());
+        assertEquals(1, receivedRanges.size());
+    }
+
+    @Test
+    public void testLargeFileIsDownloadedInSegments(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+        int maximumConnectionsPerHost = 3;
+        FileDownloader segmentingDownloader = new FileDownloader(
+                new HttpFetcher(Duration.ofSeconds(5), Duration.ofSeconds(5), maximumConnectionsPerHost), 1024, 8);
+
+        DownloadResult result = segmentingDownloader.download(new URL(baseUrl + "/ranged"), targetFile);
+
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+        assertEquals(md5(content), result.getMd5Checksum());
+        assertEquals(maximumConnectionsPerHost, receivedRanges.size());
+        assertEquals(0, headRequests.get());
+    }
+
+    @Test
+    public void testFileOfListedLargeSizeIsDownloadedInSegments(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+        FileDownloader segmentingDownloader = new FileDownloader(
+                new HttpFetcher(Duration.ofSeconds(5), Duration.ofSeconds(5), 3), 1024, 8);
+
+        DownloadResult result = segmentingDownloader.download(new URL(baseUrl + "/ranged"), targetFile,
+                new ExpectedFile(CONTENT_SIZE, md5(content)));
+
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+        assertEquals(md5(content), result.getMd5Checksum());
+        assertEquals(3, receivedRanges.size());
+        assertEquals(1, headRequests.get());
+        assertEquals(0, fullTransfers.get());
+    }
+
+    @Test
+    public void testFileOfListedSmallSizeIsNotProbed(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+        FileDownloader segmentingDownloader = new FileDownloader(
+                new HttpFetcher(Duration.ofSeconds(5), Duration.ofSeconds(5), 3), 1024L * CONTENT_SIZE, 8);
+
+        segmentingDownloader.download(new URL(baseUrl + "/ranged"), targetFile,
+                new ExpectedFile(CONTENT_SIZE, md5(content)));
+
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+        assertEquals(0, headRequests.get());
+        assertTrue(receivedRanges.isEmpty());
+        assertEquals(1, fullTransfers.get());
+    }
+
+    @Test
+    public void testUnchangedFileIsNotTransferredAgain(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.txt");
+        URL url = new URL(baseUrl + "/conditional");
+
+        DownloadResult firstResult = downloader.download(url, targetFile);
+        DownloadResult secondResult = downloader.download(url, targetFile);
+
+        assertTrue(firstResult.isModified());
+        assertFalse(secondResult.isModified());
+        assertEquals(1, fullTransfers.get());
+        assertEquals(firstResult.getMd5Checksum(), secondResult.getMd5Checksum());
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+    }
+
+    @Test
+    public void testDownloadIsVerifiedAgainstTheExpectedFile(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+
+        DownloadResult result = downloader.download(new URL(baseUrl + "/file"), targetFile,
+                new ExpectedFile(CONTENT_SIZE, md5(content).toUpperCase()));
+
+        assertEquals(md5(content), result.getMd5Checksum());
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+    }
+
+    @Test
+    public void testCorruptDownloadDoesNotReplaceTheTargetFile(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+        byte[] previousContent = "previous".getBytes();
+        Files.write(targetFile, previousContent);
+
+        assertThrows(IOException.class, () -> downloader.download(new URL(baseUrl + "/file"), targetFile,
+                new ExpectedFile(ExpectedFile.UNKNOWN_SIZE, "d41d8cd98f00b204e9800998ecf8427e")));
+
+        assertArrayEquals(previousContent, Files.readAllBytes(targetFile));
+        assertFalse(Files.exists(FileDownloader.getPartialFile(targetFile)));
+    }
+
+    @Test
+    public void testDownloadIsVerifiedAgainstTheCurrentListingIfTheListedFileDiffers(@TempDir Path tempDir)
+            throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+        AtomicInteger currentFileRequests = new AtomicInteger(0);
+        ExpectedFile currentFile = new ExpectedFile(CONTENT_SIZE, md5(content));
+        ExpectedFile outdatedFile = new ExpectedFile(CONTENT_SIZE, "d41d8cd98f00b204e9800998ecf8427e", () -> {
+            currentFileRequests.incrementAndGet();
+            return Optional.of(currentFile);
+        });
+
+        DownloadResult result = downloader.download(new URL(baseUrl + "/file"), targetFile, outdatedFile);
+
+        assertEquals(md5(content), result.getMd5Checksum());
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+        assertEquals(1, currentFileRequests.get());
+    }
+
+    @Test
+    public void testFileWithPublishedChecksumIsNotRequestedAgain(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+        ExpectedFile expectedFile = new ExpectedFile(CONTENT_SIZE, md5(content));
+
+        DownloadResult firstResult = downloader.download(new URL(baseUrl + "/file"), targetFile, expectedFile);
+        // The file is kept, even if it is offered under another URL
+        DownloadResult secondResult = downloader.download(new URL(baseUrl + "/mirror/file"), targetFile,
+                expectedFile);
+
+        assertTrue(firstResult.isModified());
+        assertFalse(secondResult.isModified());
+        assertEquals(md5(content), secondResult.getMd5Checksum());
+        assertEquals(1, fileRequests.get());
+    }
+
+    @Test
+    public void testExistingFileWithoutStoredChecksumIsChecked(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+        Files.write(targetFile, content);
+
+        DownloadResult result = downloader.download(new URL(baseUrl + "/file"), targetFile,
+                new ExpectedFile(CONTENT_SIZE, md5(content)));
+        assertFalse(result.isModified());
+        assertEquals(0, fileRequests.get());
+
+        byte[] changedContent = content.clone();
+        changedContent[0]++;
+        Files.write(targetFile, changedContent);
+        Files.setLastModifiedTime(targetFile, FileTime.fromMillis(0));
+        result = downloader.download(new URL(baseUrl + "/file"), targetFile,
+                new ExpectedFile(CONTENT_SIZE, md5(content)));
+        assertTrue(result.isModified());
+        assertEquals(1, fileRequests.get());
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+    }
+
+    @Test
+    public void testComputedChecksumKeepsTheStoredValidators(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.txt");
+        URL url = new URL(baseUrl + "/conditional");
+        downloader.download(url, targetFile);
+
+        // Validators without a checksum
+        Path validatorsFile = FileValidators.getValidatorsFile(targetFile);
+        Properties validators = new Properties();
+        try (InputStream inputStream = Files.newInputStream(validatorsFile)) {
+            validators.load(inputStream);
+        }
+        validators.remove("md5");
+        try (OutputStream outputStream = Files.newOutputStream(validatorsFile)) {
+            validators.store(outputStream, null);
+        }
+
+        DownloadResult result = downloader.download(url, targetFile, new ExpectedFile(CONTENT_SIZE, md5(content)));
+        assertFalse(result.isModified());
+
+        result = downloader.download(url, targetFile);
+        assertFalse(result.isModified());
+        assertEquals(1, fullTransfers.get());
+    }
+
+    @Test
+    public void testFailingMirrorFallsOverToTheNextUrl(@TempDir Path tempDir) throws Exception {
+        Path targetFile = tempDir.resolve("item.gz");
+
+        DownloadResult result = downloader.download(List.of(new URL(baseUrl + "/truncated")),
+                new URL(baseUrl + "/file"), targetFile, new ExpectedFile(CONTENT_SIZE, md5(content)));
+
+        assertArrayEquals(content, Files.readAllBytes(targetFile));
+        assertEquals(md5(content), result.getMd5Checksum());
+        assertEquals(1, fileRequests.get());
+    }
+
+    @Test
+    public void testDownloadFailsIfAllMirrorsFail(@TempDir Path tempDir) {
+        Path targetFile = tempDir.resolve("item.gz");
+
+        assertThrows(IOException.class, () -> downloader.download(List.of(new URL(baseUrl + "/truncated")),
+                new URL(baseUrl + "/truncated"), targetFile, null));
+        assertFalse(Files.exists(targetFile));
+    }
+
+    private String md5(byte[] data) throws NoSuchAlgorithmException {
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("MD5").digest(data)) {
+            hexString.append(String.format("%02x", b));
+        }
+        return hexString.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package de.biofid.services.crawler.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestHttpFetcher {
+
+    private static final String CONTENT = "{\"Status\": \"ok\"}";
+
+    private HttpServer server;
+    private String baseUrl;
+    private HttpFetcher fetcher;
+    private final AtomicInteger overloadedRequests = new AtomicInteger(0);
+    private final CountDownLatch stalledResponses = new CountDownLatch(1);
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+        server.createContext("/gzip", exchange -> {
+            ByteArrayOutputStream compressedContent = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressedContent)) {
+                gzipStream.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, compressedContent.size());
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(compressedContent.toByteArray());
+            }
+        });
+
+        server.createContext("/overloaded-once", exchange -> {
+            if (overloadedRequests.getAndIncrement() == 0) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                exchange.sendResponseHeaders(OverloadedException.TOO_MANY_REQUESTS, -1);
+                exchange.close();
+                return;
+            }
+            byte[] content = CONTENT.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(content);
+            }
+        });
+
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(HttpStatusException.NOT_FOUND, -1);
+            exchange.close();
+        });
+
+        server.createContext("/stalled", exchange -> {
+            byte[] content = CONTENT.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, content.length);
+            OutputStream body = exchange.getResponseBody();
+            body.write(content, 0, content.length / 2);
+            body.flush();
+            try {
+                // The rest of the body never arrives
+                stalledResponses.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        fetcher = new HttpFetcher(Duration.ofSeconds(5), Duration.ofSeconds(5), 2);
+        RateLimiter.setShared(new RateLimiter());
+    }
+
+    @AfterEach
+    public void stopServer() {
+        stalledResponses.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testGzipResponseIsDecompressed() throws IOException {
+        assertEquals(CONTENT, fetcher.getString(baseUrl + "/gzip"));
+    }
+
+    @Test
+    public void testOverloadedRequestIsRetried() throws IOException {
+        assertEquals(CONTENT, fetcher.getString(baseUrl + "/overloaded-once"));
+        assertEquals(2, overloadedRequests.get());
+    }
+
+    @Test
+    public void testErrorStatusThrowsException() {
+        HttpStatusException exception = assertThrows(HttpStatusException.class,
+                () -> fetcher.getString(baseUrl + "/missing"));
+        assertEquals(HttpStatusException.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    public void testStalledBodyIsAbortedAndReleasesTheConnection() throws IOException {
+        HttpFetcher singleConnectionFetcher = new HttpFetcher(Duration.ofSeconds(5), Duration.ofMillis(300), 1);
+
+        long start = System.nanoTime();
+        assertThrows(IOException.class, () -> singleConnectionFetcher.getString(baseUrl + "/stalled"));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+
+        // The only connection permit of the host is free again
+        assertEquals(CONTENT, singleConnectionFetcher.getString(baseUrl + "/gzip"));
+    }
+}
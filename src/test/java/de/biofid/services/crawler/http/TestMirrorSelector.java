@@ -0,0 +1,66 @@
+package de.biofid.services.crawler.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMirrorSelector {
+
+    private static final String PRIMARY = "https://ia800100.us.archive.org/12/items/mitteilungen/file.pdf";
+    private static final String SECONDARY = "https://ia600100.us.archive.org/12/items/mitteilungen/file.pdf";
+
+    @Test
+    public void testUnknownMirrorsKeepTheirOrder() throws MalformedURLException {
+        MirrorSelector mirrorSelector = new MirrorSelector();
+
+        assertEquals(List.of(new URL(PRIMARY), new URL(SECONDARY)),
+                mirrorSelector.order(List.of(new URL(PRIMARY), new URL(SECONDARY))));
+    }
+
+    @Test
+    public void testFasterMirrorIsTriedFirst() throws MalformedURLException {
+        MirrorSelector mirrorSelector = new MirrorSelector();
+        URL primary = new URL(PRIMARY);
+        URL secondary = new URL(SECONDARY);
+
+        mirrorSelector.recordStart(primary);
+        mirrorSelector.recordSuccess(primary, 1000, 1000);
+        mirrorSelector.recordStart(secondary);
+        mirrorSelector.recordSuccess(secondary, 100_000, 1000);
+
+        assertEquals(List.of(secondary, primary), mirrorSelector.order(List.of(primary, secondary)));
+    }
+
+    @Test
+    public void testLoadedMirrorIsTriedLater() throws MalformedURLException {
+        MirrorSelector mirrorSelector = new MirrorSelector();
+        URL primary = new URL(PRIMARY);
+        URL secondary = new URL(SECONDARY);
+
+        mirrorSelector.recordStart(primary);
+        mirrorSelector.recordSuccess(primary, 1000, 1000);
+        mirrorSelector.recordStart(secondary);
+        mirrorSelector.recordSuccess(secondary, 1000, 1000);
+        // Two downloads are still running on the primary host
+        mirrorSelector.recordStart(primary);
+        mirrorSelector.recordStart(primary);
+
+        assertEquals(List.of(secondary, primary), mirrorSelector.order(List.of(primary, secondary)));
+    }
+
+    @Test
+    public void testFailedMirrorIsTriedLast() throws MalformedURLException {
+        MirrorSelector mirrorSelector = new MirrorSelector();
+        URL primary = new URL(PRIMARY);
+        URL secondary = new URL(SECONDARY);
+
+        mirrorSelector.recordStart(primary);
+        mirrorSelector.recordFailure(primary);
+
+        assertEquals(List.of(secondary, primary), mirrorSelector.order(List.of(primary, secondary)));
+    }
+}
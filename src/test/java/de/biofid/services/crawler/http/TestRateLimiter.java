@@ -0,0 +1,128 @@
+package de.biofid.services.crawler.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRateLimiter {
+
+    @Test
+    public void testRequestsAreThrottledAfterBurst() {
+        RateLimiter rateLimiter = new RateLimiter();
+        rateLimiter.setRateLimit("www.biodiversitylibrary.org", new RateLimit(20, 2));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; ++i) {
+            rateLimiter.acquire("https://www.biodiversitylibrary.org/api3");
+        }
+        long elapsedMilliseconds = (System.nanoTime() - start) / 1_000_000;
+
+        // Two requests pass immediately, the remaining four have to wait 50 ms each
+        assertTrue(elapsedMilliseconds >= 180, "Elapsed only " + elapsedMilliseconds + " ms");
+    }
+
+    @Test
+    public void testUnconfiguredHostsAreNotThrottled() {
+        RateLimiter rateLimiter = new RateLimiter();
+        rateLimiter.setRateLimit("www.biodiversitylibrary.org", new RateLimit(1, 1));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; ++i) {
+            rateLimiter.acquire("https://www.zobodat.at/publikation_series.php");
+        }
+        long elapsedMilliseconds = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMilliseconds < 500);
+    }
+
+    @Test
+    public void testSubdomainsShareTheLimitOfTheirDomain() {
+        RateLimiter rateLimiter = new RateLimiter();
+        RateLimit archiveRateLimit = new RateLimit(10, 5);
+        rateLimiter.setRateLimit("archive.org", archiveRateLimit);
+
+        assertSame(archiveRateLimit, rateLimiter.getRateLimit("ia800204.us.archive.org"));
+        assertSame(archiveRateLimit, rateLimiter.getRateLimit("archive.org"));
+        assertTrue(rateLimiter.getRateLimit("www.biodiversitylibrary.org").isUnlimited());
+    }
+
+    @Test
+    public void testRateLimitRejectsValuesOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimit(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimit(-2, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimit(Double.NaN, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimit(10, 0));
+    }
+
+    @Test
+    public void testOverloadHalvesTheRateAndSuccessRecoversIt() {
+        RateLimiter rateLimiter = new RateLimiter();
+        rateLimiter.setRateLimit("archive.org", new RateLimit(10, 1));
+        rateLimiter.acquire("https://archive.org/download/item");
+
+        rateLimiter.reportOverload("archive.org", 0);
+        assertEquals(5.0, rateLimiter.getCurrentRequestsPerSecond("archive.org"), 0.001);
+
+        for (int i = 0; i < 100; ++i) {
+            rateLimiter.reportSuccess("archive.org");
+        }
+        assertEquals(10.0, rateLimiter.getCurrentRequestsPerSecond("archive.org"), 0.001);
+    }
+
+    @Test
+    public void testOverloadedUnlimitedHostIsThrottled() {
+        RateLimiter rateLimiter = new RateLimiter();
+        assertTrue(Double.isInfinite(rateLimiter.getCurrentRequestsPerSecond("www.zobodat.at")));
+
+        rateLimiter.reportOverload("www.zobodat.at", 0);
+        assertFalse(Double.isInfinite(rateLimiter.getCurrentRequestsPerSecond("www.zobodat.at")));
+    }
+
+    @Test
+    public void testOverloadedRequestIsRetried() throws IOException {
+        RateLimiter rateLimiter = new RateLimiter();
+        rateLimiter.setMaximumRetries(3);
+        AtomicInteger attempts = new AtomicInteger(0);
+
+        String result = rateLimiter.execute("https://www.biodiversitylibrary.org/api3", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OverloadedException("Too many requests", OverloadedException.TOO_MANY_REQUESTS, 10);
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testRequestFailsAfterMaximumRetries() {
+        RateLimiter rateLimiter = new RateLimiter();
+        rateLimiter.setMaximumRetries(1);
+        AtomicInteger attempts = new AtomicInteger(0);
+
+        assertThrows(OverloadedException.class, () -> rateLimiter.execute("https://archive.org/download/item", () -> {
+            attempts.incrementAndGet();
+            throw new OverloadedException("Service unavailable", OverloadedException.SERVICE_UNAVAILABLE, 10);
+        }));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testParseRetryAfter() {
+        assertEquals(120000, OverloadedException.parseRetryAfter("120"));
+        assertEquals(OverloadedException.RETRY_AFTER_UNKNOWN, OverloadedException.parseRetryAfter(null));
+        assertEquals(OverloadedException.RETRY_AFTER_UNKNOWN, OverloadedException.parseRetryAfter("soon"));
+        assertEquals(0, OverloadedException.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+
+    @Test
+    public void testDefaultRateLimitFromRequestDelay() {
+        RateLimit rateLimit = RateLimit.fromDelay(100);
+        assertEquals(10.0, rateLimit.getRequestsPerSecond(), 0.001);
+        assertTrue(RateLimit.fromDelay(0).isUnlimited());
+    }
+}